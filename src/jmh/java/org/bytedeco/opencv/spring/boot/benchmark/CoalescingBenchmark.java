@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionProperties;
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 大量并发的单张图片检测请求，对比开启、关闭请求合并（opencv.face.coalescing）时的吞吐和 p99 延迟
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoalescingBenchmark {
+
+	@Param({ "640x480", "1280x720" })
+	private String size;
+
+	/**
+	 * 合并等待窗口（毫秒），0 为不合并
+	 */
+	@Param({ "0", "1", "2" })
+	private int windowMillis;
+
+	private FacenetFaceRecognitionTemplate template;
+	private byte[] image;
+
+	@Setup
+	public void setup() {
+		template = Fixtures.template(Runtime.getRuntime().availableProcessors());
+		FacenetFaceRecognitionProperties.Coalescing coalescing = template.getProperties().getCoalescing();
+		coalescing.setEnabled(windowMillis > 0);
+		coalescing.setWindow(Duration.ofMillis(windowMillis));
+		image = Fixtures.faceJpeg(size, 1);
+	}
+
+	@TearDown
+	public void tearDown() {
+		template.destroy();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public JSONObject detect() {
+		return template.detect(image);
+	}
+
+}
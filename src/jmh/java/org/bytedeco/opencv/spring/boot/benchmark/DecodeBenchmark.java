@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.bytedeco.opencv.spring.boot.image.ImageDecoder;
+import org.bytedeco.opencv.spring.boot.image.ImageFactory;
+import org.bytedeco.opencv.spring.boot.image.ImageInfo;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 上传图片解码耗时对比：旧的“写临时文件 + imread”流程与内存解码流程
+ * <p>inMemoryReduced* 为 JPEG 按 1/factor 缩小解码，headerOnly 只读取文件头中的宽高。配合 -prof gc 查看每次请求的分配量（gc.alloc.rate.norm）</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+
+	@Param({ "640x480", "1920x1080", "4032x3024" })
+	private String size;
+
+	/**
+	 * 缩小解码的倍数，取 2、4、8
+	 */
+	@Param({ "4" })
+	private int factor;
+
+	private byte[] jpeg;
+	private ByteBuffer directJpeg;
+	private File tempDir;
+
+	@Setup
+	public void setup() throws IOException {
+		Loader.load(opencv_java.class);
+		String[] wh = size.split("x");
+		Mat image = new Mat(Integer.parseInt(wh[1]), Integer.parseInt(wh[0]), CvType.CV_8UC3);
+		Core.randu(image, 0, 255);
+		MatOfByte buf = new MatOfByte();
+		Imgcodecs.imencode(".jpg", image, buf);
+		jpeg = buf.toArray();
+		directJpeg = ByteBuffer.allocateDirect(jpeg.length);
+		directJpeg.put(jpeg).flip();
+		tempDir = Files.createTempDirectory("facenet-bench").toFile();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(tempDir);
+	}
+
+	/**
+	 * 旧流程：写入 UUID 命名的临时文件后再 imread（此处额外删除文件，避免撑满磁盘）
+	 */
+	@Benchmark
+	public Mat tempFile() throws IOException {
+		File imageFile = new File(tempDir, UUID.randomUUID().toString() + ".jpg");
+		FileUtils.writeByteArrayToFile(imageFile, jpeg);
+		try {
+			return release(ImageDecoder.decode(imageFile, Imgcodecs.IMREAD_COLOR));
+		} finally {
+			imageFile.delete();
+		}
+	}
+
+	@Benchmark
+	public Mat inMemoryBytes() {
+		return release(ImageDecoder.decode(jpeg, Imgcodecs.IMREAD_COLOR));
+	}
+
+	@Benchmark
+	public Mat inMemoryDirectBuffer() {
+		return release(ImageDecoder.decode(directJpeg, Imgcodecs.IMREAD_COLOR));
+	}
+
+	@Benchmark
+	public Mat inMemoryReducedColor() {
+		return release(ImageDecoder.decode(jpeg, Imgcodecs.IMREAD_COLOR, factor));
+	}
+
+	@Benchmark
+	public Mat inMemoryReducedGray() {
+		return release(ImageDecoder.decode(jpeg, Imgcodecs.IMREAD_GRAYSCALE, factor));
+	}
+
+	@Benchmark
+	public ImageInfo headerOnly() {
+		return ImageFactory.getImageInfo(jpeg);
+	}
+
+	private static Mat release(Mat image) {
+		image.release();
+		return image;
+	}
+
+}
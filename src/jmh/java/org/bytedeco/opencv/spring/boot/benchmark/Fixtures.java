@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.benchmark;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.FileUtils;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionProperties;
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionTemplate;
+import org.bytedeco.opencv.spring.boot.detection.DetectorType;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.opencv.objdetect.CascadeClassifier;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * 基准测试使用的本地合成数据，不依赖外部图片和网络
+ */
+final class Fixtures {
+
+	private Fixtures() {
+	}
+
+	/**
+	 * 解析 "宽x高" 形式的尺寸参数
+	 */
+	static int[] size(String size) {
+		String[] wh = size.split("x");
+		return new int[] { Integer.parseInt(wh[0]), Integer.parseInt(wh[1]) };
+	}
+
+	/**
+	 * 生成一张带噪点背景、居中绘制简笔人脸的图片；相同参数生成的图片完全一致
+	 */
+	static BufferedImage faceImage(int width, int height, long seed) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Random random = new Random(seed);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int v = 96 + random.nextInt(64);
+				row[x] = (v << 16) | (v << 8) | v;
+			}
+			image.setRGB(0, y, width, 1, row, 0, width);
+		}
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			int faceHeight = Math.min(width, height) * 3 / 5;
+			int faceWidth = faceHeight * 3 / 4;
+			int left = (width - faceWidth) / 2;
+			int top = (height - faceHeight) / 2;
+			g.setColor(new Color(224, 180, 150));
+			g.fillOval(left, top, faceWidth, faceHeight);
+			// 眉毛、眼睛
+			int eyeY = top + faceHeight * 2 / 5;
+			int eyeW = faceWidth / 5;
+			int eyeH = Math.max(2, faceHeight / 14);
+			int leftEyeX = left + faceWidth / 4 - eyeW / 2;
+			int rightEyeX = left + faceWidth * 3 / 4 - eyeW / 2;
+			g.setColor(new Color(60, 40, 30));
+			g.setStroke(new BasicStroke(Math.max(1, faceHeight / 40f)));
+			g.drawLine(leftEyeX, eyeY - eyeH * 2, leftEyeX + eyeW, eyeY - eyeH * 2);
+			g.drawLine(rightEyeX, eyeY - eyeH * 2, rightEyeX + eyeW, eyeY - eyeH * 2);
+			g.setColor(new Color(30, 30, 30));
+			g.fillOval(leftEyeX, eyeY - eyeH / 2, eyeW, eyeH);
+			g.fillOval(rightEyeX, eyeY - eyeH / 2, eyeW, eyeH);
+			// 鼻子、嘴
+			g.setColor(new Color(180, 130, 110));
+			int noseX = left + faceWidth / 2;
+			g.drawLine(noseX, eyeY, noseX - faceWidth / 16, top + faceHeight * 5 / 8);
+			g.drawLine(noseX - faceWidth / 16, top + faceHeight * 5 / 8, noseX + faceWidth / 16, top + faceHeight * 5 / 8);
+			g.setColor(new Color(150, 60, 60));
+			g.fillOval(left + faceWidth * 3 / 10, top + faceHeight * 3 / 4, faceWidth * 2 / 5, Math.max(2, faceHeight / 16));
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	static byte[] jpeg(BufferedImage image) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			ImageIO.write(image, "jpg", out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	static byte[] faceJpeg(String size, long seed) {
+		int[] wh = size(size);
+		return jpeg(faceImage(wh[0], wh[1], seed));
+	}
+
+	static FacenetFaceRecognitionTemplate template(int poolSize) {
+		return template(poolSize, DetectorType.HAAR);
+	}
+
+	/**
+	 * 按自动配置相同的方式创建模板：检测器对象池大小为 poolSize，级联分类器 XML 从 classpath 复制到临时目录
+	 * @param detector HAAR 或 LBP
+	 */
+	static FacenetFaceRecognitionTemplate template(int poolSize, DetectorType detector) {
+		Loader.load(opencv_java.class);
+		String cascade = detector.getDefaultCascade().substring(ResourceUtils.CLASSPATH_URL_PREFIX.length());
+		try {
+			File tempDir = Files.createTempDirectory("facenet-bench").toFile();
+			tempDir.deleteOnExit();
+			File xmlFile = new File(tempDir, StringUtils.getFilename(cascade));
+			try (InputStream input = Fixtures.class.getClassLoader().getResourceAsStream(cascade)) {
+				if (input == null) {
+					throw new IllegalStateException("classpath resource not found: " + cascade);
+				}
+				FileUtils.copyInputStreamToFile(input, xmlFile);
+			}
+			xmlFile.deleteOnExit();
+			FacenetFaceRecognitionProperties properties = new FacenetFaceRecognitionProperties();
+			properties.setTemp(tempDir.getPath());
+			properties.getPool().setMaxSize(poolSize);
+			String xmlPath = xmlFile.getPath();
+			NativeObjectPool<CascadeClassifier> pool = new NativeObjectPool<>("faceDetector",
+					() -> new CascadeClassifier(xmlPath), poolSize, properties.getPool().getExhaustedAction(),
+					properties.getPool().getMaxWait());
+			return new FacenetFaceRecognitionTemplate(pool, properties);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.opencv.spring.boot.gallery.BruteForceFaceGallery;
+import org.bytedeco.opencv.spring.boot.gallery.FaceGallery;
+import org.bytedeco.opencv.spring.boot.gallery.SearchHit;
+import org.bytedeco.opencv.spring.boot.gallery.ShardedFaceGallery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 精确检索的 1:N 延迟：单个数组顺序扫描与按 CPU 核数分片并行扫描对比（纯 Java）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GalleryBenchmark {
+
+	private static final int DIMENSION = 128;
+
+	@Param({ "10000", "1000000" })
+	private int count;
+
+	private BruteForceFaceGallery bruteForce;
+	private ShardedFaceGallery sharded;
+	private float[] query;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		bruteForce = new BruteForceFaceGallery(DIMENSION, count);
+		sharded = new ShardedFaceGallery(Runtime.getRuntime().availableProcessors(), count);
+		for (int i = 0; i < count; i++) {
+			float[] embedding = embedding(random);
+			bruteForce.enroll("face-" + i, embedding);
+			sharded.enroll("face-" + i, embedding);
+		}
+		query = embedding(random);
+	}
+
+	@TearDown
+	public void tearDown() {
+		sharded.close();
+	}
+
+	@Benchmark
+	public List<SearchHit> bruteForce() {
+		return search(bruteForce);
+	}
+
+	@Benchmark
+	public List<SearchHit> sharded() {
+		return search(sharded);
+	}
+
+	private List<SearchHit> search(FaceGallery gallery) {
+		return gallery.search(query, 10);
+	}
+
+	private static float[] embedding(Random random) {
+		float[] embedding = new float[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			embedding[i] = (float) random.nextGaussian();
+		}
+		return embedding;
+	}
+
+}
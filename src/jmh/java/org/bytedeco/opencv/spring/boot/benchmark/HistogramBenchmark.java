@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.opencv.spring.boot.detection.HistogramFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 已保存直方图特征的一对多比对（纯 Java），不涉及解码和 native 调用
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistogramBenchmark {
+
+	private static final int BINS = 20;
+
+	@Param({ "1000", "100000" })
+	private int count;
+
+	private float[] probe;
+	private List<float[]> histograms;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		probe = histogram(random);
+		histograms = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			histograms.add(histogram(random));
+		}
+	}
+
+	@Benchmark
+	public double[] bulk() {
+		return HistogramFeature.correlation(probe, histograms);
+	}
+
+	@Benchmark
+	public double[] pairwise() {
+		double[] scores = new double[histograms.size()];
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = HistogramFeature.correlation(probe, histograms.get(i));
+		}
+		return scores;
+	}
+
+	/**
+	 * 与模板一致：20 个区间，总和归一化为 100
+	 */
+	private static float[] histogram(Random random) {
+		float[] histogram = new float[BINS];
+		float sum = 0;
+		for (int i = 0; i < BINS; i++) {
+			histogram[i] = random.nextFloat();
+			sum += histogram[i];
+		}
+		for (int i = 0; i < BINS; i++) {
+			histogram[i] = histogram[i] * 100 / sum;
+		}
+		return histogram;
+	}
+
+}
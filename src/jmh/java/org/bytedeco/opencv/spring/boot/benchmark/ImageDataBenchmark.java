@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.opencv.spring.boot.image.ImageFactory;
+import org.bytedeco.opencv.spring.boot.image.ImageInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ImageFactory.getRGBData / getGrayData 从 JPEG 字节到 BGR24 / 灰度数据的完整耗时（含 ImageIO 解码）
+ * <p>Throughput 给出吞吐，SampleTime 给出分位延迟；*AllCores 方法以 CPU 核数个线程并发执行。</p>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageDataBenchmark {
+
+	@Param({ "640x480", "1920x1080", "3840x2160" })
+	private String size;
+
+	private byte[] jpeg;
+
+	@Setup
+	public void setup() {
+		jpeg = Fixtures.faceJpeg(size, 1);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public ImageInfo rgbData() {
+		return ImageFactory.getRGBData(jpeg);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public ImageInfo rgbDataAllCores() {
+		return ImageFactory.getRGBData(jpeg);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public ImageInfo grayData() {
+		return ImageFactory.getGrayData(jpeg);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public ImageInfo grayDataAllCores() {
+		return ImageFactory.getGrayData(jpeg);
+	}
+
+}
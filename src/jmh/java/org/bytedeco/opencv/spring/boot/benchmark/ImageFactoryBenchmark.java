@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.benchmark;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.opencv.spring.boot.image.ImageFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BufferedImage 转 BGR24 / 灰度数据：旧的 getRGB + ColorConvertOp 流程与直接读取 DataBuffer 的流程
+ * <p>配合 -prof gc 查看每帧的分配量（gc.alloc.rate.norm），复用目标数组时应接近 0</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ImageFactoryBenchmark {
+
+	@Param({ "1920x1080", "3840x2160" })
+	private String size;
+
+	@Param({ "3BYTE_BGR", "4BYTE_ABGR", "INT_RGB", "BYTE_GRAY" })
+	private String type;
+
+	private BufferedImage image;
+	private int width;
+	private int height;
+	private byte[] bgr;
+	private byte[] gray;
+
+	@Setup
+	public void setup() {
+		String[] wh = size.split("x");
+		image = new BufferedImage(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]), imageType(type));
+		Random random = new Random(42);
+		int[] row = new int[image.getWidth()];
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < row.length; x++) {
+				row[x] = 0xFF000000 | random.nextInt(1 << 24);
+			}
+			image.setRGB(0, y, row.length, 1, row, 0, row.length);
+		}
+		width = image.getWidth() & (~3);
+		height = image.getHeight() & (~3);
+		bgr = new byte[width * height * 3];
+		gray = new byte[width * height];
+	}
+
+	@Benchmark
+	public byte[] legacyRgb() {
+		return legacyRgb(image, width, height);
+	}
+
+	@Benchmark
+	public byte[] rgb() {
+		return ImageFactory.toBgr(image, width, height, bgr);
+	}
+
+	@Benchmark
+	public byte[] legacyGray() {
+		return legacyGray(image, width, height);
+	}
+
+	@Benchmark
+	public byte[] gray() {
+		return ImageFactory.toGray(image, width, height, gray);
+	}
+
+	private static int imageType(String type) {
+		switch (type) {
+		case "3BYTE_BGR":
+			return BufferedImage.TYPE_3BYTE_BGR;
+		case "4BYTE_ABGR":
+			return BufferedImage.TYPE_4BYTE_ABGR;
+		case "INT_RGB":
+			return BufferedImage.TYPE_INT_RGB;
+		case "BYTE_GRAY":
+			return BufferedImage.TYPE_BYTE_GRAY;
+		default:
+			throw new IllegalArgumentException(type);
+		}
+	}
+
+	/**
+	 * 改写前 bufferedImage2ImageInfo 的实现
+	 */
+	private static byte[] legacyRgb(BufferedImage image, int width, int height) {
+		BufferedImage resultImage = new BufferedImage(width, height, image.getType());
+		int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+		resultImage.setRGB(0, 0, width, height, rgb, 0, width);
+		BufferedImage dstImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		if (resultImage.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+			ColorSpace cs = ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB);
+			ColorConvertOp colorConvertOp = new ColorConvertOp(cs, dstImage.createGraphics().getRenderingHints());
+			colorConvertOp.filter(resultImage, dstImage);
+		} else {
+			dstImage = resultImage;
+		}
+		return ((DataBufferByte) dstImage.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * 改写前 bufferedImage2GrayImageInfo 的实现
+	 */
+	private static byte[] legacyGray(BufferedImage image, int width, int height) {
+		int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+		byte[] gray = new byte[width * height];
+		for (int i = 0; i < gray.length; i++) {
+			int r = (argb[i] & 0xFF0000) >> 16;
+			int g = (argb[i] & 0x00FF00) >> 8;
+			int b = argb[i] & 0x0000FF;
+			int y = (66 * r + 129 * g + 25 * b + 128 >> 8) + 16;
+			gray[i] = (byte) (y < 0 ? 0 : (y > 255 ? 255 : y));
+		}
+		return gray;
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionTemplate;
+import org.bytedeco.opencv.spring.boot.detection.DetectionOptions;
+import org.bytedeco.opencv.spring.boot.detection.DetectorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * FacenetFaceRecognitionTemplate 的检测、比对端到端耗时（内存解码 + Haar 检测 + 直方图比对）
+ * <p>Throughput 给出吞吐，SampleTime 给出 p50/p99 等分位延迟；*AllCores 方法以 CPU 核数个线程
+ * 共享同一个模板，检测器对象池大小同为 CPU 核数。配合 -prof gc 查看每次调用的分配量。</p>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateBenchmark {
+
+	@Param({ "640x480", "1280x720", "1920x1080" })
+	private String size;
+
+	/**
+	 * 检测前缩小到的长边像素数，0 为原图检测
+	 */
+	@Param({ "0", "640" })
+	private int workingSize;
+
+	/**
+	 * 级联分类器类型，LBP 更快、Haar 更准
+	 */
+	@Param({ "HAAR", "LBP" })
+	private DetectorType detector;
+
+	private FacenetFaceRecognitionTemplate template;
+	private byte[] image1;
+	private byte[] image2;
+	private DetectionOptions options;
+
+	@Setup
+	public void setup() {
+		template = Fixtures.template(Runtime.getRuntime().availableProcessors(), detector);
+		image1 = Fixtures.faceJpeg(size, 1);
+		image2 = Fixtures.faceJpeg(size, 2);
+		options = template.detectionOptions().setWorkingSize(workingSize);
+	}
+
+	@TearDown
+	public void tearDown() {
+		template.destroy();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public JSONObject detect() {
+		return template.detect(image1, options);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public JSONObject detectAllCores() {
+		return template.detect(image1, options);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public JSONObject match() {
+		return template.match(image1, image2);
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public JSONObject matchAllCores() {
+		return template.match(image1, image2);
+	}
+
+}
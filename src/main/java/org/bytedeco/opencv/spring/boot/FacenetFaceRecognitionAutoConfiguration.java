@@ -2,50 +2,246 @@ package org.bytedeco.opencv.spring.boot;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 
-import org.apache.commons.io.FileUtils;
-import org.bytedeco.javacpp.Loader;
-import org.bytedeco.opencv.opencv_java;
+import org.bytedeco.opencv.opencv_core.FileNode;
+import org.bytedeco.opencv.opencv_core.FileStorage;
+import org.bytedeco.opencv.spring.boot.cache.FeatureCache;
+import org.bytedeco.opencv.spring.boot.detection.CascadeFaceDetector;
+import org.bytedeco.opencv.spring.boot.detection.DetectorType;
+import org.bytedeco.opencv.spring.boot.detection.DnnFaceDetector;
+import org.bytedeco.opencv.spring.boot.detection.FaceAligner;
+import org.bytedeco.opencv.spring.boot.detection.FaceDetector;
+import org.bytedeco.opencv.spring.boot.dnn.DnnModels;
+import org.bytedeco.opencv.spring.boot.dnn.FaceEmbeddingEngine;
+import org.bytedeco.opencv.spring.boot.gallery.BruteForceFaceGallery;
+import org.bytedeco.opencv.spring.boot.gallery.FaceGallery;
+import org.bytedeco.opencv.spring.boot.gallery.GalleryMode;
+import org.bytedeco.opencv.spring.boot.gallery.HnswFaceGallery;
+import org.bytedeco.opencv.spring.boot.gallery.MappedEmbeddingStore;
+import org.bytedeco.opencv.spring.boot.gallery.PersistentFaceGallery;
+import org.bytedeco.opencv.spring.boot.gallery.ShardedFaceGallery;
+import org.bytedeco.opencv.spring.boot.health.FaceRecognitionHealthIndicator;
+import org.bytedeco.opencv.spring.boot.metrics.FaceRecognitionMetrics;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.bytedeco.opencv.spring.boot.quality.ImageQualityGate;
+import org.bytedeco.opencv.spring.boot.reactive.ReactiveFacenetFaceRecognitionTemplate;
+import org.bytedeco.opencv.spring.boot.startup.FaceRecognitionWarmUp;
+import org.bytedeco.opencv.spring.boot.startup.ModelResources;
+import org.bytedeco.opencv.spring.boot.startup.NativeLibrary;
+import org.opencv.dnn.Net;
 import org.opencv.objdetect.CascadeClassifier;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
 
 @Configuration
 @ConditionalOnProperty(prefix = FacenetFaceRecognitionProperties.PREFIX, value = "enabled", havingValue = "true")
 @EnableConfigurationProperties({ FacenetFaceRecognitionProperties.class })
 public class FacenetFaceRecognitionAutoConfiguration {
 	
-	@Value("classpath:haarcascades/haarcascade_frontalface_alt.xml")
-	private Resource classifier;
+	@Value("classpath:haarcascades/haarcascade_eye.xml")
+	private Resource eyeClassifier;
 	
-	static {
-		Loader.load(opencv_java.class);
-		//new opencv_java();
+    @Bean
+    public FaceDetector faceDetector(FacenetFaceRecognitionProperties properties, ResourceLoader resourceLoader) {
+    	FacenetFaceRecognitionProperties.Detection detection = properties.getDetection();
+    	if (detection.getDetector() == DetectorType.DNN) {
+    		FacenetFaceRecognitionProperties.Detection.Dnn dnn = detection.getDnn();
+    		if (!StringUtils.hasText(dnn.getModel())) {
+    			throw new IllegalStateException("DNN face detector requires opencv.face.detection.dnn.model");
+    		}
+    		FacenetFaceRecognitionProperties.Pool pool = properties.getPool();
+    		NativeObjectPool<Net> netPool = new NativeObjectPool<>("faceDetector",
+    				() -> DnnModels.readNet(dnn.getModel(), dnn.getConfig()), pool.getMaxSize(),
+    				pool.getExhaustedAction(), pool.getMaxWait());
+    		return new DnnFaceDetector(netPool, dnn);
+    	}
+    	String cascade = StringUtils.hasText(detection.getCascade()) ? detection.getCascade()
+    			: detection.getDetector().getDefaultCascade();
+		return new CascadeFaceDetector(cascadePool("faceDetector", resourceLoader.getResource(cascade), properties));
 	}
-	
+    
     @Bean
-    public CascadeClassifier faceDetector(FacenetFaceRecognitionProperties properties) throws IOException {
-    	// 创建临时文件，因为boot打包后无法读取文件内的内容
-    	File tempDir = new File(properties.getTemp());
-    	if(!tempDir.exists()) {
-    		tempDir.setReadable(true);
-    		tempDir.setWritable(true);
-    		tempDir.mkdir();
-    	}
-		File targetXmlFile = new File(tempDir, classifier.getFilename());
-		FileUtils.copyInputStreamToFile(classifier.getInputStream(), targetXmlFile);
-		//System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
-		return new CascadeClassifier(targetXmlFile.getPath());
+    @ConditionalOnProperty(prefix = FacenetFaceRecognitionProperties.PREFIX + ".alignment", value = "enabled", havingValue = "true")
+    public FaceAligner faceAligner(FacenetFaceRecognitionProperties properties) {
+    	FacenetFaceRecognitionProperties.Alignment alignment = properties.getAlignment();
+    	FacenetFaceRecognitionProperties.Embedding embedding = properties.getEmbedding();
+    	NativeObjectPool<CascadeClassifier> eyeDetectorPool = alignment.isEyes()
+    			? cascadePool("eyeDetector", eyeClassifier, properties) : null;
+    	// 默认输出特征模型的输入尺寸，推理前不必再缩放
+    	int width = alignment.getWidth() > 0 ? alignment.getWidth() : embedding.getInputWidth();
+    	int height = alignment.getHeight() > 0 ? alignment.getHeight() : embedding.getInputHeight();
+    	return new FaceAligner(eyeDetectorPool, width, height, alignment.isExpand());
+    }
+    
+    private NativeObjectPool<CascadeClassifier> cascadePool(String name, Resource cascade,
+    		FacenetFaceRecognitionProperties properties) {
+    	// CascadeClassifier 不支持并发 detectMultiScale，每个线程借用独立的实例
+    	// native 库和 XML 在创建第一个实例时才加载，由初始化模式决定是启动时、后台还是首次使用时
+		File tempDir = new File(properties.getTemp());
+		FacenetFaceRecognitionProperties.Pool pool = properties.getPool();
+		return new NativeObjectPool<>(name, () -> loadCascade(cascade, tempDir), pool.getMaxSize(),
+				pool.getExhaustedAction(), pool.getMaxWait());
 	}
     
+    private static CascadeClassifier loadCascade(Resource cascade, File tempDir) {
+    	NativeLibrary.load();
+    	CascadeClassifier classifier = readCascade(cascade);
+    	if (classifier != null) {
+    		return classifier;
+    	}
+    	String xmlPath;
+    	try {
+    		// 旧格式（opencv-haar-classifier）只有 load 会转换，退回到解压为文件后加载
+    		xmlPath = ModelResources.extract(cascade, tempDir);
+    	} catch (IOException e) {
+    		throw new UncheckedIOException("Failed to extract cascade: " + cascade, e);
+    	}
+    	classifier = new CascadeClassifier(xmlPath);
+    	if (classifier.empty()) {
+    		throw new IllegalStateException("Failed to load cascade: " + xmlPath);
+    	}
+    	return classifier;
+    }
+    
+    /**
+     * 通过 FileStorage 的 MEMORY 模式直接从资源内容加载，不写临时文件
+     * @return 加载后的分类器，不是新格式的级联文件时返回 null
+     */
+    private static CascadeClassifier readCascade(Resource cascade) {
+    	String xml;
+    	try (InputStream input = cascade.getInputStream()) {
+    		xml = StreamUtils.copyToString(input, StandardCharsets.UTF_8);
+    	} catch (IOException e) {
+    		throw new UncheckedIOException("Failed to read cascade: " + cascade, e);
+    	}
+    	org.bytedeco.opencv.opencv_objdetect.CascadeClassifier classifier = new org.bytedeco.opencv.opencv_objdetect.CascadeClassifier();
+    	boolean loaded;
+    	try (FileStorage storage = new FileStorage(xml, FileStorage.READ | FileStorage.MEMORY)) {
+    		if (storage.isOpened()) {
+    			try (FileNode node = storage.getFirstTopLevelNode()) {
+    				loaded = classifier.read(node) && !classifier.empty();
+    			}
+    		} else {
+    			loaded = false;
+    		}
+    	}
+    	if (!loaded) {
+    		classifier.close();
+    		return null;
+    	}
+    	// 两套绑定指向同一个 cv::CascadeClassifier，交给 org.opencv 包装对象释放，JavaCPP 不再重复析构
+    	CascadeClassifier wrapper = CascadeClassifier.__fromPtr__(classifier.address());
+    	classifier.deallocate(false);
+    	return wrapper;
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = FacenetFaceRecognitionProperties.PREFIX + ".embedding", name = "model")
+    public FaceEmbeddingEngine faceEmbeddingEngine(FacenetFaceRecognitionProperties properties) {
+    	FacenetFaceRecognitionProperties.Embedding embedding = properties.getEmbedding();
+    	FacenetFaceRecognitionProperties.Pool pool = properties.getPool();
+    	// dnn.Net 同样不支持并发 forward，与检测器使用相同的池大小
+    	NativeObjectPool<Net> netPool = new NativeObjectPool<>("faceEmbedding",
+    			() -> FaceEmbeddingEngine.loadNet(embedding.getModel(), embedding.getConfig()), pool.getMaxSize(),
+    			pool.getExhaustedAction(), pool.getMaxWait());
+    	return new FaceEmbeddingEngine(netPool, embedding);
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = FacenetFaceRecognitionProperties.PREFIX + ".embedding", name = "model")
+    public FaceGallery faceGallery(FacenetFaceRecognitionProperties properties) throws IOException {
+    	FacenetFaceRecognitionProperties.Gallery gallery = properties.getGallery();
+    	FaceGallery faceGallery;
+    	if (gallery.getMode() == GalleryMode.HNSW) {
+    		faceGallery = new HnswFaceGallery(gallery.getInitialCapacity(), gallery.getM(), gallery.getEfConstruction(),
+    				gallery.getEfSearch());
+    	} else if (gallery.getShards() > 1) {
+    		faceGallery = new ShardedFaceGallery(gallery.getShards(), gallery.getInitialCapacity(),
+    				gallery.getSearchParallelism());
+    	} else {
+    		faceGallery = new BruteForceFaceGallery(gallery.getInitialCapacity());
+    	}
+    	if (gallery.isPersistent()) {
+    		MappedEmbeddingStore store = new MappedEmbeddingStore(Paths.get(properties.getStorage(), "gallery.dat"),
+    				gallery.getMaxIdBytes(), gallery.isSync());
+    		return new PersistentFaceGallery(faceGallery, store);
+    	}
+    	return faceGallery;
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = FacenetFaceRecognitionProperties.PREFIX + ".cache", value = "enabled", havingValue = "true")
+    public FeatureCache faceFeatureCache(FacenetFaceRecognitionProperties properties) {
+    	FacenetFaceRecognitionProperties.Cache cache = properties.getCache();
+    	return new FeatureCache(cache.getMaxEntries(), cache.getMaxSize().toBytes());
+    }
+    
+    @Bean
+    @ConditionalOnProperty(prefix = FacenetFaceRecognitionProperties.PREFIX + ".quality", value = "enabled", havingValue = "true")
+    public ImageQualityGate imageQualityGate(FacenetFaceRecognitionProperties properties) {
+    	return new ImageQualityGate(properties.getQuality());
+    }
+    
 	@Bean
-	public FacenetFaceRecognitionTemplate openCVFaceRecognitionTemplate(CascadeClassifier faceDetector,
+	public FacenetFaceRecognitionTemplate openCVFaceRecognitionTemplate(FaceDetector faceDetector,
+			ObjectProvider<FaceEmbeddingEngine> embeddingEngineProvider, ObjectProvider<FaceGallery> galleryProvider,
+			ObjectProvider<FeatureCache> featureCacheProvider, ObjectProvider<FaceRecognitionMetrics> metricsProvider,
+			ObjectProvider<FaceAligner> faceAlignerProvider, ObjectProvider<ImageQualityGate> qualityGateProvider,
 			FacenetFaceRecognitionProperties properties) {
-		return new FacenetFaceRecognitionTemplate(faceDetector, properties);
+		FacenetFaceRecognitionTemplate template = new FacenetFaceRecognitionTemplate(faceDetector, properties);
+		template.setEmbeddingEngine(embeddingEngineProvider.getIfAvailable());
+		template.setGallery(galleryProvider.getIfAvailable());
+		template.setFeatureCache(featureCacheProvider.getIfAvailable());
+		template.setFaceAligner(faceAlignerProvider.getIfAvailable());
+		template.setQualityGate(qualityGateProvider.getIfAvailable());
+		template.setMetrics(metricsProvider.getIfAvailable());
+		return template;
+	}
+	
+	@Bean
+	public FaceRecognitionWarmUp faceRecognitionWarmUp(FacenetFaceRecognitionTemplate template,
+			FacenetFaceRecognitionProperties properties) {
+		return new FaceRecognitionWarmUp(template, properties.getInitialization());
+	}
+	
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+	static class HealthConfiguration {
+		
+		@Bean
+		public FaceRecognitionHealthIndicator facenetHealthIndicator(FaceRecognitionWarmUp warmUp,
+				FaceDetector faceDetector) {
+			return new FaceRecognitionHealthIndicator(warmUp, faceDetector.getPool());
+		}
+		
+	}
+	
+	@Configuration
+	@ConditionalOnClass(name = "reactor.core.publisher.Mono")
+	static class ReactiveConfiguration {
+		
+		@Bean
+		public ReactiveFacenetFaceRecognitionTemplate reactiveFacenetFaceRecognitionTemplate(
+				FacenetFaceRecognitionTemplate template, FacenetFaceRecognitionProperties properties) {
+			FacenetFaceRecognitionProperties.Reactive reactive = properties.getReactive();
+			// 线程数与 native 对象池一致，多出的线程只会阻塞在对象池上
+			int threads = reactive.getThreads() > 0 ? reactive.getThreads() : properties.getPool().getMaxSize();
+			return new ReactiveFacenetFaceRecognitionTemplate(template, threads, reactive.getQueueCapacity());
+		}
+		
 	}
 	
 }
@@ -0,0 +1,57 @@
+package org.bytedeco.opencv.spring.boot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bytedeco.opencv.spring.boot.cache.FeatureCache;
+import org.bytedeco.opencv.spring.boot.detection.FaceAligner;
+import org.bytedeco.opencv.spring.boot.detection.FaceDetector;
+import org.bytedeco.opencv.spring.boot.dnn.FaceEmbeddingEngine;
+import org.bytedeco.opencv.spring.boot.metrics.FaceRecognitionMeterBinder;
+import org.bytedeco.opencv.spring.boot.metrics.FaceRecognitionMetrics;
+import org.bytedeco.opencv.spring.boot.metrics.MicrometerFaceRecognitionMetrics;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 存在 MeterRegistry（如引入 spring-boot-starter-actuator）时记录人脸识别各阶段的指标
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean(MeterRegistry.class)
+@ConditionalOnProperty(prefix = FacenetFaceRecognitionProperties.PREFIX, value = "enabled", havingValue = "true")
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
+public class FacenetFaceRecognitionMetricsAutoConfiguration {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public FaceRecognitionMetrics faceRecognitionMetrics(MeterRegistry registry) {
+		return new MicrometerFaceRecognitionMetrics(registry);
+	}
+	
+	@Bean
+	public FaceRecognitionMeterBinder faceRecognitionMeterBinder(FaceDetector faceDetector,
+			ObjectProvider<FaceAligner> faceAlignerProvider, ObjectProvider<FaceEmbeddingEngine> embeddingEngineProvider,
+			ObjectProvider<FeatureCache> featureCacheProvider) {
+		List<NativeObjectPool<?>> pools = new ArrayList<>();
+		pools.add(faceDetector.getPool());
+		faceAlignerProvider.ifAvailable(aligner -> {
+			if (aligner.getEyeDetectorPool() != null) {
+				pools.add(aligner.getEyeDetectorPool());
+			}
+		});
+		embeddingEngineProvider.ifAvailable(engine -> pools.add(engine.getNetPool()));
+		return new FaceRecognitionMeterBinder(pools, featureCacheProvider.getIfAvailable());
+	}
+	
+}
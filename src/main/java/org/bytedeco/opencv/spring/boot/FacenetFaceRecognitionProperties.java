@@ -15,7 +15,16 @@
  */
 package org.bytedeco.opencv.spring.boot;
 
+import java.time.Duration;
+
 import org.apache.commons.lang3.SystemUtils;
+import org.bytedeco.opencv.spring.boot.detection.DetectorType;
+import org.bytedeco.opencv.spring.boot.dnn.EmbeddingDistance;
+import org.bytedeco.opencv.spring.boot.gallery.GalleryMode;
+import org.bytedeco.opencv.spring.boot.pool.ExecutionMode;
+import org.bytedeco.opencv.spring.boot.pool.PoolExhaustedAction;
+import org.bytedeco.opencv.spring.boot.startup.InitializationMode;
+import org.springframework.util.unit.DataSize;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties(FacenetFaceRecognitionProperties.PREFIX)
@@ -31,6 +40,66 @@ public class FacenetFaceRecognitionProperties {
 	 * 人脸识别图片临时目录
 	 */
 	private String temp = SystemUtils.getUserDir().getAbsolutePath();
+	/**
+	 * 人脸库持久化存储目录
+	 */
+	private String storage = SystemUtils.getUserDir().getAbsolutePath() + "/facenet-gallery";
+	/**
+	 * native 库和模型的初始化时机：EAGER 启动时加载并预热，LAZY 首次使用时加载，BACKGROUND 启动后在后台预热
+	 */
+	private InitializationMode initialization = InitializationMode.EAGER;
+	/**
+	 * 人脸检测器（CascadeClassifier）对象池配置
+	 */
+	private Pool pool = new Pool();
+	/**
+	 * 人脸检测参数，默认与 detectMultiScale 的默认参数一致（原图检测）
+	 */
+	private Detection detection = new Detection();
+	/**
+	 * FaceNet 人脸特征提取模型配置，配置 model 后启用
+	 */
+	private Embedding embedding = new Embedding();
+	/**
+	 * 批量检测、比对配置
+	 */
+	private Batch batch = new Batch();
+	/**
+	 * 人脸库（1:N 检索）配置，需要同时配置特征模型
+	 */
+	private Gallery gallery = new Gallery();
+	/**
+	 * 按图片内容缓存人脸特征
+	 */
+	private Cache cache = new Cache();
+	/**
+	 * 响应式（Mono/Flux）接口配置
+	 */
+	private Reactive reactive = new Reactive();
+	/**
+	 * 视频流人脸跟踪配置
+	 */
+	private Video video = new Video();
+	/**
+	 * 人脸裁剪与对齐配置
+	 */
+	private Alignment alignment = new Alignment();
+	/**
+	 * 批量人脸注册流水线配置
+	 */
+	private Enrollment enrollment = new Enrollment();
+	/**
+	 * 单张图片检测请求的合并配置
+	 */
+	private Coalescing coalescing = new Coalescing();
+	/**
+	 * native 调用的执行线程配置
+	 */
+	private Execution execution = new Execution();
+	/**
+	 * 检测前的图片质量检查配置
+	 */
+	private Quality quality = new Quality();
 	
 	public boolean isEnabled() {
 		return enabled;
@@ -48,4 +117,1180 @@ public class FacenetFaceRecognitionProperties {
 		this.temp = temp;
 	}
 
+	public String getStorage() {
+		return storage;
+	}
+
+	public void setStorage(String storage) {
+		this.storage = storage;
+	}
+
+	public InitializationMode getInitialization() {
+		return initialization;
+	}
+
+	public void setInitialization(InitializationMode initialization) {
+		this.initialization = initialization;
+	}
+
+	public Pool getPool() {
+		return pool;
+	}
+
+	public void setPool(Pool pool) {
+		this.pool = pool;
+	}
+
+	public Detection getDetection() {
+		return detection;
+	}
+
+	public void setDetection(Detection detection) {
+		this.detection = detection;
+	}
+
+	public Embedding getEmbedding() {
+		return embedding;
+	}
+
+	public void setEmbedding(Embedding embedding) {
+		this.embedding = embedding;
+	}
+
+	public Batch getBatch() {
+		return batch;
+	}
+
+	public void setBatch(Batch batch) {
+		this.batch = batch;
+	}
+
+	public Gallery getGallery() {
+		return gallery;
+	}
+
+	public void setGallery(Gallery gallery) {
+		this.gallery = gallery;
+	}
+
+	public Cache getCache() {
+		return cache;
+	}
+
+	public void setCache(Cache cache) {
+		this.cache = cache;
+	}
+
+	public Reactive getReactive() {
+		return reactive;
+	}
+
+	public void setReactive(Reactive reactive) {
+		this.reactive = reactive;
+	}
+
+	public Video getVideo() {
+		return video;
+	}
+
+	public void setVideo(Video video) {
+		this.video = video;
+	}
+
+	public Alignment getAlignment() {
+		return alignment;
+	}
+
+	public void setAlignment(Alignment alignment) {
+		this.alignment = alignment;
+	}
+
+	public Enrollment getEnrollment() {
+		return enrollment;
+	}
+
+	public void setEnrollment(Enrollment enrollment) {
+		this.enrollment = enrollment;
+	}
+
+	public Coalescing getCoalescing() {
+		return coalescing;
+	}
+
+	public void setCoalescing(Coalescing coalescing) {
+		this.coalescing = coalescing;
+	}
+
+	public Execution getExecution() {
+		return execution;
+	}
+
+	public void setExecution(Execution execution) {
+		this.execution = execution;
+	}
+
+	public Quality getQuality() {
+		return quality;
+	}
+
+	public void setQuality(Quality quality) {
+		this.quality = quality;
+	}
+
+	public static class Pool {
+
+		/**
+		 * 池中最多创建的实例数，默认为 CPU 核数
+		 */
+		private int maxSize = Runtime.getRuntime().availableProcessors();
+		/**
+		 * 池耗尽时的等待策略：WAIT（一直等待）、TIMEOUT（等待 max-wait 后失败）、FAIL（立即失败）
+		 */
+		private PoolExhaustedAction exhaustedAction = PoolExhaustedAction.WAIT;
+		/**
+		 * exhausted-action 为 TIMEOUT 时的最长等待时间
+		 */
+		private Duration maxWait = Duration.ofSeconds(10);
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public PoolExhaustedAction getExhaustedAction() {
+			return exhaustedAction;
+		}
+
+		public void setExhaustedAction(PoolExhaustedAction exhaustedAction) {
+			this.exhaustedAction = exhaustedAction;
+		}
+
+		public Duration getMaxWait() {
+			return maxWait;
+		}
+
+		public void setMaxWait(Duration maxWait) {
+			this.maxWait = maxWait;
+		}
+
+	}
+
+	public static class Embedding {
+
+		/**
+		 * 模型文件路径（ONNX、TensorFlow pb 等 opencv_dnn 支持的格式）
+		 */
+		private String model;
+		/**
+		 * 模型配置文件路径，部分格式（如 TensorFlow pbtxt）需要
+		 */
+		private String config;
+		/**
+		 * 模型输入宽度
+		 */
+		private int inputWidth = 160;
+		/**
+		 * 模型输入高度
+		 */
+		private int inputHeight = 160;
+		/**
+		 * 像素缩放系数，(pixel - mean) * scale
+		 */
+		private double scale = 1 / 128.0;
+		/**
+		 * 像素均值
+		 */
+		private double mean = 127.5;
+		/**
+		 * 是否交换 R、B 通道（BGR 转 RGB）
+		 */
+		private boolean swapRb = true;
+		/**
+		 * 是否将特征归一化为单位向量
+		 */
+		private boolean normalize = true;
+		/**
+		 * 特征比对使用的距离：L2、COSINE
+		 */
+		private EmbeddingDistance distance = EmbeddingDistance.COSINE;
+
+		public String getModel() {
+			return model;
+		}
+
+		public void setModel(String model) {
+			this.model = model;
+		}
+
+		public String getConfig() {
+			return config;
+		}
+
+		public void setConfig(String config) {
+			this.config = config;
+		}
+
+		public int getInputWidth() {
+			return inputWidth;
+		}
+
+		public void setInputWidth(int inputWidth) {
+			this.inputWidth = inputWidth;
+		}
+
+		public int getInputHeight() {
+			return inputHeight;
+		}
+
+		public void setInputHeight(int inputHeight) {
+			this.inputHeight = inputHeight;
+		}
+
+		public double getScale() {
+			return scale;
+		}
+
+		public void setScale(double scale) {
+			this.scale = scale;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public void setMean(double mean) {
+			this.mean = mean;
+		}
+
+		public boolean isSwapRb() {
+			return swapRb;
+		}
+
+		public void setSwapRb(boolean swapRb) {
+			this.swapRb = swapRb;
+		}
+
+		public boolean isNormalize() {
+			return normalize;
+		}
+
+		public void setNormalize(boolean normalize) {
+			this.normalize = normalize;
+		}
+
+		public EmbeddingDistance getDistance() {
+			return distance;
+		}
+
+		public void setDistance(EmbeddingDistance distance) {
+			this.distance = distance;
+		}
+
+	}
+
+	public static class Batch {
+
+		/**
+		 * 特征提取时每次推理合并的人脸数
+		 */
+		private int size = 16;
+		/**
+		 * 批量解码、检测的并行线程数，默认为 CPU 核数
+		 */
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+
+		public int getSize() {
+			return size;
+		}
+
+		public void setSize(int size) {
+			this.size = size;
+		}
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		public void setParallelism(int parallelism) {
+			this.parallelism = parallelism;
+		}
+
+	}
+
+	public static class Gallery {
+
+		/**
+		 * 检索方式：EXACT（精确检索）、HNSW（近似检索）
+		 */
+		private GalleryMode mode = GalleryMode.EXACT;
+		/**
+		 * 初始容量（人脸数）
+		 */
+		private int initialCapacity = 1024;
+		/**
+		 * HNSW 每个节点的邻居数
+		 */
+		private int m = 16;
+		/**
+		 * HNSW 构建时的候选集大小
+		 */
+		private int efConstruction = 200;
+		/**
+		 * HNSW 检索时的候选集大小，越大召回率越高、延迟越大
+		 */
+		private int efSearch = 100;
+		/**
+		 * EXACT 模式下的分片数，大于 1 时各分片并行检索，注册、删除不阻塞检索
+		 */
+		private int shards = 1;
+		/**
+		 * 分片检索的线程数，0 使用 ForkJoinPool.commonPool()
+		 */
+		private int searchParallelism = 0;
+		/**
+		 * 是否将注册的人脸特征持久化到 storage 目录，重启后自动加载
+		 */
+		private boolean persistent = false;
+		/**
+		 * 持久化时人脸标识 UTF-8 编码后的最大字节数
+		 */
+		private int maxIdBytes = 64;
+		/**
+		 * 持久化时每次写入后是否 fsync
+		 */
+		private boolean sync = true;
+
+		public GalleryMode getMode() {
+			return mode;
+		}
+
+		public void setMode(GalleryMode mode) {
+			this.mode = mode;
+		}
+
+		public int getInitialCapacity() {
+			return initialCapacity;
+		}
+
+		public void setInitialCapacity(int initialCapacity) {
+			this.initialCapacity = initialCapacity;
+		}
+
+		public int getM() {
+			return m;
+		}
+
+		public void setM(int m) {
+			this.m = m;
+		}
+
+		public int getEfConstruction() {
+			return efConstruction;
+		}
+
+		public void setEfConstruction(int efConstruction) {
+			this.efConstruction = efConstruction;
+		}
+
+		public int getEfSearch() {
+			return efSearch;
+		}
+
+		public void setEfSearch(int efSearch) {
+			this.efSearch = efSearch;
+		}
+
+		public int getShards() {
+			return shards;
+		}
+
+		public void setShards(int shards) {
+			this.shards = shards;
+		}
+
+		public int getSearchParallelism() {
+			return searchParallelism;
+		}
+
+		public void setSearchParallelism(int searchParallelism) {
+			this.searchParallelism = searchParallelism;
+		}
+
+		public boolean isPersistent() {
+			return persistent;
+		}
+
+		public void setPersistent(boolean persistent) {
+			this.persistent = persistent;
+		}
+
+		public int getMaxIdBytes() {
+			return maxIdBytes;
+		}
+
+		public void setMaxIdBytes(int maxIdBytes) {
+			this.maxIdBytes = maxIdBytes;
+		}
+
+		public boolean isSync() {
+			return sync;
+		}
+
+		public void setSync(boolean sync) {
+			this.sync = sync;
+		}
+
+	}
+
+	public static class Cache {
+
+		/**
+		 * 是否启用特征缓存
+		 */
+		private boolean enabled = false;
+		/**
+		 * 最大缓存条目数
+		 */
+		private long maxEntries = 10000;
+		/**
+		 * 特征缓存最大占用内存
+		 */
+		private DataSize maxSize = DataSize.ofMegabytes(64);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getMaxEntries() {
+			return maxEntries;
+		}
+
+		public void setMaxEntries(long maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		public DataSize getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(DataSize maxSize) {
+			this.maxSize = maxSize;
+		}
+
+	}
+
+	public static class Reactive {
+
+		/**
+		 * 响应式接口的线程数上限，默认与检测器对象池大小（opencv.face.pool.max-size）一致
+		 */
+		private int threads = 0;
+		/**
+		 * 每个线程最多排队的任务数，排满后新请求立即以 RejectedExecutionException 失败
+		 */
+		private int queueCapacity = 256;
+
+		public int getThreads() {
+			return threads;
+		}
+
+		public void setThreads(int threads) {
+			this.threads = threads;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+	}
+
+	public static class Video {
+
+		/**
+		 * 每隔多少帧做一次完整的人脸检测，其余帧只做跟踪
+		 */
+		private int detectInterval = 5;
+		/**
+		 * 跟踪时在上一位置四周搜索的范围，相对人脸宽高的比例
+		 */
+		private double searchMargin = 0.5;
+		/**
+		 * 模板匹配相关系数低于该值时认为人脸丢失
+		 */
+		private double minTrackScore = 0.6;
+		/**
+		 * 检测结果与已有跟踪的 IoU 不低于该值时视为同一人脸
+		 */
+		private double iouThreshold = 0.3;
+
+		public int getDetectInterval() {
+			return detectInterval;
+		}
+
+		public void setDetectInterval(int detectInterval) {
+			this.detectInterval = detectInterval;
+		}
+
+		public double getSearchMargin() {
+			return searchMargin;
+		}
+
+		public void setSearchMargin(double searchMargin) {
+			this.searchMargin = searchMargin;
+		}
+
+		public double getMinTrackScore() {
+			return minTrackScore;
+		}
+
+		public void setMinTrackScore(double minTrackScore) {
+			this.minTrackScore = minTrackScore;
+		}
+
+		public double getIouThreshold() {
+			return iouThreshold;
+		}
+
+		public void setIouThreshold(double iouThreshold) {
+			this.iouThreshold = iouThreshold;
+		}
+
+	}
+
+	public static class Alignment {
+
+		/**
+		 * 提取特征、直方图比对前是否先裁剪并对齐人脸
+		 */
+		private boolean enabled = false;
+		/**
+		 * 是否按 ImageFactory.getBestRect 向外扩展人脸区域
+		 */
+		private boolean expand = true;
+		/**
+		 * 是否检测双眼并旋转使两眼水平（使用 haarcascade_eye.xml）
+		 */
+		private boolean eyes = true;
+		/**
+		 * 输出宽度，0 表示使用特征模型的输入宽度
+		 */
+		private int width = 0;
+		/**
+		 * 输出高度，0 表示使用特征模型的输入高度
+		 */
+		private int height = 0;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public boolean isExpand() {
+			return expand;
+		}
+
+		public void setExpand(boolean expand) {
+			this.expand = expand;
+		}
+
+		public boolean isEyes() {
+			return eyes;
+		}
+
+		public void setEyes(boolean eyes) {
+			this.eyes = eyes;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public void setWidth(int width) {
+			this.width = width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		public void setHeight(int height) {
+			this.height = height;
+		}
+
+	}
+
+	public static class Enrollment {
+
+		/**
+		 * 读取文件的线程数
+		 */
+		private int readThreads = 2;
+		/**
+		 * 解码图片的线程数，默认为 CPU 核数
+		 */
+		private int decodeThreads = Runtime.getRuntime().availableProcessors();
+		/**
+		 * 人脸检测的线程数，0 表示与检测器对象池的 maxSize 相同
+		 */
+		private int detectThreads = 0;
+		/**
+		 * 裁剪、对齐人脸的线程数
+		 */
+		private int cropThreads = 1;
+		/**
+		 * 特征提取的线程数，每个线程按 opencv.face.batch.size 合并推理
+		 */
+		private int embedThreads = 1;
+		/**
+		 * 相邻阶段之间队列的容量，队列满时上游阶段阻塞
+		 */
+		private int queueCapacity = 32;
+		/**
+		 * 是否记录已注册成功的 id，重新执行时跳过
+		 */
+		private boolean resume = true;
+		/**
+		 * 注册日志文件路径，默认为 storage 目录下的 enrollment.journal
+		 */
+		private String journal;
+
+		public int getReadThreads() {
+			return readThreads;
+		}
+
+		public void setReadThreads(int readThreads) {
+			this.readThreads = readThreads;
+		}
+
+		public int getDecodeThreads() {
+			return decodeThreads;
+		}
+
+		public void setDecodeThreads(int decodeThreads) {
+			this.decodeThreads = decodeThreads;
+		}
+
+		public int getDetectThreads() {
+			return detectThreads;
+		}
+
+		public void setDetectThreads(int detectThreads) {
+			this.detectThreads = detectThreads;
+		}
+
+		public int getCropThreads() {
+			return cropThreads;
+		}
+
+		public void setCropThreads(int cropThreads) {
+			this.cropThreads = cropThreads;
+		}
+
+		public int getEmbedThreads() {
+			return embedThreads;
+		}
+
+		public void setEmbedThreads(int embedThreads) {
+			this.embedThreads = embedThreads;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public boolean isResume() {
+			return resume;
+		}
+
+		public void setResume(boolean resume) {
+			this.resume = resume;
+		}
+
+		public String getJournal() {
+			return journal;
+		}
+
+		public void setJournal(String journal) {
+			this.journal = journal;
+		}
+
+	}
+
+	public static class Quality {
+
+		/**
+		 * 是否在检测、比对之前检查图片质量，未通过时直接返回拒绝原因
+		 */
+		private boolean enabled = false;
+		/**
+		 * 是否在解码前通过 ImageIO 读取文件头中的尺寸，过小的图片不再解码
+		 */
+		private boolean header = true;
+		/**
+		 * 最小宽度（像素）
+		 */
+		private int minWidth = 64;
+		/**
+		 * 最小高度（像素）
+		 */
+		private int minHeight = 64;
+		/**
+		 * 长边与短边之比的上限，0 表示不检查
+		 */
+		private double maxAspectRatio = 4.0;
+		/**
+		 * 计算亮度、对比度和清晰度的灰度缩略图长边像素数，0 表示使用原图
+		 */
+		private int thumbnailSize = 256;
+		/**
+		 * 缩略图拉普拉斯方差的下限，低于该值视为模糊，0 表示不检查
+		 */
+		private double minSharpness = 20.0;
+		/**
+		 * 平均灰度的下限
+		 */
+		private double minBrightness = 30.0;
+		/**
+		 * 平均灰度的上限
+		 */
+		private double maxBrightness = 225.0;
+		/**
+		 * 灰度标准差的下限
+		 */
+		private double minContrast = 10.0;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public boolean isHeader() {
+			return header;
+		}
+
+		public void setHeader(boolean header) {
+			this.header = header;
+		}
+
+		public int getMinWidth() {
+			return minWidth;
+		}
+
+		public void setMinWidth(int minWidth) {
+			this.minWidth = minWidth;
+		}
+
+		public int getMinHeight() {
+			return minHeight;
+		}
+
+		public void setMinHeight(int minHeight) {
+			this.minHeight = minHeight;
+		}
+
+		public double getMaxAspectRatio() {
+			return maxAspectRatio;
+		}
+
+		public void setMaxAspectRatio(double maxAspectRatio) {
+			this.maxAspectRatio = maxAspectRatio;
+		}
+
+		public int getThumbnailSize() {
+			return thumbnailSize;
+		}
+
+		public void setThumbnailSize(int thumbnailSize) {
+			this.thumbnailSize = thumbnailSize;
+		}
+
+		public double getMinSharpness() {
+			return minSharpness;
+		}
+
+		public void setMinSharpness(double minSharpness) {
+			this.minSharpness = minSharpness;
+		}
+
+		public double getMinBrightness() {
+			return minBrightness;
+		}
+
+		public void setMinBrightness(double minBrightness) {
+			this.minBrightness = minBrightness;
+		}
+
+		public double getMaxBrightness() {
+			return maxBrightness;
+		}
+
+		public void setMaxBrightness(double maxBrightness) {
+			this.maxBrightness = maxBrightness;
+		}
+
+		public double getMinContrast() {
+			return minContrast;
+		}
+
+		public void setMinContrast(double minContrast) {
+			this.minContrast = minContrast;
+		}
+
+	}
+
+	public static class Execution {
+
+		/**
+		 * CALLER 在调用方线程上执行 native 调用；OFFLOAD 交给专用的平台线程池执行，适用于虚拟线程调用方
+		 */
+		private ExecutionMode mode = ExecutionMode.CALLER;
+		/**
+		 * OFFLOAD 模式的平台线程数，0 表示与检测器对象池的 maxSize 相同
+		 */
+		private int threads = 0;
+
+		public ExecutionMode getMode() {
+			return mode;
+		}
+
+		public void setMode(ExecutionMode mode) {
+			this.mode = mode;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		public void setThreads(int threads) {
+			this.threads = threads;
+		}
+
+	}
+
+	public static class Coalescing {
+
+		/**
+		 * 是否将并发的单张图片检测请求（detect(byte[])、findFacesAsync）合并为批次，
+		 * 每批按 opencv.face.batch.parallelism 拆分后在批量线程池中并行执行
+		 */
+		private boolean enabled = false;
+		/**
+		 * 第一个请求到达后最多等待的时间，即合并带来的额外延迟上限
+		 */
+		private Duration window = Duration.ofMillis(2);
+		/**
+		 * 每批最多的请求数
+		 */
+		private int maxBatchSize = 32;
+		/**
+		 * 等待合并的请求上限，超出时直接拒绝
+		 */
+		private int queueCapacity = 1024;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getWindow() {
+			return window;
+		}
+
+		public void setWindow(Duration window) {
+			this.window = window;
+		}
+
+		public int getMaxBatchSize() {
+			return maxBatchSize;
+		}
+
+		public void setMaxBatchSize(int maxBatchSize) {
+			this.maxBatchSize = maxBatchSize;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+	}
+
+	public static class Detection {
+
+		/**
+		 * 检测器类型：HAAR、LBP 或 DNN
+		 */
+		private DetectorType detector = DetectorType.HAAR;
+		/**
+		 * 级联分类器 XML 位置（Spring 资源路径），为空时使用所选类型的默认 XML
+		 */
+		private String cascade;
+		/**
+		 * DNN 检测器配置，detector 为 DNN 时生效
+		 */
+		private Dnn dnn = new Dnn();
+		/**
+		 * 检测前将图片长边缩小到的像素数，如 960；0 表示使用原图检测
+		 */
+		private int workingSize = 0;
+		/**
+		 * 图像金字塔每层的缩放比例
+		 */
+		private double scaleFactor = 1.1;
+		/**
+		 * 候选框至少需要的相邻检测数，越大误检越少
+		 */
+		private int minNeighbors = 3;
+		/**
+		 * 最小人脸边长（原图像素），0 表示不限制
+		 */
+		private int minSize = 0;
+		/**
+		 * 最大人脸边长（原图像素），0 表示不限制
+		 */
+		private int maxSize = 0;
+		/**
+		 * 缩小检测后是否在原图人脸区域附近以原始分辨率再检测一次
+		 */
+		private boolean refine = false;
+		/**
+		 * 再次检测时人脸区域向四周扩展的比例
+		 */
+		private double refinePadding = 0.25;
+		/**
+		 * 最多返回的人脸数（按面积从大到小），0 表示全部返回
+		 */
+		private int maxFaces = 0;
+		/**
+		 * 配置 working-size 时，是否直接按 1/2、1/4、1/8 分辨率解码（JPEG 在 DCT 阶段缩小），
+		 * 长边不小于 working-size；开启 refine 时不生效
+		 */
+		private boolean reducedDecode = false;
+
+		public DetectorType getDetector() {
+			return detector;
+		}
+
+		public void setDetector(DetectorType detector) {
+			this.detector = detector;
+		}
+
+		public String getCascade() {
+			return cascade;
+		}
+
+		public void setCascade(String cascade) {
+			this.cascade = cascade;
+		}
+
+		public Dnn getDnn() {
+			return dnn;
+		}
+
+		public void setDnn(Dnn dnn) {
+			this.dnn = dnn;
+		}
+
+		public int getWorkingSize() {
+			return workingSize;
+		}
+
+		public void setWorkingSize(int workingSize) {
+			this.workingSize = workingSize;
+		}
+
+		public double getScaleFactor() {
+			return scaleFactor;
+		}
+
+		public void setScaleFactor(double scaleFactor) {
+			this.scaleFactor = scaleFactor;
+		}
+
+		public int getMinNeighbors() {
+			return minNeighbors;
+		}
+
+		public void setMinNeighbors(int minNeighbors) {
+			this.minNeighbors = minNeighbors;
+		}
+
+		public int getMinSize() {
+			return minSize;
+		}
+
+		public void setMinSize(int minSize) {
+			this.minSize = minSize;
+		}
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public void setMaxSize(int maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		public boolean isRefine() {
+			return refine;
+		}
+
+		public void setRefine(boolean refine) {
+			this.refine = refine;
+		}
+
+		public boolean isReducedDecode() {
+			return reducedDecode;
+		}
+
+		public void setReducedDecode(boolean reducedDecode) {
+			this.reducedDecode = reducedDecode;
+		}
+
+		public double getRefinePadding() {
+			return refinePadding;
+		}
+
+		public void setRefinePadding(double refinePadding) {
+			this.refinePadding = refinePadding;
+		}
+
+		public int getMaxFaces() {
+			return maxFaces;
+		}
+
+		public void setMaxFaces(int maxFaces) {
+			this.maxFaces = maxFaces;
+		}
+
+		public static class Dnn {
+
+			/**
+			 * 模型文件路径，如 res10_300x300_ssd_iter_140000.caffemodel；classpath: 开头时直接从内存读取
+			 */
+			private String model;
+			/**
+			 * 模型配置文件路径，如 deploy.prototxt
+			 */
+			private String config;
+			/**
+			 * 模型输入宽度
+			 */
+			private int inputWidth = 300;
+			/**
+			 * 模型输入高度
+			 */
+			private int inputHeight = 300;
+			/**
+			 * 像素值缩放系数
+			 */
+			private double scale = 1.0;
+			/**
+			 * 各通道减去的均值（BGR 顺序）
+			 */
+			private double[] mean = { 104.0, 177.0, 123.0 };
+			/**
+			 * 是否交换 R、B 通道
+			 */
+			private boolean swapRb = false;
+			/**
+			 * 置信度低于该值的检测结果被丢弃
+			 */
+			private double confidenceThreshold = 0.5;
+
+			public String getModel() {
+				return model;
+			}
+
+			public void setModel(String model) {
+				this.model = model;
+			}
+
+			public String getConfig() {
+				return config;
+			}
+
+			public void setConfig(String config) {
+				this.config = config;
+			}
+
+			public int getInputWidth() {
+				return inputWidth;
+			}
+
+			public void setInputWidth(int inputWidth) {
+				this.inputWidth = inputWidth;
+			}
+
+			public int getInputHeight() {
+				return inputHeight;
+			}
+
+			public void setInputHeight(int inputHeight) {
+				this.inputHeight = inputHeight;
+			}
+
+			public double getScale() {
+				return scale;
+			}
+
+			public void setScale(double scale) {
+				this.scale = scale;
+			}
+
+			public double[] getMean() {
+				return mean;
+			}
+
+			public void setMean(double[] mean) {
+				this.mean = mean;
+			}
+
+			public boolean isSwapRb() {
+				return swapRb;
+			}
+
+			public void setSwapRb(boolean swapRb) {
+				this.swapRb = swapRb;
+			}
+
+			public double getConfidenceThreshold() {
+				return confidenceThreshold;
+			}
+
+			public void setConfidenceThreshold(double confidenceThreshold) {
+				this.confidenceThreshold = confidenceThreshold;
+			}
+
+		}
+
+	}
+
 }
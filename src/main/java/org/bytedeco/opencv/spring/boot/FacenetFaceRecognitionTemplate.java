@@ -16,26 +16,74 @@
 package org.bytedeco.opencv.spring.boot;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.UUID;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.bytedeco.opencv.global.opencv_core;
 import org.bytedeco.opencv.global.opencv_imgproc;
 import org.bytedeco.opencv.helper.opencv_imgcodecs;
-import org.bytedeco.opencv.opencv_core.CvHistogram;
 import org.bytedeco.opencv.opencv_core.IplImage;
+import org.bytedeco.opencv.spring.boot.batch.BatchResult;
+import org.bytedeco.opencv.spring.boot.batch.BulkEnrollmentPipeline;
+import org.bytedeco.opencv.spring.boot.batch.EnrollmentItem;
+import org.bytedeco.opencv.spring.boot.batch.EnrollmentListener;
+import org.bytedeco.opencv.spring.boot.batch.EnrollmentProgress;
+import org.bytedeco.opencv.spring.boot.batch.RequestCoalescer;
+import org.bytedeco.opencv.spring.boot.cache.ContentKey;
+import org.bytedeco.opencv.spring.boot.cache.FeatureCache;
+import org.bytedeco.opencv.spring.boot.detection.AlignedFace;
+import org.bytedeco.opencv.spring.boot.detection.CascadeFaceDetector;
+import org.bytedeco.opencv.spring.boot.detection.DetectedFace;
+import org.bytedeco.opencv.spring.boot.detection.DetectionOptions;
+import org.bytedeco.opencv.spring.boot.detection.DetectionResult;
+import org.bytedeco.opencv.spring.boot.detection.FaceAligner;
+import org.bytedeco.opencv.spring.boot.detection.FaceDetector;
+import org.bytedeco.opencv.spring.boot.detection.HistogramFeature;
+import org.bytedeco.opencv.spring.boot.detection.MatchMethod;
+import org.bytedeco.opencv.spring.boot.detection.MatchResult;
+import org.bytedeco.opencv.spring.boot.dnn.FaceEmbeddingEngine;
+import org.bytedeco.opencv.spring.boot.gallery.FaceGallery;
+import org.bytedeco.opencv.spring.boot.gallery.SearchHit;
+import org.bytedeco.opencv.spring.boot.image.ImageDecoder;
+import org.bytedeco.opencv.spring.boot.image.ImageFactory;
+import org.bytedeco.opencv.spring.boot.image.ImageInfo;
+import org.bytedeco.opencv.spring.boot.image.MatScope;
+import org.bytedeco.opencv.spring.boot.image.ScratchMat;
+import org.bytedeco.opencv.spring.boot.metrics.FaceRecognitionMetrics;
+import org.bytedeco.opencv.spring.boot.metrics.Stage;
+import org.bytedeco.opencv.spring.boot.pool.ExecutionMode;
+import org.bytedeco.opencv.spring.boot.pool.NativeExecutor;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.bytedeco.opencv.spring.boot.quality.ImageQualityException;
+import org.bytedeco.opencv.spring.boot.quality.ImageQualityGate;
+import org.bytedeco.opencv.spring.boot.quality.QualityReport;
+import org.bytedeco.opencv.spring.boot.startup.NativeLibrary;
+import org.bytedeco.opencv.spring.boot.video.FaceTrackListener;
+import org.bytedeco.opencv.spring.boot.video.FaceTrackingPipeline;
+import org.opencv.core.Core;
 import org.opencv.core.Mat;
-import org.opencv.core.MatOfRect;
+import org.opencv.core.MatOfFloat;
+import org.opencv.core.MatOfInt;
 import org.opencv.core.Rect;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 import org.opencv.objdetect.CascadeClassifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import com.alibaba.fastjson.JSONObject;
 
@@ -43,160 +91,1367 @@ import com.alibaba.fastjson.JSONObject;
  * TODO
  * @author ： <a href="https://github.com/hiwepy">wandl</a>
  */
-public class FacenetFaceRecognitionTemplate {
+public class FacenetFaceRecognitionTemplate implements DisposableBean {
 
 	private static final Logger logger = LoggerFactory.getLogger(FacenetFaceRecognitionTemplate.class);
-	private CascadeClassifier faceDetector;
+	/**
+	 * 灰度直方图参数：20 个区间，统计 [0, 100) 范围内的像素
+	 */
+	private static final int HIST_BINS = 20;
+	private static final float[] HIST_RANGES = { 0, 100 };
+	/**
+	 * 直方图特征在特征缓存中的种子，与 FaceNet 特征区分
+	 */
+	private static final int HISTOGRAM_SEED = 0x48495354;
+	private FaceDetector faceDetector;
+	private DetectionOptions detectionOptions;
 	private FacenetFaceRecognitionProperties properties;
+	private FaceEmbeddingEngine embeddingEngine;
+	private FaceAligner faceAligner;
+	private ImageQualityGate qualityGate;
+	private FaceGallery gallery;
+	private FeatureCache featureCache;
+	private FaceRecognitionMetrics metrics = FaceRecognitionMetrics.NOOP;
+	private volatile ExecutorService batchExecutor;
+	private boolean sharedBatchExecutor;
+	private volatile RequestCoalescer<byte[], DetectionResult> detectCoalescer;
+	private volatile NativeExecutor nativeExecutor;
+	private boolean sharedNativeExecutor;
 	
+	/**
+	 * 使用单个检测器实例，所有检测请求在该实例上串行执行
+	 */
 	public FacenetFaceRecognitionTemplate(CascadeClassifier faceDetector,
 			FacenetFaceRecognitionProperties properties) {
+		this(NativeObjectPool.of("faceDetector", faceDetector), properties);
+	}
+	
+	public FacenetFaceRecognitionTemplate(NativeObjectPool<CascadeClassifier> faceDetectorPool,
+			FacenetFaceRecognitionProperties properties) {
+		this(new CascadeFaceDetector(faceDetectorPool), properties);
+	}
+	
+	/**
+	 * @param faceDetector 人脸检测器，见 {@link org.bytedeco.opencv.spring.boot.detection.DetectorType}
+	 */
+	public FacenetFaceRecognitionTemplate(FaceDetector faceDetector, FacenetFaceRecognitionProperties properties) {
 		this.faceDetector = faceDetector;
+		this.detectionOptions = DetectionOptions.of(properties.getDetection());
 		this.properties = properties;
 	}
 
 	public void smooth(String path) {
-        IplImage image = opencv_imgcodecs.cvLoadImage(path);
-        if (image != null) {
-        	opencv_imgproc.cvSmooth(image, image);
-        	opencv_imgcodecs.cvSaveImage(path, image);
-        	opencv_core.cvReleaseImage(image);
-        }
+		offload(() -> {
+	        IplImage image = opencv_imgcodecs.cvLoadImage(path);
+	        if (image != null) {
+	        	opencv_imgproc.cvSmooth(image, image);
+	        	opencv_imgcodecs.cvSaveImage(path, image);
+	        	opencv_core.cvReleaseImage(image);
+	        }
+	        return null;
+		});
     }
 	
 	public JSONObject detect(String imagePath) {
 		return detect(new File(imagePath));
 	}
 	
-	public JSONObject detect(byte[] imageBytes, String filename) throws Exception {
-		// 创建临时文件，因为boot打包后无法读取文件内的内容
-    	File tempDir = new File(getProperties().getTemp());
-    	if(!tempDir.exists()) {
-    		tempDir.setReadable(true);
-    		tempDir.setWritable(true);
-    		tempDir.mkdir();
-    	}
-    	
-    	File imageFile = new File(tempDir, UUID.randomUUID().toString() + "." + FilenameUtils.getExtension(filename));
-    	try (InputStream source = new ByteArrayInputStream(imageBytes);){
-    		FileUtils.copyInputStreamToFile(source, imageFile);
-    		return detect(imageFile);
+	/**
+	 * 人脸检测，图片数据直接在内存中解码
+	 * @param imageBytes 图片数据
+	 * @param filename 原始文件名（已不再需要，仅为兼容保留）
+	 * @return 检测结果
+	 */
+	public JSONObject detect(byte[] imageBytes, String filename) {
+		return detect(imageBytes);
+	}
+	
+	/**
+	 * 人脸检测；启用 opencv.face.coalescing 时与其他线程的并发请求合并为批次，见 {@link #findFacesAsync(byte[])}
+	 */
+	public JSONObject detect(byte[] imageBytes) {
+		if (imageBytes == null) {
+			return error("image data is null");
 		}
-    	
+		if (properties.getCoalescing().isEnabled()) {
+			return detectView(() -> await(getDetectCoalescer().submit(imageBytes)));
+		}
+		return detectView(() -> findFaces(imageBytes, detectionOptions));
+	}
+	
+	public JSONObject detect(ByteBuffer imageBuffer) {
+		if (imageBuffer == null) {
+			return error("image data is null");
+		}
+		return detectView(() -> decodeAndFindFaces(() -> decode(imageBuffer, Imgcodecs.IMREAD_COLOR), detectionOptions));
+	}
+	
+	public JSONObject detect(InputStream imageStream) throws IOException {
+		if (imageStream == null) {
+			return error("image data is null");
+		}
+		return detect(IOUtils.toByteArray(imageStream));
 	}
 	
 	public JSONObject detect(File imageFile) {
-		
-		JSONObject result = new JSONObject();
+		if (imageFile == null || !imageFile.exists()) {
+			return error("");
+        }
+		// 读取图片文件
+		return detectView(() -> findFaces(imageFile, detectionOptions));
+	}
+	
+	/**
+	 * 人脸检测，使用指定的检测参数
+	 * @param imageBytes 图片数据
+	 * @param options 检测参数，见 {@link #detectionOptions()}
+	 * @return 检测结果
+	 */
+	public JSONObject detect(byte[] imageBytes, DetectionOptions options) {
+		if (imageBytes == null) {
+			return error("image data is null");
+		}
+		return detectView(() -> findFaces(imageBytes, options));
+	}
+	
+	public JSONObject detect(Mat image) {
+		return detect(image, detectionOptions);
+	}
+	
+	/**
+	 * 人脸检测的 JSON 视图，见 {@link DetectionResult#toJSON()}
+	 * @return 检测结果；未检测到人脸或检测到多个人脸时返回 null，需要多人脸结果请使用 {@link #findFaces(Mat, DetectionOptions)}
+	 */
+	public JSONObject detect(Mat image, DetectionOptions options) {
+		if (image == null || image.empty()) {
+			metrics.error("detect");
+			return error("image decode failed");
+		}
+		return detectView(() -> findFaces(image, options));
+	}
+	
+	/**
+	 * 检测结果的 JSON 视图，异常转换为错误信息，未通过质量检查时附带 quality
+	 */
+	private JSONObject detectView(Supplier<DetectionResult> detector) {
 		
 		try {
 			
-			logger.info("人脸检测开始……");
-		    
-			if (imageFile == null || !imageFile.exists()) {
-				result.put("error_code", 500);
-				result.put("error_msg", "");
-				return result;
-	        }
-			
-			// 读取创建的图片tempFile
-	        Mat image = Imgcodecs.imread(imageFile.getPath());
 			// 进行人脸检测
-	        MatOfRect faceDetections = new MatOfRect();
-	        faceDetector.detectMultiScale(image, faceDetections);
-	        
-	        Rect[] rects = faceDetections.toArray();
-	        if (rects == null || rects.length == 0 || rects.length > 1) {
+			DetectionResult result = detector.get();
+	        if (logger.isDebugEnabled()) {
+	        	logger.debug("检测到人脸： {}", result.getFaceCount());
+	        }
+	        if (result.getFaceCount() != 1) {
 	            return null;
 	        }
+	        return result.toJSON();
 	        
-	        logger.info(String.format("检测到人脸： %s", rects.length));
-	        
+		} catch (ImageQualityException e) {
+			return qualityError(e);
+		} catch (IllegalArgumentException e) {
+			metrics.error("detect");
+			return error(e.getMessage());
 		} catch (Exception e) {
-			e.printStackTrace();
+			metrics.error("detect");
+			logger.error("人脸检测失败", e);
+			return error(e.getMessage());
+		}
+	}
+	
+	public DetectionResult findFaces(byte[] imageBytes) {
+		return findFaces(imageBytes, detectionOptions);
+	}
+	
+	/**
+	 * 检测图片中的所有人脸
+	 * @param imageBytes 图片数据
+	 * @param options 检测参数，见 {@link #detectionOptions()}
+	 * @return 检测结果，包含人脸位置、置信度和各阶段耗时
+	 * @throws IllegalArgumentException 图片无法解码
+	 */
+	public DetectionResult findFaces(byte[] imageBytes, DetectionOptions options) {
+		// 文件头只读取一次，同时用于质量检查和选择缩小倍数
+		ImageInfo header = isHeaderRequired(options) ? ImageFactory.getImageInfo(imageBytes) : null;
+		int factor = reductionFactor(header, options);
+		if (factor > 1) {
+			return restore(decodeAndFindFaces(() -> decode(imageBytes, header, reducedReadFlags(), factor),
+					reduce(options, factor), factor), header, factor);
+		}
+		return decodeAndFindFaces(() -> decode(imageBytes, header, Imgcodecs.IMREAD_COLOR, 1), options, 1);
+	}
+	
+	private DetectionResult findFaces(File imageFile, DetectionOptions options) {
+		ImageInfo header = isHeaderRequired(options) ? ImageFactory.getImageInfo(imageFile) : null;
+		int factor = reductionFactor(header, options);
+		if (factor > 1) {
+			return restore(decodeAndFindFaces(() -> decode(imageFile, header, reducedReadFlags(), factor),
+					reduce(options, factor), factor), header, factor);
+		}
+		return decodeAndFindFaces(() -> decode(imageFile, header, Imgcodecs.IMREAD_COLOR, 1), options, 1);
+	}
+	
+	private boolean isHeaderRequired(DetectionOptions options) {
+		return isHeaderChecked() || isReducedDecode(options);
+	}
+	
+	/**
+	 * 缩小解码只用于缩小检测，需要原图分辨率的 refine 不使用
+	 */
+	private static boolean isReducedDecode(DetectionOptions options) {
+		return options.isReducedDecode() && options.getWorkingSize() > 0 && !options.isRefine();
+	}
+	
+	/**
+	 * 解码时的缩小倍数，缩小后长边不小于 working-size；读取不到文件头时为 1。
+	 * 只取决于长边，与解码时是否按 EXIF 方向旋转无关
+	 */
+	private static int reductionFactor(ImageInfo header, DetectionOptions options) {
+		return header == null ? 1 : ImageFactory.subsampling(header.getWidth(), header.getHeight(), options.getWorkingSize());
+	}
+	
+	/**
+	 * 级联分类器只使用灰度图，缩小解码时直接解码为灰度图
+	 */
+	private int reducedReadFlags() {
+		return faceDetector instanceof CascadeFaceDetector ? Imgcodecs.IMREAD_GRAYSCALE : Imgcodecs.IMREAD_COLOR;
+	}
+	
+	/**
+	 * 人脸尺寸限制按缩小倍数换算到缩小图
+	 */
+	private static DetectionOptions reduce(DetectionOptions options, int factor) {
+		return options.copy()
+				.setMinSize(options.getMinSize() > 0 ? Math.max(1, options.getMinSize() / factor) : 0)
+				.setMaxSize(options.getMaxSize() > 0 ? Math.max(1, options.getMaxSize() / factor) : 0);
+	}
+	
+	/**
+	 * 将缩小图上的检测结果映射回原图坐标
+	 * <p>imdecode 按 EXIF 方向旋转解码结果，文件头中的宽高是旋转前的，缩小图与之不符时按旋转 90° 处理交换宽高</p>
+	 */
+	private static DetectionResult restore(DetectionResult result, ImageInfo header, int factor) {
+		int width = header.getWidth();
+		int height = header.getHeight();
+		if (!isReducedSize(result.getImageWidth(), width, factor)
+				|| !isReducedSize(result.getImageHeight(), height, factor)) {
+			width = header.getHeight();
+			height = header.getWidth();
+		}
+		List<DetectedFace> faces = new ArrayList<>(result.getFaceCount());
+		for (DetectedFace face : result.getFaces()) {
+			faces.add(face.scale(factor));
+		}
+		return new DetectionResult(width, height, faces, result.getDecodeNanos(), result.getDetectNanos());
+	}
+	
+	/**
+	 * JPEG 缩小解码向上取整，其他格式解码后缩放时向下取整
+	 */
+	private static boolean isReducedSize(int reduced, int original, int factor) {
+		return reduced == original / factor || reduced == (original + factor - 1) / factor;
+	}
+	
+	private DetectionResult decodeAndFindFaces(Supplier<Mat> decoder, DetectionOptions options) {
+		return decodeAndFindFaces(decoder, options, 1);
+	}
+	
+	/**
+	 * @param factor 解码的缩小倍数，质量检查按原图尺寸检查
+	 */
+	private DetectionResult decodeAndFindFaces(Supplier<Mat> decoder, DetectionOptions options, int factor) {
+		long start = System.nanoTime();
+		try (MatScope scope = new MatScope()) {
+			Mat image = scope.track(decoder.get());
+			long decodeNanos = System.nanoTime() - start;
+			if (image.empty()) {
+				throw new IllegalArgumentException("image decode failed");
+			}
+			return findFaces(image, options, decodeNanos, factor);
+		}
+	}
+	
+	/**
+	 * 异步检测图片中的所有人脸：启用 opencv.face.coalescing 时与其他并发请求合并为一批，
+	 * 按 opencv.face.batch.parallelism 拆分后在批量线程池中并行执行，否则每张图片单独提交到批量线程池
+	 * @param imageBytes 图片数据
+	 * @return 检测结果
+	 */
+	public CompletableFuture<DetectionResult> findFacesAsync(byte[] imageBytes) {
+		if (properties.getCoalescing().isEnabled()) {
+			return getDetectCoalescer().submit(imageBytes);
+		}
+		return CompletableFuture.supplyAsync(() -> findFaces(imageBytes, detectionOptions), getBatchExecutor());
+	}
+	
+	private RequestCoalescer<byte[], DetectionResult> getDetectCoalescer() {
+		RequestCoalescer<byte[], DetectionResult> coalescer = detectCoalescer;
+		if (coalescer == null) {
+			synchronized (this) {
+				coalescer = detectCoalescer;
+				if (coalescer == null) {
+					FacenetFaceRecognitionProperties.Coalescing coalescing = properties.getCoalescing();
+					coalescer = new RequestCoalescer<>("detect-coalescer", this::findFacesCoalesced, getBatchExecutor(),
+							properties.getBatch().getParallelism(), coalescing.getWindow(), coalescing.getMaxBatchSize(),
+							coalescing.getQueueCapacity());
+					detectCoalescer = coalescer;
+				}
+			}
+		}
+		return coalescer;
+	}
+	
+	/**
+	 * 合并后拆分出的一份检测：在批量线程池的一个线程上依次执行，复用该线程的临时缓冲区，
+	 * 不等待线程池中的其他任务；同一批的其他份在其他线程上并行
+	 */
+	private List<BatchResult<DetectionResult>> findFacesCoalesced(List<byte[]> images) {
+		List<BatchResult<DetectionResult>> results = new ArrayList<>(images.size());
+		for (int i = 0; i < images.size(); i++) {
+			try {
+				results.add(BatchResult.success(i, findFaces(images.get(i), detectionOptions)));
+			} catch (RuntimeException e) {
+				results.add(BatchResult.failure(i, e));
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 等待合并执行的结果，异常原样抛出
+	 */
+	private static <T> T await(CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+	
+	public DetectionResult findFaces(Mat image) {
+		return findFaces(image, detectionOptions);
+	}
+	
+	/**
+	 * 检测图像中的所有人脸
+	 * @param image 图像
+	 * @param options 检测参数，见 {@link #detectionOptions()}
+	 * @return 检测结果
+	 */
+	public DetectionResult findFaces(Mat image, DetectionOptions options) {
+		return findFaces(image, options, 0, 1);
+	}
+	
+	private DetectionResult findFaces(Mat image, DetectionOptions options, long decodeNanos, int factor) {
+		requireQuality(image, factor);
+		long start = metrics.start();
+		long detectStart = System.nanoTime();
+		List<DetectedFace> faces = offload(() -> faceDetector.detectFaces(image, options));
+		long detectNanos = System.nanoTime() - detectStart;
+		metrics.stop(Stage.DETECT, start);
+		metrics.faces(faces.size());
+		return new DetectionResult(image.cols(), image.rows(), faces, decodeNanos, detectNanos);
+	}
+	
+	/**
+	 * 检测图像中的所有人脸
+	 * @param image 图像
+	 * @return 人脸区域
+	 */
+	public Rect[] detectFaces(Mat image) {
+		return detectFaces(image, detectionOptions);
+	}
+	
+	/**
+	 * 使用指定的检测参数检测图像中的所有人脸
+	 * @param image 图像
+	 * @param options 检测参数，见 {@link #detectionOptions()}
+	 * @return 原图坐标下的人脸区域
+	 */
+	public Rect[] detectFaces(Mat image, DetectionOptions options) {
+		long start = metrics.start();
+		Rect[] rects = offload(() -> faceDetector.detect(image, options));
+		metrics.stop(Stage.DETECT, start);
+		metrics.faces(rects.length);
+		return rects;
+	}
+	
+	/**
+	 * @return 默认检测参数（opencv.face.detection）的副本，可修改后用于单次检测
+	 */
+	public DetectionOptions detectionOptions() {
+		return detectionOptions.copy();
+	}
+	
+	/**
+	 * 创建一路视频流的人脸跟踪流水线，参数见 opencv.face.video
+	 * @param listener 跟踪事件监听
+	 * @return 流水线，使用完毕后需要 close
+	 */
+	public FaceTrackingPipeline newTrackingPipeline(FaceTrackListener listener) {
+		NativeLibrary.load();
+		return new FaceTrackingPipeline(this, properties.getVideo(), listener);
+	}
+	
+	/**
+	 * 提取图片中最大人脸的特征；启用特征缓存时，相同内容的图片直接返回缓存结果
+	 * <p>只缓存解码成功并完成检测的结果（含未检测到人脸）；无法解码时抛出异常，不写入缓存</p>
+	 * @throws IllegalArgumentException 图片无法解码
+	 */
+	public float[] embed(byte[] imageBytes) {
+		if (featureCache != null) {
+			return featureCache.get(ContentKey.of(imageBytes), key -> decodeAndEmbed(imageBytes));
+		}
+		return decodeAndEmbed(imageBytes);
+	}
+	
+	private float[] decodeAndEmbed(byte[] imageBytes) {
+		try (MatScope scope = new MatScope()) {
+			return embed(scope.track(decode(imageBytes, Imgcodecs.IMREAD_COLOR)));
+		}
+	}
+	
+	public float[] embed(File imageFile) {
+		try (MatScope scope = new MatScope()) {
+			return embed(scope.track(decode(imageFile, Imgcodecs.IMREAD_COLOR)));
+		}
+	}
+	
+	/**
+	 * 提取图像中最大人脸的特征，需要配置 opencv.face.embedding.model
+	 * @param image 图像（BGR）
+	 * @return 特征向量，未检测到人脸时返回 null
+	 * @throws IllegalArgumentException 图像为空（无法解码）
+	 */
+	public float[] embed(Mat image) {
+		if (embeddingEngine == null) {
+			throw new IllegalStateException("Face embedding model is not configured, see opencv.face.embedding.model");
+		}
+		if (image == null || image.empty()) {
+			throw new IllegalArgumentException("image decode failed");
+		}
+		DetectedFace face = findFaces(image).getLargestFace();
+		return face == null ? null : embed(image, face);
+	}
+	
+	/**
+	 * 提取已检测到的人脸的特征，不再重复检测
+	 * @param image 检测时使用的图像（BGR）
+	 * @param face {@link #findFaces(Mat)} 返回的人脸
+	 * @return 特征向量
+	 */
+	public float[] embed(Mat image, DetectedFace face) {
+		if (embeddingEngine == null) {
+			throw new IllegalStateException("Face embedding model is not configured, see opencv.face.embedding.model");
+		}
+		return offload(() -> {
+			if (faceAligner != null) {
+				try (AlignedFace aligned = faceAligner.align(image, face)) {
+					return extract(aligned.getImage());
+				}
+			}
+			Mat region = image.submat(face.toCvRect());
+			try {
+				return extract(region);
+			} finally {
+				region.release();
+			}
+		});
+	}
+	
+	private float[] extract(Mat faceImage) {
+		long start = metrics.start();
+		try {
+			return offload(() -> embeddingEngine.embed(faceImage));
+		} finally {
+			metrics.stop(Stage.EMBED, start);
+		}
+	}
+	
+	/**
+	 * 裁剪并对齐已检测到的人脸，需要配置 opencv.face.alignment.enabled
+	 * @param image 检测时使用的图像
+	 * @param face {@link #findFaces(Mat)} 返回的人脸
+	 * @return 对齐后的人脸，由调用方 close
+	 */
+	public AlignedFace alignFace(Mat image, DetectedFace face) {
+		if (faceAligner == null) {
+			throw new IllegalStateException("Face alignment is not enabled, see opencv.face.alignment.enabled");
+		}
+		return offload(() -> faceAligner.align(image, face));
+	}
+	
+	/**
+	 * 裁剪图像中面积最大的人脸
+	 * @param image 图像
+	 * @return 人脸区域的子矩阵（与原图共享数据），启用对齐时为对齐后的人脸；未检测到人脸时返回 null
+	 * @throws IllegalArgumentException 图像为空（无法解码）
+	 */
+	protected Mat cropLargestFace(Mat image) {
+		if (image == null || image.empty()) {
+			throw new IllegalArgumentException("image decode failed");
+		}
+		DetectedFace largest = findFaces(image).getLargestFace();
+		if (largest == null) {
+			return null;
+		}
+		return faceAligner != null ? offload(() -> faceAligner.align(image, largest)).getImage()
+				: image.submat(largest.toCvRect());
+	}
+	
+	/**
+	 * 批量人脸检测，在批量线程池中并行解码、检测
+	 * @param images 图片数据
+	 * @return 与输入顺序一致的检测结果，单张图片的异常不影响其他图片
+	 */
+	public List<BatchResult<JSONObject>> detectBatch(List<byte[]> images) {
+		List<BatchResult<DetectionResult>> results = findFacesBatch(images);
+		List<BatchResult<JSONObject>> views = new ArrayList<>(results.size());
+		for (BatchResult<DetectionResult> result : results) {
+			if (!result.isSuccess()) {
+				views.add(BatchResult.failure(result.getIndex(), result.getError()));
+			} else {
+				DetectionResult detection = result.getResult();
+				views.add(BatchResult.success(result.getIndex(), detection.getFaceCount() == 1 ? detection.toJSON() : null));
+			}
+		}
+		return views;
+	}
+	
+	/**
+	 * 批量检测图片中的所有人脸，在批量线程池中并行解码、检测
+	 * @param images 图片数据
+	 * @return 与输入顺序一致的检测结果，单张图片的异常不影响其他图片
+	 */
+	public List<BatchResult<DetectionResult>> findFacesBatch(List<byte[]> images) {
+		List<CompletableFuture<DetectionResult>> futures = new ArrayList<>(images.size());
+		for (byte[] imageBytes : images) {
+			futures.add(CompletableFuture.supplyAsync(() -> findFaces(imageBytes), getBatchExecutor()));
+		}
+		return join(futures);
+	}
+	
+	/**
+	 * 批量提取人脸特征：并行解码、检测、裁剪后，按 opencv.face.batch.size 合并推理
+	 * @param images 图片数据
+	 * @return 与输入顺序一致的特征向量
+	 */
+	public List<BatchResult<float[]>> embedBatch(List<byte[]> images) {
+		if (embeddingEngine == null) {
+			throw new IllegalStateException("Face embedding model is not configured, see opencv.face.embedding.model");
+		}
+		List<BatchResult<float[]>> results = new ArrayList<>(Collections.nCopies(images.size(), null));
+		List<ContentKey> keys = new ArrayList<>(Collections.nCopies(images.size(), null));
+		List<CompletableFuture<Mat>> crops = new ArrayList<>(Collections.nCopies(images.size(), null));
+		for (int i = 0; i < images.size(); i++) {
+			byte[] imageBytes = images.get(i);
+			if (featureCache != null) {
+				ContentKey key = ContentKey.of(imageBytes);
+				float[] cached = featureCache.getIfPresent(key);
+				if (cached != null) {
+					results.set(i, cached.length == 0 ? BatchResult.failure(i, "no face detected") : BatchResult.success(i, cached));
+					continue;
+				}
+				keys.set(i, key);
+			}
+			crops.set(i, CompletableFuture.supplyAsync(() -> {
+				// 裁剪结果通过引用计数持有原图数据，原图的引用可以立即释放
+				try (MatScope scope = new MatScope()) {
+					return cropLargestFace(scope.track(decode(imageBytes, Imgcodecs.IMREAD_COLOR)));
+				}
+			}, getBatchExecutor()));
+		}
+		List<Mat> faces = new ArrayList<>();
+		List<Integer> indexes = new ArrayList<>();
+		for (int i = 0; i < crops.size(); i++) {
+			if (crops.get(i) == null) {
+				continue;
+			}
+			try {
+				// 解码失败在 join 时抛出，不写入缓存；返回 null 说明图片已解码并完成检测，只是没有人脸
+				Mat face = crops.get(i).join();
+				if (face == null) {
+					results.set(i, BatchResult.failure(i, "no face detected"));
+					if (keys.get(i) != null) {
+						featureCache.put(keys.get(i), null);
+					}
+				} else {
+					faces.add(face);
+					indexes.add(i);
+				}
+			} catch (CompletionException e) {
+				results.set(i, BatchResult.failure(i, e.getCause()));
+			}
+		}
+		int batchSize = Math.max(1, getProperties().getBatch().getSize());
+		for (int from = 0; from < faces.size(); from += batchSize) {
+			int to = Math.min(from + batchSize, faces.size());
+			List<Mat> chunk = faces.subList(from, to);
+			long start = metrics.start();
+			try {
+				List<float[]> embeddings = offload(() -> embeddingEngine.embed(chunk));
+				for (int i = from; i < to; i++) {
+					int index = indexes.get(i);
+					float[] embedding = embeddings.get(i - from);
+					results.set(index, BatchResult.success(index, embedding));
+					if (keys.get(index) != null) {
+						featureCache.put(keys.get(index), embedding);
+					}
+				}
+			} catch (RuntimeException e) {
+				for (int i = from; i < to; i++) {
+					results.set(indexes.get(i), BatchResult.failure(indexes.get(i), e));
+				}
+			} finally {
+				metrics.stop(Stage.EMBED, start);
+				for (Mat face : chunk) {
+					face.release();
+				}
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 批量人脸比对，images1 与 images2 中相同位置的图片两两比对
+	 * @param images1 图片数据
+	 * @param images2 图片数据
+	 * @return 与输入顺序一致的比对结果
+	 */
+	public List<BatchResult<JSONObject>> matchBatch(List<byte[]> images1, List<byte[]> images2) {
+		List<BatchResult<MatchResult>> results = matchFacesBatch(images1, images2);
+		List<BatchResult<JSONObject>> views = new ArrayList<>(results.size());
+		for (BatchResult<MatchResult> result : results) {
+			views.add(result.isSuccess() ? BatchResult.success(result.getIndex(), result.getResult().toJSON())
+					: BatchResult.failure(result.getIndex(), result.getError()));
+		}
+		return views;
+	}
+	
+	/**
+	 * 批量人脸比对，images1 与 images2 中相同位置的图片两两比对
+	 * @param images1 图片数据
+	 * @param images2 图片数据
+	 * @return 与输入顺序一致的比对结果，未检测到人脸的记录为失败
+	 */
+	public List<BatchResult<MatchResult>> matchFacesBatch(List<byte[]> images1, List<byte[]> images2) {
+		if (images1.size() != images2.size()) {
+			throw new IllegalArgumentException("images1 and images2 must have the same size");
+		}
+		int count = images1.size();
+		if (embeddingEngine == null) {
+			List<CompletableFuture<MatchResult>> futures = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				byte[] imageBytes1 = images1.get(i);
+				byte[] imageBytes2 = images2.get(i);
+				futures.add(CompletableFuture.supplyAsync(() -> matchFaces(imageBytes1, imageBytes2), getBatchExecutor()));
+			}
+			List<BatchResult<MatchResult>> results = join(futures);
+			for (int i = 0; i < results.size(); i++) {
+				if (results.get(i).isSuccess() && results.get(i).getResult() == null) {
+					results.set(i, BatchResult.failure(i, "no face detected"));
+				}
+			}
+			return results;
+		}
+		// 两组图片合并为一个批次提取特征，再逐对比较
+		List<byte[]> images = new ArrayList<>(count * 2);
+		images.addAll(images1);
+		images.addAll(images2);
+		List<BatchResult<float[]>> embeddings = embedBatch(images);
+		List<BatchResult<MatchResult>> results = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			BatchResult<float[]> embedding1 = embeddings.get(i);
+			BatchResult<float[]> embedding2 = embeddings.get(count + i);
+			if (!embedding1.isSuccess()) {
+				results.add(BatchResult.failure(i, embedding1.getError()));
+			} else if (!embedding2.isSuccess()) {
+				results.add(BatchResult.failure(i, embedding2.getError()));
+			} else {
+				results.add(BatchResult.success(i, matchFaces(embedding1.getResult(), embedding2.getResult())));
+			}
+		}
+		return results;
+	}
+	
+	private static <T> List<BatchResult<T>> join(List<CompletableFuture<T>> futures) {
+		List<BatchResult<T>> results = new ArrayList<>(futures.size());
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				results.add(BatchResult.success(i, futures.get(i).join()));
+			} catch (CompletionException e) {
+				results.add(BatchResult.failure(i, e.getCause()));
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 执行 native 调用：opencv.face.execution.mode 为 OFFLOAD 时交给 native 线程池并同步等待，否则直接执行
+	 */
+	protected <T> T offload(Supplier<T> task) {
+		if (properties.getExecution().getMode() != ExecutionMode.OFFLOAD) {
+			return task.get();
+		}
+		return getNativeExecutor().call(task);
+	}
+	
+	protected NativeExecutor getNativeExecutor() {
+		NativeExecutor executor = nativeExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				executor = nativeExecutor;
+				if (executor == null) {
+					int threads = properties.getExecution().getThreads();
+					executor = new NativeExecutor(threads > 0 ? threads : properties.getPool().getMaxSize());
+					nativeExecutor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+	
+	/**
+	 * 指定执行 native 调用的线程池，未指定时按 opencv.face.execution.threads 创建
+	 */
+	public void setNativeExecutor(NativeExecutor nativeExecutor) {
+		this.nativeExecutor = nativeExecutor;
+		this.sharedNativeExecutor = true;
+	}
+	
+	protected ExecutorService getBatchExecutor() {
+		ExecutorService executor = batchExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				executor = batchExecutor;
+				if (executor == null) {
+					CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("facenet-batch-");
+					threadFactory.setDaemon(true);
+					executor = Executors.newFixedThreadPool(getProperties().getBatch().getParallelism(),
+							ScratchMat.releasing(threadFactory));
+					batchExecutor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+	
+	/**
+	 * 指定批量处理使用的线程池，未指定时按 opencv.face.batch.parallelism 创建
+	 */
+	public void setBatchExecutor(ExecutorService batchExecutor) {
+		this.batchExecutor = batchExecutor;
+		this.sharedBatchExecutor = true;
+	}
+	
+	@Override
+	public void destroy() {
+		ExecutorService executor = batchExecutor;
+		// 外部指定的线程池由调用方负责关闭
+		if (executor != null && !sharedBatchExecutor) {
+			executor.shutdown();
+		}
+		RequestCoalescer<byte[], DetectionResult> coalescer = detectCoalescer;
+		if (coalescer != null) {
+			coalescer.close();
+		}
+		NativeExecutor offloadExecutor = nativeExecutor;
+		if (offloadExecutor != null && !sharedNativeExecutor) {
+			offloadExecutor.shutdown();
 		}
-		return result;
 	}
 	
 	public JSONObject match(String imagePath1, String imagePath2) {
 		return match(new File(imagePath1), new File(imagePath2));
 	}
 	
-	public JSONObject match(byte[] imageBytes1, byte[] imageBytes2, String filename) throws Exception {
-		// 创建临时文件，因为boot打包后无法读取文件内的内容
-    	File tempDir = new File(getProperties().getTemp());
-    	if(!tempDir.exists()) {
-    		tempDir.setReadable(true);
-    		tempDir.setWritable(true);
-    		tempDir.mkdir();
-    	}
-    	
-    	File imageFile1 = new File(tempDir, UUID.randomUUID().toString() + "." + FilenameUtils.getExtension(filename));
-    	File imageFile2 = new File(tempDir, UUID.randomUUID().toString() + "." + FilenameUtils.getExtension(filename));
-    	try (InputStream source1 = new ByteArrayInputStream(imageBytes1);
-    		 InputStream source2 = new ByteArrayInputStream(imageBytes2);){
-    		FileUtils.copyInputStreamToFile(source1, imageFile1);
-    		FileUtils.copyInputStreamToFile(source2, imageFile2);
-    		return match(imageFile1, imageFile2);
+	/**
+	 * 人脸比对，图片数据直接在内存中解码
+	 * @param imageBytes1 图片1数据
+	 * @param imageBytes2 图片2数据
+	 * @param filename 原始文件名（已不再需要，仅为兼容保留）
+	 * @return 比对结果
+	 */
+	public JSONObject match(byte[] imageBytes1, byte[] imageBytes2, String filename) {
+		return match(imageBytes1, imageBytes2);
+	}
+	
+	public JSONObject match(byte[] imageBytes1, byte[] imageBytes2) {
+		if (imageBytes1 == null || imageBytes2 == null) {
+			return error("image data is null");
 		}
-    	
+		return matchView(() -> matchFaces(imageBytes1, imageBytes2));
+	}
+	
+	/**
+	 * 人脸比对；配置了特征模型时，启用特征缓存后相同内容的图片不会重复提取特征
+	 * @param imageBytes1 图片1数据
+	 * @param imageBytes2 图片2数据
+	 * @return 比对结果，使用特征模型且任一图片未检测到人脸时返回 null
+	 * @throws IllegalArgumentException 图片无法解码
+	 */
+	public MatchResult matchFaces(byte[] imageBytes1, byte[] imageBytes2) {
+		if (embeddingEngine != null) {
+			long start = System.nanoTime();
+			float[] embedding1 = embed(imageBytes1);
+			float[] embedding2 = embed(imageBytes2);
+			long featureNanos = System.nanoTime() - start;
+			if (embedding1 == null || embedding2 == null) {
+				return null;
+			}
+			return compare(embedding1, embedding2, 0, featureNanos);
+		}
+		long start = System.nanoTime();
+		try (MatScope scope = new MatScope()) {
+			Mat image1 = scope.track(decode(imageBytes1, matchReadFlags()));
+			Mat image2 = scope.track(decode(imageBytes2, matchReadFlags()));
+			return matchFaces(image1, image2, System.nanoTime() - start);
+		}
+	}
+	
+	public JSONObject match(ByteBuffer imageBuffer1, ByteBuffer imageBuffer2) {
+		if (imageBuffer1 == null || imageBuffer2 == null) {
+			return error("image data is null");
+		}
+		return matchView(() -> {
+			try (MatScope scope = new MatScope()) {
+				return matchFaces(scope.track(decode(imageBuffer1, matchReadFlags())),
+						scope.track(decode(imageBuffer2, matchReadFlags())));
+			}
+		});
+	}
+	
+	public JSONObject match(InputStream imageStream1, InputStream imageStream2) throws IOException {
+		if (imageStream1 == null || imageStream2 == null) {
+			return error("image data is null");
+		}
+		return match(IOUtils.toByteArray(imageStream1), IOUtils.toByteArray(imageStream2));
 	}
 	
 	public JSONObject match(File imageFile1, File imageFile2) {
 		
-		JSONObject result = new JSONObject();
+		if (imageFile1 == null || !imageFile1.exists()) {
+			return error("");
+        }
+		
+		if (imageFile2 == null || !imageFile2.exists()) {
+			return error("");
+        }
 		
+		return matchView(() -> {
+			try (MatScope scope = new MatScope()) {
+				return matchFaces(scope.track(decode(imageFile1, matchReadFlags())),
+						scope.track(decode(imageFile2, matchReadFlags())));
+			}
+		});
+	}
+	
+	/**
+	 * 人脸比对的 JSON 视图，见 {@link #matchFaces(Mat, Mat)}
+	 * @return 比对结果，失败时为 error_code、error_msg
+	 */
+	public JSONObject match(Mat image1, Mat image2) {
+		return matchView(() -> matchFaces(image1, image2));
+	}
+	
+	/**
+	 * 人脸比对：配置了特征模型时比对两张图中最大人脸的 FaceNet 特征，否则计算两张灰度图的直方图相关性
+	 * （启用对齐时只统计对齐后的最大人脸）
+	 * @param image1 图1，使用特征模型时为 BGR 图，否则为灰度图
+	 * @param image2 图2，使用特征模型时为 BGR 图，否则为灰度图
+	 * @return 比对结果，使用特征模型或启用对齐且任一图片未检测到人脸时返回 null
+	 * @throws IllegalArgumentException 图像为空
+	 */
+	public MatchResult matchFaces(Mat image1, Mat image2) {
+		return matchFaces(image1, image2, 0);
+	}
+	
+	private MatchResult matchFaces(Mat image1, Mat image2, long decodeNanos) {
+		if (image1 == null || image1.empty() || image2 == null || image2.empty()) {
+			throw new IllegalArgumentException("image decode failed");
+		}
+		
+		long start = System.nanoTime();
+		if (embeddingEngine != null) {
+			float[] embedding1 = embed(image1);
+			float[] embedding2 = embed(image2);
+			long featureNanos = System.nanoTime() - start;
+			if (embedding1 == null || embedding2 == null) {
+				return null;
+			}
+			return compare(embedding1, embedding2, decodeNanos, featureNanos);
+		}
+		
+		try (MatScope scope = new MatScope()) {
+			Mat face1 = image1;
+			Mat face2 = image2;
+			if (faceAligner == null) {
+				requireQuality(image1);
+				requireQuality(image2);
+			} else {
+				// 启用对齐时只比对最大人脸区域的直方图，图片质量在人脸检测时检查
+				face1 = scope.track(cropLargestFace(image1));
+				face2 = face1 == null ? null : scope.track(cropLargestFace(image2));
+				if (face2 == null) {
+					return null;
+				}
+			}
+			float[] histogram1 = histogramOf(face1);
+			float[] histogram2 = histogramOf(face2);
+			return compareHistogram(histogram1, histogram2, decodeNanos, System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * 提取图片的灰度直方图特征（启用对齐时只统计最大人脸），可保存后反复比对；启用特征缓存时相同内容的图片直接返回缓存结果
+	 * @param imageBytes 图片数据
+	 * @return 归一化的直方图，启用对齐且未检测到人脸时返回 null
+	 * @throws IllegalArgumentException 图片无法解码
+	 */
+	public float[] histogramFeature(byte[] imageBytes) {
+		if (featureCache != null) {
+			return featureCache.get(ContentKey.of(imageBytes, HISTOGRAM_SEED), key -> decodeAndHistogram(imageBytes));
+		}
+		return decodeAndHistogram(imageBytes);
+	}
+	
+	private float[] decodeAndHistogram(byte[] imageBytes) {
+		try (MatScope scope = new MatScope()) {
+			return histogramFeature(scope.track(decode(imageBytes, Imgcodecs.IMREAD_GRAYSCALE)));
+		}
+	}
+	
+	public float[] histogramFeature(File imageFile) {
+		try (MatScope scope = new MatScope()) {
+			return histogramFeature(scope.track(decode(imageFile, Imgcodecs.IMREAD_GRAYSCALE)));
+		}
+	}
+	
+	/**
+	 * 提取灰度图的直方图特征，见 {@link #histogramFeature(byte[])}
+	 * @param gray 灰度图
+	 */
+	public float[] histogramFeature(Mat gray) {
+		if (gray == null || gray.empty()) {
+			throw new IllegalArgumentException("image decode failed");
+		}
+		if (faceAligner == null) {
+			requireQuality(gray);
+			return histogramOf(gray);
+		}
+		try (MatScope scope = new MatScope()) {
+			Mat face = scope.track(cropLargestFace(gray));
+			return face == null ? null : histogramOf(face);
+		}
+	}
+	
+	private float[] histogramOf(Mat gray) {
+		long start = metrics.start();
+		Mat hist = offload(() -> histogram(gray));
 		try {
-			
-
-			if (imageFile1 == null || !imageFile1.exists()) {
-				result.put("error_code", 500);
-				result.put("error_msg", "");
-				return result;
-	        }
-			
-			if (imageFile2 == null || !imageFile2.exists()) {
-				result.put("error_code", 500);
-				result.put("error_msg", "");
-				return result;
-	        }
-		    
-		    int lBins = 20;
-	        int histSize[] = {lBins};
-
-	        float vRanges[] = {0, 100};
-	        float ranges[][] = {vRanges};
-
-	        IplImage image1 = opencv_imgcodecs.cvLoadImage(imageFile1.getPath(), Imgcodecs.IMREAD_GRAYSCALE);
-	        IplImage image2 = opencv_imgcodecs.cvLoadImage(imageFile2.getPath(), Imgcodecs.IMREAD_GRAYSCALE);
-
-	        IplImage imageArr1[] = {image1};
-	        IplImage imageArr2[] = {image2};
-
-	        CvHistogram histogram1 = CvHistogram.create(1, histSize, Imgproc.HISTCMP_CORREL, ranges, 1);
-	        CvHistogram histogram2 = CvHistogram.create(1, histSize, Imgproc.HISTCMP_CORREL, ranges, 1);
-
-	        opencv_imgproc.cvCalcHist(imageArr1, histogram1, 0, null);
-	        opencv_imgproc.cvCalcHist(imageArr2, histogram2, 0, null);
-
-	        opencv_imgproc.cvNormalizeHist(histogram1, 100.0);
-	        opencv_imgproc.cvNormalizeHist(histogram2, 100.0);
-
-	        double score = opencv_imgproc.cvCompareHist(histogram1, histogram2, Imgproc.CV_COMP_CORREL);
-	        
-	        // 特征相似值
- 			result.put("score", score);
-		    
-		} catch (Exception e) {
-			e.printStackTrace();
+			float[] feature = new float[(int) hist.total()];
+			hist.get(0, 0, feature);
+			return feature;
+		} finally {
+			hist.release();
+			metrics.stop(Stage.HISTOGRAM, start);
+		}
+	}
+	
+	/**
+	 * 比对两个已保存的直方图特征，纯 Java 计算
+	 * @return 比对结果，score 为相关系数
+	 */
+	public MatchResult matchHistogram(float[] histogram1, float[] histogram2) {
+		return compareHistogram(histogram1, histogram2, 0, 0);
+	}
+	
+	/**
+	 * 将图片与已保存的直方图特征比对，只解码、统计一张图片
+	 * @param imageBytes 图片数据
+	 * @param histogram {@link #histogramFeature(byte[])} 的结果
+	 * @return 比对结果，启用对齐且未检测到人脸时返回 null
+	 */
+	public MatchResult matchHistogram(byte[] imageBytes, float[] histogram) {
+		long start = System.nanoTime();
+		float[] probe = histogramFeature(imageBytes);
+		long featureNanos = System.nanoTime() - start;
+		return probe == null ? null : compareHistogram(probe, histogram, 0, featureNanos);
+	}
+	
+	/**
+	 * 一对多比对：计算 probe 与每个已保存直方图特征的相关系数
+	 * @param probe 待比对的直方图特征
+	 * @param histograms 已保存的直方图特征
+	 * @return 与 histograms 顺序一致的相关系数
+	 */
+	public double[] matchHistogram(float[] probe, List<float[]> histograms) {
+		long start = metrics.start();
+		try {
+			return HistogramFeature.correlation(probe, histograms);
+		} finally {
+			metrics.stop(Stage.COMPARE, start);
+		}
+	}
+	
+	private MatchResult compareHistogram(float[] histogram1, float[] histogram2, long decodeNanos,
+			long featureNanos) {
+		long metricsStart = metrics.start();
+		long start = System.nanoTime();
+		double score = HistogramFeature.correlation(histogram1, histogram2);
+		long compareNanos = System.nanoTime() - start;
+		metrics.stop(Stage.COMPARE, metricsStart);
+		return new MatchResult(MatchMethod.HISTOGRAM, score, Double.NaN, decodeNanos, featureNanos, compareNanos);
+	}
+	
+	/**
+	 * 比对结果的 JSON 视图，异常和未检测到人脸转换为错误信息
+	 */
+	private JSONObject matchView(Supplier<MatchResult> matcher) {
+		try {
+			MatchResult result = matcher.get();
+			if (result == null) {
+				return error("no face detected");
+			}
+			return result.toJSON();
+		} catch (ImageQualityException e) {
+			return qualityError(e);
+		} catch (IllegalArgumentException e) {
+			metrics.error("match");
+			return error(e.getMessage());
+		} catch (RuntimeException e) {
+			metrics.error("match");
+			logger.error("人脸比对失败", e);
+			return error(e.getMessage());
+		}
+	}
+	
+	/**
+	 * 特征比对的 JSON 视图，见 {@link #matchFaces(float[], float[])}
+	 */
+	public JSONObject match(float[] embedding1, float[] embedding2) {
+		return matchFaces(embedding1, embedding2).toJSON();
+	}
+	
+	/**
+	 * 比对两个已提取的人脸特征
+	 * @param embedding1 特征1
+	 * @param embedding2 特征2
+	 * @return 比对结果，score 为余弦相似度，distance 为配置的距离
+	 */
+	public MatchResult matchFaces(float[] embedding1, float[] embedding2) {
+		return compare(embedding1, embedding2, 0, 0);
+	}
+	
+	private MatchResult compare(float[] embedding1, float[] embedding2, long decodeNanos, long featureNanos) {
+		if (embeddingEngine == null) {
+			throw new IllegalStateException("Face embedding model is not configured, see opencv.face.embedding.model");
+		}
+		long metricsStart = metrics.start();
+		long start = System.nanoTime();
+		double score = embeddingEngine.similarity(embedding1, embedding2);
+		double distance = embeddingEngine.distance(embedding1, embedding2);
+		long compareNanos = System.nanoTime() - start;
+		metrics.stop(Stage.COMPARE, metricsStart);
+		return new MatchResult(MatchMethod.EMBEDDING, score, distance, decodeNanos, featureNanos, compareNanos);
+	}
+	
+	/**
+	 * 提取图片中最大人脸的特征并注册到人脸库
+	 * @param id 人脸标识，已存在时覆盖
+	 * @param imageBytes 图片数据
+	 * @return 是否检测到人脸并注册成功
+	 */
+	public boolean enroll(String id, byte[] imageBytes) {
+		float[] embedding = embed(imageBytes);
+		if (embedding == null) {
+			return false;
+		}
+		requireGallery().enroll(id, embedding);
+		return true;
+	}
+	
+	public boolean remove(String id) {
+		return requireGallery().remove(id);
+	}
+	
+	/**
+	 * 创建批量注册流水线，参数见 opencv.face.enrollment
+	 * @param listener 逐项结果回调，可为 null
+	 * @return 流水线，调用 start 后开始执行
+	 */
+	public BulkEnrollmentPipeline newEnrollmentPipeline(EnrollmentListener listener) {
+		NativeLibrary.load();
+		return new BulkEnrollmentPipeline(this, listener);
+	}
+	
+	/**
+	 * 将目录下的所有图片注册到人脸库，id 为去掉扩展名的相对路径
+	 * @param directory 图片目录，递归遍历
+	 * @param listener 逐项结果回调，可为 null
+	 * @return 全部处理完毕后完成，结果为最终进度
+	 */
+	public CompletableFuture<EnrollmentProgress> enrollDirectory(Path directory, EnrollmentListener listener)
+			throws IOException {
+		return newEnrollmentPipeline(listener).start(EnrollmentItem.scan(directory));
+	}
+	
+	/**
+	 * 1:N 检索：在人脸库中查找与图片中最大人脸最相似的 k 个人脸
+	 * @param imageBytes 图片数据
+	 * @param k 返回数量
+	 * @return 按相似度从高到低排列的结果，未检测到人脸时为空
+	 */
+	public List<SearchHit> search(byte[] imageBytes, int k) {
+		float[] embedding = embed(imageBytes);
+		if (embedding == null) {
+			return Collections.emptyList();
 		}
+		return requireGallery().search(embedding, k);
+	}
+	
+	private FaceGallery requireGallery() {
+		if (gallery == null) {
+			throw new IllegalStateException("Face gallery is not configured, see opencv.face.embedding.model");
+		}
+		return gallery;
+	}
+	
+	private Mat decode(byte[] imageBytes, int flags) {
+		return decode(imageBytes, isHeaderChecked() ? ImageFactory.getImageInfo(imageBytes) : null, flags, 1);
+	}
+	
+	/**
+	 * @param header 已读取的文件头，启用文件头检查时用于检查尺寸
+	 * @param factor 按 1/factor 的分辨率解码，见 {@link ImageDecoder#decode(byte[], int, int)}
+	 */
+	private Mat decode(byte[] imageBytes, ImageInfo header, int flags, int factor) {
+		if (isHeaderChecked()) {
+			require(qualityGate.checkHeader(header));
+		}
+		NativeLibrary.load();
+		long start = metrics.start();
+		try {
+			return offload(() -> ImageDecoder.decode(imageBytes, flags, factor));
+		} finally {
+			metrics.stop(Stage.DECODE, start);
+		}
+	}
+	
+	private Mat decode(ByteBuffer imageBuffer, int flags) {
+		NativeLibrary.load();
+		long start = metrics.start();
+		try {
+			return offload(() -> ImageDecoder.decode(imageBuffer, flags));
+		} finally {
+			metrics.stop(Stage.DECODE, start);
+		}
+	}
+	
+	private Mat decode(InputStream imageStream, int flags) throws IOException {
+		// 读取输入流是普通的阻塞 IO，在调用方线程上完成，只把解码交给 native 线程
+		return decode(IOUtils.toByteArray(imageStream), flags);
+	}
+	
+	private Mat decode(File imageFile, int flags) {
+		return decode(imageFile, isHeaderChecked() ? ImageFactory.getImageInfo(imageFile) : null, flags, 1);
+	}
+	
+	private Mat decode(File imageFile, ImageInfo header, int flags, int factor) {
+		if (isHeaderChecked()) {
+			require(qualityGate.checkHeader(header));
+		}
+		NativeLibrary.load();
+		long start = metrics.start();
+		try {
+			return offload(() -> ImageDecoder.decode(imageFile, flags, factor));
+		} finally {
+			metrics.stop(Stage.DECODE, start);
+		}
+	}
+	
+	private boolean isHeaderChecked() {
+		return qualityGate != null && qualityGate.getQuality().isHeader();
+	}
+	
+	/**
+	 * 比对时的解码方式：特征模型需要彩色图，直方图只需要灰度图
+	 */
+	protected int matchReadFlags() {
+		return embeddingEngine != null ? Imgcodecs.IMREAD_COLOR : Imgcodecs.IMREAD_GRAYSCALE;
+	}
+	
+	/**
+	 * 计算灰度直方图，并归一化到总和为 100
+	 * @return 直方图，由调用方 release
+	 */
+	protected Mat histogram(Mat gray) {
+		Mat hist = new Mat();
+		Imgproc.calcHist(Collections.singletonList(gray), HistogramParams.CHANNELS, HistogramParams.MASK, hist,
+				HistogramParams.BINS, HistogramParams.RANGES);
+		Core.normalize(hist, hist, 100.0, 0, Core.NORM_L1);
+		return hist;
+	}
+	
+	/**
+	 * calcHist 的只读参数，所有线程共用；首次计算直方图时才创建，此时 native 库已加载
+	 */
+	private static class HistogramParams {
+		
+		static final MatOfInt CHANNELS = new MatOfInt(0);
+		static final Mat MASK = new Mat();
+		static final MatOfInt BINS = new MatOfInt(HIST_BINS);
+		static final MatOfFloat RANGES = new MatOfFloat(HIST_RANGES);
+		
+	}
+	
+	/**
+	 * 检查图片质量，需要配置 opencv.face.quality.enabled；先读取文件头中的尺寸，通过后再解码检查像素
+	 * @param imageBytes 图片数据
+	 * @return 检查结果
+	 * @throws IllegalArgumentException 图片无法解码
+	 */
+	public QualityReport checkQuality(byte[] imageBytes) {
+		ImageQualityGate gate = requireQualityGate();
+		ImageInfo header = ImageFactory.getImageInfo(imageBytes);
+		QualityReport report = gate.checkHeader(header);
+		if (!report.isPassed()) {
+			return report;
+		}
+		try (MatScope scope = new MatScope()) {
+			Mat image = scope.track(decode(imageBytes, header, Imgcodecs.IMREAD_COLOR, 1));
+			if (image.empty()) {
+				throw new IllegalArgumentException("image decode failed");
+			}
+			return checkQuality(image);
+		}
+	}
+	
+	/**
+	 * 检查已解码图像的质量，需要配置 opencv.face.quality.enabled
+	 */
+	public QualityReport checkQuality(Mat image) {
+		ImageQualityGate gate = requireQualityGate();
+		return offload(() -> gate.check(image));
+	}
+	
+	private ImageQualityGate requireQualityGate() {
+		if (qualityGate == null) {
+			throw new IllegalStateException("Image quality gate is not enabled, see opencv.face.quality.enabled");
+		}
+		return qualityGate;
+	}
+	
+	/**
+	 * 启用质量检查时，在检测、比对之前检查图像，未通过时抛出 {@link ImageQualityException}
+	 */
+	private void requireQuality(Mat image) {
+		requireQuality(image, 1);
+	}
+	
+	/**
+	 * @param factor 图像按 1/factor 缩小解码时，尺寸按原图检查
+	 */
+	private void requireQuality(Mat image, int factor) {
+		if (qualityGate != null) {
+			require(offload(() -> qualityGate.check(image, factor)));
+		}
+	}
+	
+	private void require(QualityReport report) {
+		if (!report.isPassed()) {
+			metrics.error("quality");
+			if (logger.isDebugEnabled()) {
+				logger.debug("图片未通过质量检查：{}", report);
+			}
+			throw new ImageQualityException(report);
+		}
+	}
+	
+	protected JSONObject qualityError(ImageQualityException e) {
+		JSONObject result = error(e.getMessage());
+		result.put("quality", e.getReport().toJSON());
 		return result;
 	}
 	
-	public CascadeClassifier getFaceDetector() {
+	protected JSONObject error(String message) {
+		JSONObject result = new JSONObject();
+		result.put("error_code", 500);
+		result.put("error_msg", message);
+		return result;
+	}
+	
+	public FaceDetector getFaceDetector() {
 		return faceDetector;
 	}
 	
+	public NativeObjectPool<?> getFaceDetectorPool() {
+		return faceDetector.getPool();
+	}
+	
+	public FaceEmbeddingEngine getEmbeddingEngine() {
+		return embeddingEngine;
+	}
+	
+	public void setEmbeddingEngine(FaceEmbeddingEngine embeddingEngine) {
+		this.embeddingEngine = embeddingEngine;
+	}
+	
+	public FaceAligner getFaceAligner() {
+		return faceAligner;
+	}
+	
+	/**
+	 * 启用人脸裁剪与对齐，为 null 时直接使用检测框
+	 */
+	public void setFaceAligner(FaceAligner faceAligner) {
+		this.faceAligner = faceAligner;
+	}
+	
+	public ImageQualityGate getQualityGate() {
+		return qualityGate;
+	}
+	
+	/**
+	 * 启用检测、比对前的图片质量检查，为 null 时不检查
+	 */
+	public void setQualityGate(ImageQualityGate qualityGate) {
+		this.qualityGate = qualityGate;
+	}
+	
+	public FaceGallery getGallery() {
+		return gallery;
+	}
+	
+	public void setGallery(FaceGallery gallery) {
+		this.gallery = gallery;
+	}
+	
+	public FeatureCache getFeatureCache() {
+		return featureCache;
+	}
+	
+	/**
+	 * 启用按图片内容缓存特征，为 null 时不缓存
+	 */
+	public void setFeatureCache(FeatureCache featureCache) {
+		this.featureCache = featureCache;
+	}
+	
+	public FaceRecognitionMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * 指定指标记录方式，为 null 时不记录
+	 */
+	public void setMetrics(FaceRecognitionMetrics metrics) {
+		this.metrics = metrics == null ? FaceRecognitionMetrics.NOOP : metrics;
+	}
+	
 	public FacenetFaceRecognitionProperties getProperties() {
 		return properties;
 	}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+/**
+ * 批量处理中单个输入的结果，index 与输入列表中的位置一致
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class BatchResult<T> {
+
+	private final int index;
+	private final T result;
+	private final Throwable error;
+
+	private BatchResult(int index, T result, Throwable error) {
+		this.index = index;
+		this.result = result;
+		this.error = error;
+	}
+
+	public static <T> BatchResult<T> success(int index, T result) {
+		return new BatchResult<>(index, result, null);
+	}
+
+	public static <T> BatchResult<T> failure(int index, Throwable error) {
+		return new BatchResult<>(index, null, error);
+	}
+
+	public static <T> BatchResult<T> failure(int index, String message) {
+		return new BatchResult<>(index, null, new IllegalStateException(message));
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	public T getResult() {
+		return result;
+	}
+
+	public Throwable getError() {
+		return error;
+	}
+
+	public String getErrorMessage() {
+		return error == null ? null : error.getMessage();
+	}
+
+}
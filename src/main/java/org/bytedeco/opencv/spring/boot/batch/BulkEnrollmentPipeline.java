@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionProperties;
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionTemplate;
+import org.bytedeco.opencv.spring.boot.detection.DetectedFace;
+import org.bytedeco.opencv.spring.boot.detection.FaceAligner;
+import org.bytedeco.opencv.spring.boot.dnn.FaceEmbeddingEngine;
+import org.bytedeco.opencv.spring.boot.gallery.FaceGallery;
+import org.bytedeco.opencv.spring.boot.image.ImageDecoder;
+import org.bytedeco.opencv.spring.boot.image.ScratchMat;
+import org.bytedeco.opencv.spring.boot.metrics.FaceRecognitionMetrics;
+import org.bytedeco.opencv.spring.boot.metrics.Stage;
+import org.bytedeco.opencv.spring.boot.startup.NativeLibrary;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 批量人脸注册流水线：读取 → 解码 → 检测 → 裁剪 → 提取特征并写入人脸库
+ * <p>各阶段由独立的线程执行，线程数分别配置，阶段之间通过有界队列连接；下游处理不过来时上游阻塞，
+ * 内存占用只与队列容量有关，与输入规模无关。特征按 opencv.face.batch.size 合并推理。</p>
+ * <p>单张图片的失败不影响其他图片，通过 {@link EnrollmentListener} 逐项回调；开启 resume 时成功的 id
+ * 写入 {@link EnrollmentJournal}，重新执行时跳过。每个实例只能执行一次。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class BulkEnrollmentPipeline {
+
+	private static final Logger logger = LoggerFactory.getLogger(BulkEnrollmentPipeline.class);
+	/**
+	 * 队列结束标记，每个下游线程收到一个后退出
+	 */
+	private static final Item END = new Item(null);
+
+	private final FacenetFaceRecognitionTemplate template;
+	private final FaceEmbeddingEngine embeddingEngine;
+	private final FaceGallery gallery;
+	private final FaceAligner faceAligner;
+	private final FaceRecognitionMetrics metrics;
+	private final FacenetFaceRecognitionProperties.Enrollment settings;
+	private final int detectThreads;
+	private final int batchSize;
+	private final EnrollmentJournal journal;
+	private final EnrollmentListener listener;
+	private final AtomicBoolean started = new AtomicBoolean();
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong skipped = new AtomicLong();
+	private final AtomicLong enrolled = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final CompletableFuture<EnrollmentProgress> completion = new CompletableFuture<>();
+	private volatile boolean cancelled;
+	private volatile Throwable sourceError;
+	private volatile long startNanos;
+	private volatile long endNanos;
+
+	/**
+	 * @param template 需要配置特征模型和人脸库
+	 * @param listener 逐项结果回调，可为 null
+	 */
+	public BulkEnrollmentPipeline(FacenetFaceRecognitionTemplate template, EnrollmentListener listener) {
+		if (template.getEmbeddingEngine() == null || template.getGallery() == null) {
+			throw new IllegalStateException("Face gallery is not configured, see opencv.face.embedding.model");
+		}
+		FacenetFaceRecognitionProperties properties = template.getProperties();
+		this.template = template;
+		this.embeddingEngine = template.getEmbeddingEngine();
+		this.gallery = template.getGallery();
+		this.faceAligner = template.getFaceAligner();
+		this.metrics = template.getMetrics();
+		this.settings = properties.getEnrollment();
+		this.detectThreads = settings.getDetectThreads() > 0 ? settings.getDetectThreads()
+				: properties.getPool().getMaxSize();
+		this.batchSize = Math.max(1, properties.getBatch().getSize());
+		this.listener = listener == null ? new EnrollmentListener() {
+		} : listener;
+		try {
+			this.journal = settings.isResume() ? new EnrollmentJournal(journalPath(properties)) : null;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open enrollment journal", e);
+		}
+	}
+
+	/**
+	 * 在后台开始注册，立即返回
+	 * @param items 待注册的图片，由流水线负责关闭；见 {@link EnrollmentItem#scan(Path)}
+	 * @return 全部处理完毕或取消后完成，结果为最终进度，取消时 {@link EnrollmentProgress#isCancelled()} 为 true；
+	 * 输入本身出错（如目录无法遍历）时异常完成
+	 */
+	public CompletableFuture<EnrollmentProgress> start(Stream<EnrollmentItem> items) {
+		if (!started.compareAndSet(false, true)) {
+			throw new IllegalStateException("enrollment pipeline can only be started once");
+		}
+		startNanos = System.nanoTime();
+		int capacity = Math.max(1, settings.getQueueCapacity());
+		BlockingQueue<Item> toRead = new ArrayBlockingQueue<>(capacity);
+		BlockingQueue<Item> toDecode = new ArrayBlockingQueue<>(capacity);
+		BlockingQueue<Item> toDetect = new ArrayBlockingQueue<>(capacity);
+		BlockingQueue<Item> toCrop = new ArrayBlockingQueue<>(capacity);
+		BlockingQueue<Item> toEmbed = new ArrayBlockingQueue<>(Math.max(capacity, batchSize));
+		int readThreads = Math.max(1, settings.getReadThreads());
+		int decodeThreads = Math.max(1, settings.getDecodeThreads());
+		int cropThreads = Math.max(1, settings.getCropThreads());
+		int embedThreads = Math.max(1, settings.getEmbedThreads());
+		startStage(EnrollmentStage.READ, readThreads, toRead, toDecode, decodeThreads, this::read);
+		startStage(EnrollmentStage.DECODE, decodeThreads, toDecode, toDetect, detectThreads, this::decode);
+		startStage(EnrollmentStage.DETECT, detectThreads, toDetect, toCrop, cropThreads, this::detect);
+		startStage(EnrollmentStage.CROP, cropThreads, toCrop, toEmbed, embedThreads, this::crop);
+		startEmbedStage(embedThreads, toEmbed);
+		newThread("source", 0, () -> feed(items, toRead, readThreads)).start();
+		return completion;
+	}
+
+	/**
+	 * 停止读取新的输入，已在队列中的图片直接丢弃，计入 dropped 并以 CancellationException 回调
+	 * {@link EnrollmentListener#onFailed}；已提交推理的批次仍会写入人脸库
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public EnrollmentProgress getProgress() {
+		long end = endNanos;
+		long elapsed = startNanos == 0 ? 0 : (end != 0 ? end : System.nanoTime()) - startNanos;
+		return new EnrollmentProgress(submitted.get(), skipped.get(), enrolled.get(), failed.get(), dropped.get(),
+				elapsed, end != 0, cancelled);
+	}
+
+	private static Path journalPath(FacenetFaceRecognitionProperties properties) {
+		String journal = properties.getEnrollment().getJournal();
+		return journal != null ? Paths.get(journal) : Paths.get(properties.getStorage(), "enrollment.journal");
+	}
+
+	private void feed(Stream<EnrollmentItem> items, BlockingQueue<Item> output, int downstreamThreads) {
+		try (Stream<EnrollmentItem> stream = items) {
+			Iterator<EnrollmentItem> iterator = stream.iterator();
+			while (!cancelled && iterator.hasNext()) {
+				EnrollmentItem item = iterator.next();
+				submitted.incrementAndGet();
+				if (journal != null && journal.isCompleted(item.getId())) {
+					skipped.incrementAndGet();
+					continue;
+				}
+				output.put(new Item(item));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			sourceError = e;
+		} catch (RuntimeException e) {
+			// Files.walk 遍历出错时抛出 UncheckedIOException
+			logger.error("批量注册读取输入失败", e);
+			sourceError = e;
+		} finally {
+			signalEnd(output, downstreamThreads);
+		}
+	}
+
+	private void read(Item item) throws IOException {
+		if (item.bytes == null) {
+			item.bytes = Files.readAllBytes(item.source.getPath());
+		}
+	}
+
+	private void decode(Item item) {
+		NativeLibrary.load();
+		long start = metrics.start();
+		try {
+			item.image = ImageDecoder.decode(item.bytes, Imgcodecs.IMREAD_COLOR);
+		} finally {
+			metrics.stop(Stage.DECODE, start);
+		}
+		item.bytes = null;
+		if (item.image.empty()) {
+			throw new IllegalArgumentException("image decode failed");
+		}
+	}
+
+	private void detect(Item item) {
+		item.face = template.findFaces(item.image).getLargestFace();
+		if (item.face == null) {
+			throw new IllegalArgumentException("no face detected");
+		}
+	}
+
+	private void crop(Item item) {
+		if (faceAligner != null) {
+			item.crop = faceAligner.align(item.image, item.face).getImage();
+		} else {
+			// 复制人脸区域，原图可以立即释放，队列中只保留较小的人脸图
+			Mat region = item.image.submat(item.face.toCvRect());
+			try {
+				item.crop = region.clone();
+			} finally {
+				region.release();
+			}
+		}
+		item.image.release();
+		item.image = null;
+	}
+
+	private void startStage(EnrollmentStage stage, int threads, BlockingQueue<Item> input,
+			BlockingQueue<Item> output, int downstreamThreads, Step step) {
+		AtomicInteger running = new AtomicInteger(threads);
+		for (int i = 0; i < threads; i++) {
+			newThread(stage.getTag(), i + 1, () -> {
+				try {
+					Item item;
+					while ((item = input.take()) != END) {
+						if (cancelled) {
+							drop(item, stage);
+							continue;
+						}
+						try {
+							step.apply(item);
+						} catch (Exception e) {
+							fail(item, stage, e);
+							continue;
+						}
+						output.put(item);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					if (running.decrementAndGet() == 0) {
+						signalEnd(output, downstreamThreads);
+					}
+				}
+			}).start();
+		}
+	}
+
+	private void startEmbedStage(int threads, BlockingQueue<Item> input) {
+		AtomicInteger running = new AtomicInteger(threads);
+		for (int i = 0; i < threads; i++) {
+			newThread(EnrollmentStage.EMBED.getTag(), i + 1, () -> {
+				List<Item> batch = new ArrayList<>(batchSize);
+				try {
+					boolean end = false;
+					while (!end) {
+						Item item = input.take();
+						// 取到第一个后不再等待，把队列中已有的凑成一批
+						while (item != END) {
+							batch.add(item);
+							if (batch.size() >= batchSize || (item = input.poll()) == null) {
+								break;
+							}
+						}
+						end = item == END;
+						if (!batch.isEmpty()) {
+							embed(batch);
+							batch.clear();
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					for (Item item : batch) {
+						item.release();
+					}
+					if (running.decrementAndGet() == 0) {
+						finish();
+					}
+				}
+			}).start();
+		}
+	}
+
+	private void embed(List<Item> batch) {
+		if (cancelled) {
+			for (Item item : batch) {
+				drop(item, EnrollmentStage.EMBED);
+			}
+			return;
+		}
+		List<Mat> crops = new ArrayList<>(batch.size());
+		for (Item item : batch) {
+			crops.add(item.crop);
+		}
+		List<float[]> embeddings;
+		long start = metrics.start();
+		try {
+			embeddings = embeddingEngine.embed(crops);
+		} catch (RuntimeException e) {
+			for (Item item : batch) {
+				fail(item, EnrollmentStage.EMBED, e);
+			}
+			return;
+		} finally {
+			metrics.stop(Stage.EMBED, start);
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			Item item = batch.get(i);
+			item.release();
+			try {
+				gallery.enroll(item.source.getId(), embeddings.get(i));
+				if (journal != null) {
+					journal.append(item.source.getId());
+				}
+			} catch (IOException | RuntimeException e) {
+				fail(item, EnrollmentStage.EMBED, e);
+				continue;
+			}
+			enrolled.incrementAndGet();
+			listener.onEnrolled(item.source.getId());
+		}
+		flushJournal();
+	}
+
+	private void fail(Item item, EnrollmentStage stage, Throwable error) {
+		item.release();
+		failed.incrementAndGet();
+		if (logger.isDebugEnabled()) {
+			logger.debug("批量注册失败：{}，阶段 {}：{}", item.source.getId(), stage, error.getMessage());
+		}
+		listener.onFailed(item.source.getId(), stage, error);
+	}
+
+	private void drop(Item item, EnrollmentStage stage) {
+		item.release();
+		dropped.incrementAndGet();
+		listener.onFailed(item.source.getId(), stage, new CancellationException("enrollment cancelled"));
+	}
+
+	private void finish() {
+		endNanos = System.nanoTime();
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				logger.warn("关闭批量注册日志失败", e);
+			}
+		}
+		EnrollmentProgress progress = getProgress();
+		logger.info("批量注册结束：{}", progress);
+		if (sourceError != null) {
+			completion.completeExceptionally(sourceError);
+		} else {
+			completion.complete(progress);
+		}
+	}
+
+	private void flushJournal() {
+		if (journal != null) {
+			try {
+				journal.flush();
+			} catch (IOException e) {
+				logger.warn("写入批量注册日志失败", e);
+			}
+		}
+	}
+
+	private static void signalEnd(BlockingQueue<Item> output, int downstreamThreads) {
+		try {
+			for (int i = 0; i < downstreamThreads; i++) {
+				output.put(END);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Thread newThread(String stage, int index, Runnable task) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("facenet-enroll-" + stage + "-");
+		threadFactory.setDaemon(true);
+		Thread thread = ScratchMat.releasing(threadFactory).newThread(task);
+		if (index > 0) {
+			thread.setName("facenet-enroll-" + stage + "-" + index);
+		}
+		return thread;
+	}
+
+	/**
+	 * 单个阶段的处理，抛出异常表示该图片失败
+	 */
+	@FunctionalInterface
+	private interface Step {
+
+		void apply(Item item) throws Exception;
+
+	}
+
+	/**
+	 * 在各阶段之间传递的一张图片，已处理完的中间结果及时置空以便回收
+	 */
+	private static final class Item {
+
+		private final EnrollmentItem source;
+		private byte[] bytes;
+		private Mat image;
+		private DetectedFace face;
+		private Mat crop;
+
+		private Item(EnrollmentItem source) {
+			this.source = source;
+			this.bytes = source == null ? null : source.getBytes();
+		}
+
+		private void release() {
+			bytes = null;
+			if (image != null) {
+				image.release();
+				image = null;
+			}
+			if (crop != null) {
+				crop.release();
+				crop = null;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * 待注册的一张人脸图片：文件路径或已读入的图片数据
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class EnrollmentItem {
+
+	private static final Set<String> IMAGE_EXTENSIONS = new HashSet<>(
+			Arrays.asList("jpg", "jpeg", "png", "bmp", "webp", "tif", "tiff"));
+
+	private final String id;
+	private final Path path;
+	private final byte[] bytes;
+
+	private EnrollmentItem(String id, Path path, byte[] bytes) {
+		this.id = id;
+		this.path = path;
+		this.bytes = bytes;
+	}
+
+	public static EnrollmentItem of(String id, Path path) {
+		return new EnrollmentItem(id, path, null);
+	}
+
+	public static EnrollmentItem of(String id, byte[] bytes) {
+		return new EnrollmentItem(id, null, bytes);
+	}
+
+	/**
+	 * 逐个遍历目录（含子目录）下的图片文件，不会一次性列出全部文件
+	 * <p>id 为去掉扩展名的相对路径，分隔符统一为 /；返回的 Stream 需要关闭</p>
+	 * @param directory 图片目录
+	 * @return 待注册的图片
+	 */
+	public static Stream<EnrollmentItem> scan(Path directory) throws IOException {
+		return Files.walk(directory).filter(Files::isRegularFile).filter(EnrollmentItem::isImage)
+				.map(path -> of(toId(directory.relativize(path)), path));
+	}
+
+	private static boolean isImage(Path path) {
+		String extension = StringUtils.getFilenameExtension(path.getFileName().toString());
+		return extension != null && IMAGE_EXTENSIONS.contains(extension.toLowerCase());
+	}
+
+	private static String toId(Path relative) {
+		String id = StringUtils.stripFilenameExtension(relative.toString());
+		return id.replace(relative.getFileSystem().getSeparator(), "/");
+	}
+
+	/**
+	 * 人脸标识，注册到人脸库时使用；不能包含换行
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * 图片文件，bytes 不为空时为 null
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * 图片数据，path 不为空时为 null
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+}
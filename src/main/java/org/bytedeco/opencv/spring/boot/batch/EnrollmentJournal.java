@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * 批量注册日志：每行一个已成功注册的 id，只追加写入
+ * <p>中断后重新执行同一批输入时跳过日志中已有的 id，从中断处继续。
+ * 每批特征写入人脸库后 flush，进程崩溃时最多重复注册最后一批（注册按 id 覆盖，重复无害）。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class EnrollmentJournal implements Closeable {
+
+	private final Path path;
+	private final Set<String> completed = new HashSet<>();
+	private final BufferedWriter writer;
+
+	public EnrollmentJournal(Path path) throws IOException {
+		this.path = path;
+		if (Files.exists(path)) {
+			try (Stream<String> lines = Files.lines(path, StandardCharsets.UTF_8)) {
+				lines.filter(line -> !line.isEmpty()).forEach(completed::add);
+			}
+		} else if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * @return 打开日志时该 id 是否已注册过
+	 */
+	public boolean isCompleted(String id) {
+		return completed.contains(id);
+	}
+
+	public synchronized void append(String id) throws IOException {
+		writer.write(id);
+		writer.newLine();
+	}
+
+	public synchronized void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		writer.close();
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+}
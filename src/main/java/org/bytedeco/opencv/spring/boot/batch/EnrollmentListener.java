@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+/**
+ * 批量注册的逐项结果回调，在流水线线程中调用，实现需要线程安全且尽快返回
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface EnrollmentListener {
+
+	/**
+	 * 已写入人脸库
+	 */
+	default void onEnrolled(String id) {
+	}
+
+	/**
+	 * 注册失败，同一个 id 最多回调一次
+	 * @param id 人脸标识
+	 * @param stage 失败的阶段
+	 * @param error 失败原因，未检测到人脸等业务失败为 IllegalArgumentException，取消后丢弃为 CancellationException
+	 */
+	default void onFailed(String id, EnrollmentStage stage, Throwable error) {
+	}
+
+}
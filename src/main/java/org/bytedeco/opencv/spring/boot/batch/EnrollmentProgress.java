@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量注册进度快照
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class EnrollmentProgress {
+
+	private final long submitted;
+	private final long skipped;
+	private final long enrolled;
+	private final long failed;
+	private final long dropped;
+	private final long elapsedNanos;
+	private final boolean done;
+	private final boolean cancelled;
+
+	public EnrollmentProgress(long submitted, long skipped, long enrolled, long failed, long dropped,
+			long elapsedNanos, boolean done, boolean cancelled) {
+		this.submitted = submitted;
+		this.skipped = skipped;
+		this.enrolled = enrolled;
+		this.failed = failed;
+		this.dropped = dropped;
+		this.elapsedNanos = elapsedNanos;
+		this.done = done;
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * 已从输入中读取的图片数，包含跳过的
+	 */
+	public long getSubmitted() {
+		return submitted;
+	}
+
+	/**
+	 * 日志中已注册过而跳过的图片数
+	 */
+	public long getSkipped() {
+		return skipped;
+	}
+
+	public long getEnrolled() {
+		return enrolled;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * 取消后从队列中丢弃、未处理的图片数
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * 已处理完毕（跳过、成功、失败或取消后丢弃）的图片数
+	 */
+	public long getCompleted() {
+		return skipped + enrolled + failed + dropped;
+	}
+
+	/**
+	 * 流水线中尚未处理完毕的图片数
+	 */
+	public long getInFlight() {
+		return submitted - getCompleted();
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+
+	/**
+	 * 每秒处理完毕的图片数（不含跳过的）
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : (enrolled + failed) * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * 输入已全部处理完毕或已取消
+	 */
+	public boolean isDone() {
+		return done;
+	}
+
+	/**
+	 * 是否已调用取消；取消后结束时输入可能没有全部读取
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public String toString() {
+		return "EnrollmentProgress[submitted=" + submitted + ", skipped=" + skipped + ", enrolled=" + enrolled
+				+ ", failed=" + failed + ", dropped=" + dropped + ", elapsed=" + getElapsedMillis() + "ms, done=" + done
+				+ ", cancelled=" + cancelled + "]";
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+/**
+ * 批量注册流水线的阶段
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum EnrollmentStage {
+
+	/**
+	 * 读取图片文件
+	 */
+	READ("read"),
+	/**
+	 * 内存解码
+	 */
+	DECODE("decode"),
+	/**
+	 * 人脸检测，取面积最大的人脸
+	 */
+	DETECT("detect"),
+	/**
+	 * 裁剪（启用时对齐）人脸
+	 */
+	CROP("crop"),
+	/**
+	 * 合并推理提取特征并写入人脸库
+	 */
+	EMBED("embed");
+
+	private final String tag;
+
+	EnrollmentStage(String tag) {
+		this.tag = tag;
+	}
+
+	public String getTag() {
+		return tag;
+	}
+
+}
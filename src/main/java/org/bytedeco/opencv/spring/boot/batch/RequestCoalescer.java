@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 将并发的单个请求合并为批次执行
+ * <p>调度线程取到第一个请求后，最多再等待 window，或凑满 maxBatchSize 个请求，然后把整批按 parallelism
+ * 均分为若干份，每份作为一个任务交给 executor 执行 handler，并逐个完成调用方的 future。
+ * 调度线程交出批次后立即开始组下一批；拆分保证一批请求仍按 parallelism 并行处理，合并不会把并发请求串行化：
+ * 负载低时每批只有一个请求，额外延迟不超过 window；负载高时批次变大，分摊每次提交和调用的固定开销。</p>
+ * <p>future 在 executor 的线程上完成，调用方不应在其回调中执行阻塞操作。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class RequestCoalescer<T, R> implements Closeable {
+
+	private final String name;
+	private final Function<List<T>, List<BatchResult<R>>> handler;
+	private final Executor executor;
+	private final int parallelism;
+	private final long windowNanos;
+	private final int maxBatchSize;
+	private final BlockingQueue<Request<T, R>> queue;
+	private final Thread dispatcher;
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong batchCount = new AtomicLong();
+	private volatile boolean closed;
+
+	/**
+	 * @param name 名称，用于调度线程名和异常信息
+	 * @param handler 批量处理，返回与输入顺序一致的结果；在 executor 的一个线程上执行，不应再等待同一 executor 中的任务
+	 * @param executor 执行批次的线程池
+	 * @param parallelism 每批最多拆分的份数，通常为 handler 所用资源（如对象池）的并发上限
+	 * @param window 第一个请求到达后最多等待的时间
+	 * @param maxBatchSize 每批最多的请求数
+	 * @param queueCapacity 等待合并的请求上限，超出时直接拒绝
+	 */
+	public RequestCoalescer(String name, Function<List<T>, List<BatchResult<R>>> handler, Executor executor,
+			int parallelism, Duration window, int maxBatchSize, int queueCapacity) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("maxBatchSize must be greater than 0");
+		}
+		this.name = name;
+		this.handler = handler;
+		this.executor = executor;
+		this.parallelism = Math.max(1, parallelism);
+		this.windowNanos = window == null ? 0 : window.toNanos();
+		this.maxBatchSize = maxBatchSize;
+		this.queue = new ArrayBlockingQueue<>(Math.max(maxBatchSize, queueCapacity));
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("facenet-" + name + "-");
+		threadFactory.setDaemon(true);
+		this.dispatcher = threadFactory.newThread(this::dispatch);
+		this.dispatcher.start();
+	}
+
+	/**
+	 * 提交一个请求
+	 * @return 所在批次处理完后完成；队列已满或已关闭时以 RejectedExecutionException 异常完成
+	 */
+	public CompletableFuture<R> submit(T input) {
+		Request<T, R> request = new Request<>(input);
+		if (closed) {
+			request.future.completeExceptionally(new RejectedExecutionException("coalescer [" + name + "] is closed"));
+		} else if (!queue.offer(request)) {
+			request.future.completeExceptionally(new RejectedExecutionException("coalescer [" + name
+					+ "] queue is full, capacity = " + (queue.size() + queue.remainingCapacity())));
+		} else if (closed && queue.remove(request)) {
+			// 与 close 并发时，调度线程可能已经退出
+			request.future.completeExceptionally(new RejectedExecutionException("coalescer [" + name + "] is closed"));
+		}
+		return request.future;
+	}
+
+	private void dispatch() {
+		List<Request<T, R>> batch = new ArrayList<>(maxBatchSize);
+		try {
+			while (!closed) {
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + windowNanos;
+				while (batch.size() < maxBatchSize) {
+					if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					Request<T, R> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				dispatch(batch);
+				// 已交出的批次由 executor 的线程持有，下一批使用新的列表
+				batch = new ArrayList<>(maxBatchSize);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			queue.drainTo(batch);
+			for (Request<T, R> request : batch) {
+				request.future.completeExceptionally(new RejectedExecutionException("coalescer [" + name + "] is closed"));
+			}
+		}
+	}
+
+	private void dispatch(List<Request<T, R>> batch) {
+		requestCount.addAndGet(batch.size());
+		batchCount.incrementAndGet();
+		int chunks = Math.min(parallelism, batch.size());
+		for (int c = 0, from = 0; c < chunks; c++) {
+			int to = from + (batch.size() - from) / (chunks - c);
+			List<Request<T, R>> chunk = batch.subList(from, to);
+			try {
+				executor.execute(() -> execute(chunk));
+			} catch (RejectedExecutionException e) {
+				for (Request<T, R> request : chunk) {
+					request.future.completeExceptionally(e);
+				}
+			}
+			from = to;
+		}
+	}
+
+	private void execute(List<Request<T, R>> batch) {
+		List<T> inputs = new ArrayList<>(batch.size());
+		for (Request<T, R> request : batch) {
+			inputs.add(request.input);
+		}
+		List<BatchResult<R>> results;
+		try {
+			results = handler.apply(inputs);
+		} catch (RuntimeException e) {
+			for (Request<T, R> request : batch) {
+				request.future.completeExceptionally(e);
+			}
+			return;
+		}
+		for (int i = 0; i < batch.size(); i++) {
+			BatchResult<R> result = results.get(i);
+			if (result.isSuccess()) {
+				batch.get(i).future.complete(result.getResult());
+			} else {
+				batch.get(i).future.completeExceptionally(result.getError());
+			}
+		}
+	}
+
+	/**
+	 * 停止调度，尚未处理的请求以 RejectedExecutionException 异常完成；正在执行的批次不受影响
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		dispatcher.interrupt();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 等待合并的请求数
+	 */
+	public int getPending() {
+		return queue.size();
+	}
+
+	/**
+	 * 已处理的请求数
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * 已执行的批次数
+	 */
+	public long getBatchCount() {
+		return batchCount.get();
+	}
+
+	/**
+	 * 平均每批的请求数
+	 */
+	public double getAverageBatchSize() {
+		long batches = batchCount.get();
+		return batches == 0 ? 0 : (double) requestCount.get() / batches;
+	}
+
+	@Override
+	public String toString() {
+		return "RequestCoalescer[" + name + ", pending=" + getPending() + ", batches=" + getBatchCount()
+				+ ", averageBatchSize=" + getAverageBatchSize() + "]";
+	}
+
+	private static final class Request<T, R> {
+
+		private final T input;
+		private final CompletableFuture<R> future = new CompletableFuture<>();
+
+		private Request(T input) {
+			this.input = input;
+		}
+
+	}
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.cache;
+
+/**
+ * 图片内容的 128 位哈希（MurmurHash3 x64_128），用作特征缓存的键
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class ContentKey {
+
+	private static final long C1 = 0x87c37b91114253d5L;
+	private static final long C2 = 0x4cf5ad432745937fL;
+
+	private final long h1;
+	private final long h2;
+	private final int length;
+
+	private ContentKey(long h1, long h2, int length) {
+		this.h1 = h1;
+		this.h2 = h2;
+		this.length = length;
+	}
+
+	public static ContentKey of(byte[] data) {
+		return of(data, 0);
+	}
+
+	/**
+	 * @param data 图片数据
+	 * @param seed 区分不同种类特征的种子，同一份数据不同种子得到不同的键
+	 */
+	public static ContentKey of(byte[] data, int seed) {
+		int length = data.length;
+		long h1 = seed & 0xffffffffL;
+		long h2 = seed & 0xffffffffL;
+		int blocks = length >>> 4;
+		for (int i = 0; i < blocks; i++) {
+			int offset = i << 4;
+			long k1 = getLong(data, offset);
+			long k2 = getLong(data, offset + 8);
+			h1 ^= mixK1(k1);
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+			h2 ^= mixK2(k2);
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+		long k1 = 0;
+		long k2 = 0;
+		int tail = blocks << 4;
+		switch (length & 15) {
+		case 15: k2 ^= (long) (data[tail + 14] & 0xff) << 48;
+		case 14: k2 ^= (long) (data[tail + 13] & 0xff) << 40;
+		case 13: k2 ^= (long) (data[tail + 12] & 0xff) << 32;
+		case 12: k2 ^= (long) (data[tail + 11] & 0xff) << 24;
+		case 11: k2 ^= (long) (data[tail + 10] & 0xff) << 16;
+		case 10: k2 ^= (long) (data[tail + 9] & 0xff) << 8;
+		case 9:  k2 ^= (long) (data[tail + 8] & 0xff);
+			h2 ^= mixK2(k2);
+		case 8:  k1 ^= (long) (data[tail + 7] & 0xff) << 56;
+		case 7:  k1 ^= (long) (data[tail + 6] & 0xff) << 48;
+		case 6:  k1 ^= (long) (data[tail + 5] & 0xff) << 40;
+		case 5:  k1 ^= (long) (data[tail + 4] & 0xff) << 32;
+		case 4:  k1 ^= (long) (data[tail + 3] & 0xff) << 24;
+		case 3:  k1 ^= (long) (data[tail + 2] & 0xff) << 16;
+		case 2:  k1 ^= (long) (data[tail + 1] & 0xff) << 8;
+		case 1:  k1 ^= (long) (data[tail] & 0xff);
+			h1 ^= mixK1(k1);
+		default:
+			break;
+		}
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+		return new ContentKey(h1, h2, length);
+	}
+
+	private static long getLong(byte[] data, int offset) {
+		return (data[offset] & 0xffL)
+				| (data[offset + 1] & 0xffL) << 8
+				| (data[offset + 2] & 0xffL) << 16
+				| (data[offset + 3] & 0xffL) << 24
+				| (data[offset + 4] & 0xffL) << 32
+				| (data[offset + 5] & 0xffL) << 40
+				| (data[offset + 6] & 0xffL) << 48
+				| (data[offset + 7] & 0xffL) << 56;
+	}
+
+	private static long mixK1(long k1) {
+		k1 *= C1;
+		k1 = Long.rotateLeft(k1, 31);
+		return k1 * C2;
+	}
+
+	private static long mixK2(long k2) {
+		k2 *= C2;
+		k2 = Long.rotateLeft(k2, 33);
+		return k2 * C1;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ContentKey)) {
+			return false;
+		}
+		ContentKey other = (ContentKey) obj;
+		return h1 == other.h1 && h2 == other.h2 && length == other.length;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) h1;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", h1, h2);
+	}
+
+}
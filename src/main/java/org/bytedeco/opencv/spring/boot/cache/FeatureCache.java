@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 按图片内容哈希缓存解码、检测、特征提取的结果，命中时完全跳过 native 处理
+ * <p>LRU 淘汰，同时限制条目数和特征占用的字节数；未检测到人脸的结果同样缓存。
+ * 未命中时的计算在锁外进行，同一图片并发未命中会各自计算一次。
+ * 写入时保存特征的副本，读取时返回新的副本，调用方修改数组不会影响缓存内容。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FeatureCache {
+
+	/**
+	 * 每个条目除特征数据外的估算开销：键、数组头、链表节点
+	 */
+	private static final long ENTRY_OVERHEAD = 96;
+	private static final float[] ABSENT = new float[0];
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final LinkedHashMap<ContentKey, float[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+	private final long maxEntries;
+	private final long maxBytes;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private long bytes;
+
+	public FeatureCache(long maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * 读取缓存，未命中时调用 loader 计算并放入缓存
+	 * @param key 图片内容哈希
+	 * @param loader 计算特征，返回 null 表示未检测到人脸；抛出异常（如图片无法解码）时不缓存，异常原样抛给调用方
+	 * @return 特征，未检测到人脸时为 null
+	 */
+	public float[] get(ContentKey key, Function<ContentKey, float[]> loader) {
+		float[] cached = lookup(key);
+		if (cached != null) {
+			return cached == ABSENT ? null : cached.clone();
+		}
+		float[] feature = loader.apply(key);
+		put(key, feature);
+		return feature;
+	}
+
+	/**
+	 * @return 缓存的特征；未检测到人脸时返回长度为 0 的数组；未命中返回 null
+	 */
+	public float[] getIfPresent(ContentKey key) {
+		float[] cached = lookup(key);
+		return cached == null ? null : cached.clone();
+	}
+
+	private float[] lookup(ContentKey key) {
+		float[] cached;
+		lock.lock();
+		try {
+			cached = entries.get(key);
+		} finally {
+			lock.unlock();
+		}
+		if (cached == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return cached;
+	}
+
+	public void put(ContentKey key, float[] feature) {
+		float[] value = feature == null ? ABSENT : feature.clone();
+		lock.lock();
+		try {
+			float[] previous = entries.put(key, value);
+			if (previous != null) {
+				bytes -= weigh(previous);
+			}
+			bytes += weigh(value);
+			evict();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void invalidateAll() {
+		lock.lock();
+		try {
+			entries.clear();
+			bytes = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<ContentKey, float[]>> iterator = entries.entrySet().iterator();
+		while ((entries.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+			Map.Entry<ContentKey, float[]> eldest = iterator.next();
+			bytes -= weigh(eldest.getValue());
+			iterator.remove();
+			evictions.increment();
+		}
+	}
+
+	private static long weigh(float[] value) {
+		return ENTRY_OVERHEAD + 4L * value.length;
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	public double getHitRate() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return entries.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 缓存占用的估算字节数
+	 */
+	public long getBytes() {
+		lock.lock();
+		try {
+			return bytes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FeatureCache[size=" + size() + ", bytes=" + getBytes() + ", hits=" + getHitCount() + ", misses="
+				+ getMissCount() + ", evictions=" + getEvictionCount() + "]";
+	}
+
+}
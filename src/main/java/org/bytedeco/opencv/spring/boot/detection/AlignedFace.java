@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import org.opencv.core.Mat;
+
+/**
+ * 裁剪、对齐并缩放到模型输入尺寸的人脸图像
+ * <p>image 可能是原图的子矩阵（未对齐且尺寸恰好一致时），使用完毕后调用 {@link #close()} 释放</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class AlignedFace implements AutoCloseable {
+
+	private final Mat image;
+	private final DetectedFace face;
+	private final double angle;
+
+	public AlignedFace(Mat image, DetectedFace face, double angle) {
+		this.image = image;
+		this.face = face;
+		this.angle = angle;
+	}
+
+	/**
+	 * 对齐后的人脸图像
+	 */
+	public Mat getImage() {
+		return image;
+	}
+
+	/**
+	 * 对应的人脸，检测到双眼时包含 left_eye、right_eye 关键点
+	 */
+	public DetectedFace getFace() {
+		return face;
+	}
+
+	/**
+	 * 对齐时旋转的角度（度），未旋转为 0
+	 */
+	public double getAngle() {
+		return angle;
+	}
+
+	@Override
+	public void close() {
+		image.release();
+	}
+
+}
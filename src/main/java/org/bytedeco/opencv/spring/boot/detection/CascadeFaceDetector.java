@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.bytedeco.opencv.spring.boot.image.ScratchMat;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.objdetect.CascadeClassifier;
+
+/**
+ * 基于级联分类器的多尺度人脸检测
+ * <p>先转为灰度图并按 workingSize 缩小后检测，再将结果映射回原图坐标；
+ * 开启 refine 时在原图的人脸区域附近以原始分辨率再检测一次。
+ * 置信度为 detectMultiScale2 合并的相邻检测数。Haar 和 LBP 级联分类器共用该实现，只是 XML 不同。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class CascadeFaceDetector implements FaceDetector {
+
+	/**
+	 * 灰度图和缩小后的检测图按线程复用，1080p 以内的缓冲区用完后保留
+	 */
+	private static final long SCRATCH_MAX_BYTES = 1920 * 1080 * 4;
+	private static final ScratchMat GRAY = new ScratchMat(SCRATCH_MAX_BYTES);
+	private static final ScratchMat WORK = new ScratchMat(SCRATCH_MAX_BYTES);
+
+	private final NativeObjectPool<CascadeClassifier> classifierPool;
+
+	public CascadeFaceDetector(NativeObjectPool<CascadeClassifier> classifierPool) {
+		this.classifierPool = classifierPool;
+	}
+
+	@Override
+	public List<DetectedFace> detectFaces(Mat image, DetectionOptions options) {
+		Mat gray = toGray(image);
+		Mat work = gray;
+		double scale = 1;
+		int longSide = Math.max(gray.cols(), gray.rows());
+		try {
+			if (options.getWorkingSize() > 0 && longSide > options.getWorkingSize()) {
+				scale = (double) options.getWorkingSize() / longSide;
+				work = WORK.get();
+				Imgproc.resize(gray, work, new Size(), scale, scale, Imgproc.INTER_AREA);
+			}
+			List<DetectedFace> faces = detectMultiScale(work, options, size(options.getMinSize(), scale),
+					size(options.getMaxSize(), scale), 0, 0);
+			if (scale < 1) {
+				for (int i = 0; i < faces.size(); i++) {
+					DetectedFace face = faces.get(i);
+					Rect rect = mapBack(face.toCvRect(), scale, gray);
+					DetectedFace refined = options.isRefine() ? refine(gray, rect, options) : null;
+					faces.set(i, refined != null ? refined : DetectedFace.of(rect, face.getConfidence()));
+				}
+			}
+			if (options.getMaxFaces() > 0 && faces.size() > 1) {
+				faces.sort(Comparator.comparingLong(DetectedFace::getArea).reversed());
+				if (faces.size() > options.getMaxFaces()) {
+					faces = new ArrayList<>(faces.subList(0, options.getMaxFaces()));
+				}
+			}
+			return faces;
+		} finally {
+			if (work != gray) {
+				WORK.recycle(work);
+			}
+			if (gray != image) {
+				GRAY.recycle(gray);
+			}
+		}
+	}
+
+	/**
+	 * @param offsetX 结果的 x 偏移
+	 * @param offsetY 结果的 y 偏移
+	 */
+	private List<DetectedFace> detectMultiScale(Mat gray, DetectionOptions options, Size minSize, Size maxSize,
+			int offsetX, int offsetY) {
+		MatOfRect objects = new MatOfRect();
+		MatOfInt numDetections = new MatOfInt();
+		try {
+			classifierPool.execute(classifier -> {
+				classifier.detectMultiScale2(gray, objects, numDetections, options.getScaleFactor(),
+						options.getMinNeighbors(), 0, minSize, maxSize);
+				return objects;
+			});
+			Rect[] rects = objects.toArray();
+			int[] neighbors = numDetections.toArray();
+			List<DetectedFace> faces = new ArrayList<>(rects.length);
+			for (int i = 0; i < rects.length; i++) {
+				Rect rect = rects[i];
+				rect.x += offsetX;
+				rect.y += offsetY;
+				faces.add(DetectedFace.of(rect, i < neighbors.length ? neighbors[i] : 0));
+			}
+			return faces;
+		} finally {
+			objects.release();
+			numDetections.release();
+		}
+	}
+
+	/**
+	 * 在原图上以 rect 为中心扩展 refinePadding 后的区域内重新检测，取面积最大的结果；未检测到时返回 null
+	 */
+	private DetectedFace refine(Mat gray, Rect rect, DetectionOptions options) {
+		int padX = (int) (rect.width * options.getRefinePadding());
+		int padY = (int) (rect.height * options.getRefinePadding());
+		int x1 = Math.max(0, rect.x - padX);
+		int y1 = Math.max(0, rect.y - padY);
+		int x2 = Math.min(gray.cols(), rect.x + rect.width + padX);
+		int y2 = Math.min(gray.rows(), rect.y + rect.height + padY);
+		Mat roi = gray.submat(y1, y2, x1, x2);
+		try {
+			// 只接受与缩小检测结果尺寸相近的人脸
+			Size minSize = new Size(rect.width * 0.7, rect.height * 0.7);
+			List<DetectedFace> faces = detectMultiScale(roi, options, minSize, new Size(), x1, y1);
+			DetectedFace best = null;
+			for (DetectedFace face : faces) {
+				if (best == null || face.getArea() > best.getArea()) {
+					best = face;
+				}
+			}
+			return best;
+		} finally {
+			roi.release();
+		}
+	}
+
+	private static Mat toGray(Mat image) {
+		if (image.channels() == 1) {
+			return image;
+		}
+		Mat gray = GRAY.get();
+		Imgproc.cvtColor(image, gray, image.channels() == 4 ? Imgproc.COLOR_BGRA2GRAY : Imgproc.COLOR_BGR2GRAY);
+		return gray;
+	}
+
+	private static Size size(int length, double scale) {
+		if (length <= 0) {
+			return new Size();
+		}
+		double scaled = Math.max(1, Math.round(length * scale));
+		return new Size(scaled, scaled);
+	}
+
+	private static Rect mapBack(Rect rect, double scale, Mat original) {
+		int x = (int) Math.round(rect.x / scale);
+		int y = (int) Math.round(rect.y / scale);
+		int width = Math.min((int) Math.round(rect.width / scale), original.cols() - x);
+		int height = Math.min((int) Math.round(rect.height / scale), original.rows() - y);
+		return new Rect(x, y, width, height);
+	}
+
+	public NativeObjectPool<CascadeClassifier> getClassifierPool() {
+		return classifierPool;
+	}
+
+	@Override
+	public NativeObjectPool<CascadeClassifier> getPool() {
+		return classifierPool;
+	}
+
+}
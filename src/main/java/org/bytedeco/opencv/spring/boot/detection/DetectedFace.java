@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bytedeco.opencv.spring.boot.image.Rect;
+
+/**
+ * 检测到的单个人脸
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DetectedFace {
+
+	private final Rect rect;
+	private final double confidence;
+	private final List<Landmark> landmarks;
+
+	public DetectedFace(Rect rect, double confidence) {
+		this(rect, confidence, Collections.emptyList());
+	}
+
+	public DetectedFace(Rect rect, double confidence, List<Landmark> landmarks) {
+		this.rect = rect;
+		this.confidence = confidence;
+		this.landmarks = landmarks;
+	}
+
+	static DetectedFace of(org.opencv.core.Rect rect, double confidence) {
+		return new DetectedFace(new Rect(rect.x, rect.y, rect.x + rect.width, rect.y + rect.height), confidence);
+	}
+
+	/**
+	 * 人脸区域（原图坐标）
+	 */
+	public Rect getRect() {
+		return rect;
+	}
+
+	public int getWidth() {
+		return rect.right - rect.left;
+	}
+
+	public int getHeight() {
+		return rect.bottom - rect.top;
+	}
+
+	public long getArea() {
+		return (long) getWidth() * getHeight();
+	}
+
+	/**
+	 * 置信度，含义由检测器决定：级联分类器为合并的相邻检测数，越大越可信
+	 */
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * 关键点，检测器不提供时为空
+	 */
+	public List<Landmark> getLandmarks() {
+		return landmarks;
+	}
+
+	/**
+	 * 坐标乘以 factor，用于将缩小图上的检测结果映射回原图
+	 */
+	public DetectedFace scale(double factor) {
+		Rect scaled = new Rect((int) Math.round(rect.left * factor), (int) Math.round(rect.top * factor),
+				(int) Math.round(rect.right * factor), (int) Math.round(rect.bottom * factor));
+		List<Landmark> points = new ArrayList<>(landmarks.size());
+		for (Landmark landmark : landmarks) {
+			points.add(new Landmark(landmark.getName(), (float) (landmark.getX() * factor),
+					(float) (landmark.getY() * factor)));
+		}
+		return new DetectedFace(scaled, confidence, points);
+	}
+
+	/**
+	 * 转换为 OpenCV 的矩形，用于裁剪等后续处理
+	 */
+	public org.opencv.core.Rect toCvRect() {
+		return new org.opencv.core.Rect(rect.left, rect.top, getWidth(), getHeight());
+	}
+
+	@Override
+	public String toString() {
+		return "DetectedFace[" + rect + ", confidence=" + confidence + "]";
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionProperties;
+
+/**
+ * 单次人脸检测的参数，默认值来自 opencv.face.detection，可按次覆盖
+ * <pre>
+ * DetectionOptions options = template.detectionOptions().setWorkingSize(960).setMinNeighbors(5);
+ * Rect[] faces = template.detectFaces(image, options);
+ * </pre>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DetectionOptions {
+
+	private int workingSize;
+	private double scaleFactor = 1.1;
+	private int minNeighbors = 3;
+	private int minSize;
+	private int maxSize;
+	private boolean refine;
+	private double refinePadding = 0.25;
+	private int maxFaces;
+	private boolean reducedDecode;
+
+	public static DetectionOptions of(FacenetFaceRecognitionProperties.Detection detection) {
+		return new DetectionOptions()
+				.setWorkingSize(detection.getWorkingSize())
+				.setScaleFactor(detection.getScaleFactor())
+				.setMinNeighbors(detection.getMinNeighbors())
+				.setMinSize(detection.getMinSize())
+				.setMaxSize(detection.getMaxSize())
+				.setRefine(detection.isRefine())
+				.setRefinePadding(detection.getRefinePadding())
+				.setMaxFaces(detection.getMaxFaces())
+				.setReducedDecode(detection.isReducedDecode());
+	}
+
+	public DetectionOptions copy() {
+		return new DetectionOptions()
+				.setWorkingSize(workingSize)
+				.setScaleFactor(scaleFactor)
+				.setMinNeighbors(minNeighbors)
+				.setMinSize(minSize)
+				.setMaxSize(maxSize)
+				.setRefine(refine)
+				.setRefinePadding(refinePadding)
+				.setMaxFaces(maxFaces)
+				.setReducedDecode(reducedDecode);
+	}
+
+	/**
+	 * 检测前将长边缩小到的像素数，0 表示使用原图
+	 */
+	public int getWorkingSize() {
+		return workingSize;
+	}
+
+	public DetectionOptions setWorkingSize(int workingSize) {
+		this.workingSize = workingSize;
+		return this;
+	}
+
+	public double getScaleFactor() {
+		return scaleFactor;
+	}
+
+	public DetectionOptions setScaleFactor(double scaleFactor) {
+		this.scaleFactor = scaleFactor;
+		return this;
+	}
+
+	public int getMinNeighbors() {
+		return minNeighbors;
+	}
+
+	public DetectionOptions setMinNeighbors(int minNeighbors) {
+		this.minNeighbors = minNeighbors;
+		return this;
+	}
+
+	/**
+	 * 最小人脸边长（原图像素），0 表示不限制
+	 */
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public DetectionOptions setMinSize(int minSize) {
+		this.minSize = minSize;
+		return this;
+	}
+
+	/**
+	 * 最大人脸边长（原图像素），0 表示不限制
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public DetectionOptions setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		return this;
+	}
+
+	/**
+	 * 缩小检测后，是否在原图的人脸区域附近再检测一次以得到精确位置
+	 */
+	public boolean isRefine() {
+		return refine;
+	}
+
+	public DetectionOptions setRefine(boolean refine) {
+		this.refine = refine;
+		return this;
+	}
+
+	/**
+	 * 精确检测时人脸区域向四周扩展的比例
+	 */
+	public double getRefinePadding() {
+		return refinePadding;
+	}
+
+	public DetectionOptions setRefinePadding(double refinePadding) {
+		this.refinePadding = refinePadding;
+		return this;
+	}
+
+	/**
+	 * 最多返回的人脸数（按面积从大到小），0 表示全部返回
+	 */
+	public int getMaxFaces() {
+		return maxFaces;
+	}
+
+	public DetectionOptions setMaxFaces(int maxFaces) {
+		this.maxFaces = maxFaces;
+		return this;
+	}
+
+	/**
+	 * 检测图片数据时，是否按 working-size 直接以缩小的分辨率解码，结果仍为原图坐标；开启 refine 时不生效
+	 */
+	public boolean isReducedDecode() {
+		return reducedDecode;
+	}
+
+	public DetectionOptions setReducedDecode(boolean reducedDecode) {
+		this.reducedDecode = reducedDecode;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "DetectionOptions[workingSize=" + workingSize + ", scaleFactor=" + scaleFactor + ", minNeighbors="
+				+ minNeighbors + ", minSize=" + minSize + ", maxSize=" + maxSize + ", refine=" + refine + ", maxFaces="
+				+ maxFaces + ", reducedDecode=" + reducedDecode + "]";
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 一张图片的人脸检测结果
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DetectionResult {
+
+	private final int imageWidth;
+	private final int imageHeight;
+	private final List<DetectedFace> faces;
+	private final long decodeNanos;
+	private final long detectNanos;
+
+	public DetectionResult(int imageWidth, int imageHeight, List<DetectedFace> faces, long decodeNanos,
+			long detectNanos) {
+		this.imageWidth = imageWidth;
+		this.imageHeight = imageHeight;
+		this.faces = faces;
+		this.decodeNanos = decodeNanos;
+		this.detectNanos = detectNanos;
+	}
+
+	public int getImageWidth() {
+		return imageWidth;
+	}
+
+	public int getImageHeight() {
+		return imageHeight;
+	}
+
+	/**
+	 * 检测到的人脸；设置了 maxFaces 时按面积从大到小排列
+	 */
+	public List<DetectedFace> getFaces() {
+		return faces;
+	}
+
+	public int getFaceCount() {
+		return faces.size();
+	}
+
+	public boolean isEmpty() {
+		return faces.isEmpty();
+	}
+
+	/**
+	 * @return 面积最大的人脸，未检测到人脸时为 null
+	 */
+	public DetectedFace getLargestFace() {
+		DetectedFace largest = null;
+		for (DetectedFace face : faces) {
+			if (largest == null || face.getArea() > largest.getArea()) {
+				largest = face;
+			}
+		}
+		return largest;
+	}
+
+	/**
+	 * 解码耗时（纳秒），直接传入图像时为 0
+	 */
+	public long getDecodeNanos() {
+		return decodeNanos;
+	}
+
+	public long getDetectNanos() {
+		return detectNanos;
+	}
+
+	/**
+	 * JSON 视图，供需要 JSON 输出的场景使用
+	 */
+	public JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		json.put("width", imageWidth);
+		json.put("height", imageHeight);
+		json.put("face_num", faces.size());
+		JSONArray list = new JSONArray(faces.size());
+		for (DetectedFace face : faces) {
+			JSONObject item = new JSONObject();
+			item.put("left", face.getRect().left);
+			item.put("top", face.getRect().top);
+			item.put("width", face.getWidth());
+			item.put("height", face.getHeight());
+			item.put("confidence", face.getConfidence());
+			if (!face.getLandmarks().isEmpty()) {
+				JSONArray landmarks = new JSONArray(face.getLandmarks().size());
+				for (Landmark landmark : face.getLandmarks()) {
+					JSONObject point = new JSONObject();
+					point.put("name", landmark.getName());
+					point.put("x", landmark.getX());
+					point.put("y", landmark.getY());
+					landmarks.add(point);
+				}
+				item.put("landmarks", landmarks);
+			}
+			list.add(item);
+		}
+		json.put("faces", list);
+		JSONObject timings = new JSONObject();
+		timings.put("decode_ms", nanosToMillis(decodeNanos));
+		timings.put("detect_ms", nanosToMillis(detectNanos));
+		json.put("timings", timings);
+		return json;
+	}
+
+	static double nanosToMillis(long nanos) {
+		return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	@Override
+	public String toString() {
+		return "DetectionResult[" + imageWidth + "x" + imageHeight + ", faces=" + faces + "]";
+	}
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+/**
+ * 人脸检测器类型，速度与准确率各有取舍
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum DetectorType {
+
+	/**
+	 * Haar 级联分类器，默认 haarcascades/haarcascade_frontalface_alt.xml
+	 */
+	HAAR("classpath:haarcascades/haarcascade_frontalface_alt.xml"),
+	/**
+	 * LBP 级联分类器，默认 lbpcascades/lbpcascade_frontalface_improved.xml；比 Haar 快数倍，误检略多
+	 */
+	LBP("classpath:lbpcascades/lbpcascade_frontalface_improved.xml"),
+	/**
+	 * opencv_dnn 的 SSD 检测器（如 res10_300x300_ssd），高分辨率下准确率最高，需要配置 opencv.face.detection.dnn.model
+	 */
+	DNN(null);
+
+	private final String defaultCascade;
+
+	DetectorType(String defaultCascade) {
+		this.defaultCascade = defaultCascade;
+	}
+
+	/**
+	 * @return 级联分类器默认的 XML 位置，DNN 为 null
+	 */
+	public String getDefaultCascade() {
+		return defaultCascade;
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionProperties;
+import org.bytedeco.opencv.spring.boot.dnn.DnnModels;
+import org.bytedeco.opencv.spring.boot.image.ScratchMat;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * 基于 opencv_dnn 的 SSD 人脸检测（如 OpenCV 的 res10_300x300_ssd_iter_140000）
+ * <p>图片缩放到固定输入尺寸后推理一次，耗时与原图分辨率基本无关，workingSize 和 refine 不起作用。
+ * 输出为 [1, 1, N, 7]，每行依次为 batchId、classId、置信度和归一化的 x1、y1、x2、y2。
+ * 置信度为 SSD 输出的分数，取值 [0, 1]。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class DnnFaceDetector implements FaceDetector {
+
+	private static final ScratchMat BGR = new ScratchMat(1920 * 1080 * 3);
+
+	private final NativeObjectPool<Net> netPool;
+	private final Size inputSize;
+	private final double scale;
+	private final Scalar mean;
+	private final boolean swapRB;
+	private final double confidenceThreshold;
+
+	public DnnFaceDetector(NativeObjectPool<Net> netPool, FacenetFaceRecognitionProperties.Detection.Dnn dnn) {
+		this.netPool = netPool;
+		this.inputSize = new Size(dnn.getInputWidth(), dnn.getInputHeight());
+		this.scale = dnn.getScale();
+		double[] values = dnn.getMean();
+		this.mean = new Scalar(values == null ? new double[0] : values);
+		this.swapRB = dnn.isSwapRb();
+		this.confidenceThreshold = dnn.getConfidenceThreshold();
+	}
+
+	@Override
+	public List<DetectedFace> detectFaces(Mat image, DetectionOptions options) {
+		Mat bgr = toBgr(image);
+		Mat blob = Dnn.blobFromImage(bgr, scale, inputSize, mean, swapRB, false);
+		try {
+			float[] detections = netPool.execute(net -> DnnModels.forward(net, blob));
+			List<DetectedFace> faces = toFaces(detections, image.cols(), image.rows(), options);
+			if (faces.size() > 1) {
+				faces.sort(Comparator.comparingLong(DetectedFace::getArea).reversed());
+			}
+			if (options.getMaxFaces() > 0 && faces.size() > options.getMaxFaces()) {
+				faces = new ArrayList<>(faces.subList(0, options.getMaxFaces()));
+			}
+			return faces;
+		} finally {
+			blob.release();
+			if (bgr != image) {
+				BGR.recycle(bgr);
+			}
+		}
+	}
+
+	private List<DetectedFace> toFaces(float[] detections, int width, int height, DetectionOptions options) {
+		List<DetectedFace> faces = new ArrayList<>();
+		for (int i = 0; i + 7 <= detections.length; i += 7) {
+			float confidence = detections[i + 2];
+			if (confidence < confidenceThreshold) {
+				continue;
+			}
+			int x1 = clamp(Math.round(detections[i + 3] * width), width);
+			int y1 = clamp(Math.round(detections[i + 4] * height), height);
+			int x2 = clamp(Math.round(detections[i + 5] * width), width);
+			int y2 = clamp(Math.round(detections[i + 6] * height), height);
+			int faceWidth = x2 - x1;
+			int faceHeight = y2 - y1;
+			if (faceWidth <= 0 || faceHeight <= 0) {
+				continue;
+			}
+			int side = Math.max(faceWidth, faceHeight);
+			if (side < options.getMinSize() || (options.getMaxSize() > 0 && side > options.getMaxSize())) {
+				continue;
+			}
+			faces.add(DetectedFace.of(new Rect(x1, y1, faceWidth, faceHeight), confidence));
+		}
+		return faces;
+	}
+
+	private static int clamp(int value, int max) {
+		return Math.max(0, Math.min(value, max));
+	}
+
+	private static Mat toBgr(Mat image) {
+		if (image.channels() == 3) {
+			return image;
+		}
+		Mat bgr = BGR.get();
+		Imgproc.cvtColor(image, bgr, image.channels() == 4 ? Imgproc.COLOR_BGRA2BGR : Imgproc.COLOR_GRAY2BGR);
+		return bgr;
+	}
+
+	@Override
+	public NativeObjectPool<Net> getPool() {
+		return netPool;
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.bytedeco.opencv.spring.boot.image.ImageFactory;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfRect;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.objdetect.CascadeClassifier;
+
+/**
+ * 人脸裁剪与对齐
+ * <ol>
+ * <li>按 {@link ImageFactory#getBestRect(int, int, org.bytedeco.opencv.spring.boot.image.Rect)} 向外扩展人脸区域（可选）</li>
+ * <li>在人脸上半部分检测双眼，按两眼连线旋转使其水平（可选）</li>
+ * <li>缩放到模型输入尺寸；未旋转且尺寸恰好一致时直接返回原图的子矩阵，不复制</li>
+ * </ol>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FaceAligner {
+
+	/**
+	 * 两眼连线倾角小于该值时不旋转
+	 */
+	private static final double MIN_ANGLE = 1.0;
+
+	private final NativeObjectPool<CascadeClassifier> eyeDetectorPool;
+	private final Size outputSize;
+	private final boolean expand;
+
+	/**
+	 * @param eyeDetectorPool 眼睛检测器（haarcascade_eye.xml），为 null 时不做对齐
+	 * @param width 输出宽度
+	 * @param height 输出高度
+	 * @param expand 是否按 getBestRect 扩展人脸区域
+	 */
+	public FaceAligner(NativeObjectPool<CascadeClassifier> eyeDetectorPool, int width, int height, boolean expand) {
+		this.eyeDetectorPool = eyeDetectorPool;
+		this.outputSize = new Size(width, height);
+		this.expand = expand;
+	}
+
+	/**
+	 * @param image 检测时使用的图像（BGR 或灰度）
+	 * @param face 检测到的人脸
+	 * @return 对齐后的人脸，由调用方 close
+	 */
+	public AlignedFace align(Mat image, DetectedFace face) {
+		Rect crop = cropRect(image, face);
+		Point[] eyes = eyeDetectorPool == null ? null : detectEyes(image, face.toCvRect());
+		DetectedFace result = face;
+		double angle = 0;
+		if (eyes != null) {
+			List<Landmark> landmarks = new ArrayList<>(face.getLandmarks());
+			landmarks.add(new Landmark(Landmark.LEFT_EYE, (float) eyes[0].x, (float) eyes[0].y));
+			landmarks.add(new Landmark(Landmark.RIGHT_EYE, (float) eyes[1].x, (float) eyes[1].y));
+			result = new DetectedFace(face.getRect(), face.getConfidence(), landmarks);
+			angle = Math.toDegrees(Math.atan2(eyes[1].y - eyes[0].y, eyes[1].x - eyes[0].x));
+			if (Math.abs(angle) < MIN_ANGLE) {
+				angle = 0;
+			}
+		}
+		// 子矩阵只引用原图数据，不复制
+		Mat region = image.submat(crop);
+		Mat aligned = region;
+		try {
+			if (angle != 0) {
+				// 以两眼中点为中心旋转，坐标换算到裁剪区域内
+				Point center = new Point((eyes[0].x + eyes[1].x) / 2 - crop.x, (eyes[0].y + eyes[1].y) / 2 - crop.y);
+				Mat rotation = Imgproc.getRotationMatrix2D(center, angle, 1.0);
+				aligned = new Mat();
+				try {
+					Imgproc.warpAffine(region, aligned, rotation, region.size(), Imgproc.INTER_LINEAR,
+							Core.BORDER_REPLICATE);
+				} finally {
+					rotation.release();
+				}
+			}
+			if (aligned.cols() == (int) outputSize.width && aligned.rows() == (int) outputSize.height) {
+				Mat output = aligned;
+				aligned = null;
+				return new AlignedFace(output, result, angle);
+			}
+			Mat output = new Mat();
+			int interpolation = aligned.cols() > outputSize.width ? Imgproc.INTER_AREA : Imgproc.INTER_LINEAR;
+			Imgproc.resize(aligned, output, outputSize, 0, 0, interpolation);
+			return new AlignedFace(output, result, angle);
+		} finally {
+			if (aligned != null && aligned != region) {
+				aligned.release();
+			}
+			if (aligned != null || angle != 0) {
+				// region 未作为输出返回
+				region.release();
+			}
+		}
+	}
+
+	private Rect cropRect(Mat image, DetectedFace face) {
+		org.bytedeco.opencv.spring.boot.image.Rect rect = face.getRect();
+		if (expand) {
+			rect = ImageFactory.getBestRect(image.cols(), image.rows(), rect);
+		}
+		int left = Math.max(0, rect.left);
+		int top = Math.max(0, rect.top);
+		int right = Math.min(image.cols(), rect.right);
+		int bottom = Math.min(image.rows(), rect.bottom);
+		return new Rect(left, top, right - left, bottom - top);
+	}
+
+	/**
+	 * 在人脸上半部分检测眼睛，取面积最大的两个
+	 * @return 左眼、右眼（图像坐标，按 x 排序）中心；不足两个时返回 null
+	 */
+	private Point[] detectEyes(Mat image, Rect face) {
+		Rect upper = new Rect(face.x, face.y, face.width, Math.max(1, face.height * 3 / 5));
+		Mat region = image.submat(upper);
+		Mat gray = region;
+		MatOfRect objects = new MatOfRect();
+		try {
+			if (region.channels() > 1) {
+				gray = new Mat();
+				Imgproc.cvtColor(region, gray,
+						region.channels() == 4 ? Imgproc.COLOR_BGRA2GRAY : Imgproc.COLOR_BGR2GRAY);
+			}
+			Mat input = gray;
+			Size minSize = new Size(face.width * 0.1, face.width * 0.1);
+			Size maxSize = new Size(face.width * 0.5, face.width * 0.5);
+			eyeDetectorPool.execute(detector -> {
+				detector.detectMultiScale(input, objects, 1.1, 3, 0, minSize, maxSize);
+				return objects;
+			});
+			Rect[] eyes = objects.toArray();
+			if (eyes.length < 2) {
+				return null;
+			}
+			Arrays.sort(eyes, Comparator.comparingDouble(Rect::area).reversed());
+			Point first = center(eyes[0], upper);
+			Point second = center(eyes[1], upper);
+			return first.x <= second.x ? new Point[] { first, second } : new Point[] { second, first };
+		} finally {
+			objects.release();
+			if (gray != region) {
+				gray.release();
+			}
+			region.release();
+		}
+	}
+
+	private static Point center(Rect eye, Rect offset) {
+		return new Point(offset.x + eye.x + eye.width / 2.0, offset.y + eye.y + eye.height / 2.0);
+	}
+
+	public Size getOutputSize() {
+		return outputSize;
+	}
+
+	/**
+	 * @return 眼睛检测器对象池，未启用眼睛检测时为 null
+	 */
+	public NativeObjectPool<CascadeClassifier> getEyeDetectorPool() {
+		return eyeDetectorPool;
+	}
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import java.util.List;
+
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+/**
+ * 人脸检测器，实现见 {@link DetectorType}
+ * <p>实现类需要线程安全，native 对象通过 {@link NativeObjectPool} 借用</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface FaceDetector {
+
+	/**
+	 * @param image BGR、BGRA 或灰度图
+	 * @param options 检测参数
+	 * @return 原图坐标下的人脸；设置了 maxFaces 时只保留面积最大的 maxFaces 个，按面积从大到小排列
+	 */
+	List<DetectedFace> detectFaces(Mat image, DetectionOptions options);
+
+	/**
+	 * @param image BGR、BGRA 或灰度图
+	 * @param options 检测参数
+	 * @return 原图坐标下的人脸区域
+	 */
+	default Rect[] detect(Mat image, DetectionOptions options) {
+		List<DetectedFace> faces = detectFaces(image, options);
+		Rect[] rects = new Rect[faces.size()];
+		for (int i = 0; i < rects.length; i++) {
+			rects[i] = faces.get(i).toCvRect();
+		}
+		return rects;
+	}
+
+	/**
+	 * @return 检测器使用的 native 对象池，用于监控
+	 */
+	NativeObjectPool<?> getPool();
+
+}
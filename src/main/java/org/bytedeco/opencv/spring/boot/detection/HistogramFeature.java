@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * 灰度直方图特征的纯 Java 运算
+ * <p>特征为归一化到总和 100 的直方图（float[]），与 Imgproc.compareHist(HISTCMP_CORREL) 的结果一致；
+ * 已保存的特征比对时不需要解码图片，也不需要调用 native 方法。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class HistogramFeature {
+
+	/**
+	 * 与 OpenCV compareHist 相同的判零阈值 DBL_EPSILON
+	 */
+	private static final double DBL_EPSILON = Math.ulp(1.0);
+
+	private HistogramFeature() {
+	}
+
+	/**
+	 * 两个直方图的相关系数，取值 [-1, 1]
+	 */
+	public static double correlation(float[] h1, float[] h2) {
+		checkLength(h1, h2);
+		int n = h1.length;
+		double s1 = 0, s2 = 0, s11 = 0, s22 = 0, s12 = 0;
+		for (int i = 0; i < n; i++) {
+			double a = h1[i];
+			double b = h2[i];
+			s1 += a;
+			s2 += b;
+			s11 += a * a;
+			s22 += b * b;
+			s12 += a * b;
+		}
+		double num = s12 - s1 * s2 / n;
+		double denom = (s11 - s1 * s1 / n) * (s22 - s2 * s2 / n);
+		return Math.abs(denom) > DBL_EPSILON ? num / Math.sqrt(denom) : 1;
+	}
+
+	/**
+	 * 一个直方图与多个直方图逐一计算相关系数
+	 * <p>probe 只中心化一次，之后每个候选只需一次遍历累加三个和</p>
+	 * @param probe 待比对的直方图
+	 * @param features 已保存的直方图
+	 * @return 与 features 顺序一致的相关系数
+	 */
+	public static double[] correlation(float[] probe, List<float[]> features) {
+		int n = probe.length;
+		double mean = 0;
+		for (float v : probe) {
+			mean += v;
+		}
+		mean /= n;
+		double[] centered = new double[n];
+		double probeVar = 0;
+		for (int i = 0; i < n; i++) {
+			centered[i] = probe[i] - mean;
+			probeVar += centered[i] * centered[i];
+		}
+		double[] scores = new double[features.size()];
+		for (int j = 0; j < scores.length; j++) {
+			float[] feature = features.get(j);
+			checkLength(probe, feature);
+			// probe 中心化后总和为 0，所以 sum((b - mean(b)) * c) == sum(b * c)
+			double dot = 0, sum = 0, sumSq = 0;
+			for (int i = 0; i < n; i++) {
+				double b = feature[i];
+				dot += b * centered[i];
+				sum += b;
+				sumSq += b * b;
+			}
+			double denom = probeVar * (sumSq - sum * sum / n);
+			scores[j] = Math.abs(denom) > DBL_EPSILON ? dot / Math.sqrt(denom) : 1;
+		}
+		return scores;
+	}
+
+	/**
+	 * 序列化为小端字节，每个值 4 字节
+	 */
+	public static byte[] toBytes(float[] feature) {
+		ByteBuffer buffer = ByteBuffer.allocate(feature.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.asFloatBuffer().put(feature);
+		return buffer.array();
+	}
+
+	/**
+	 * 从 {@link #toBytes(float[])} 的结果还原
+	 */
+	public static float[] fromBytes(byte[] bytes) {
+		if (bytes.length % Float.BYTES != 0) {
+			throw new IllegalArgumentException("histogram feature length must be a multiple of 4");
+		}
+		float[] feature = new float[bytes.length / Float.BYTES];
+		ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(feature);
+		return feature;
+	}
+
+	private static void checkLength(float[] h1, float[] h2) {
+		if (h1.length != h2.length) {
+			throw new IllegalArgumentException("histogram length mismatch: " + h1.length + " != " + h2.length);
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+/**
+ * 人脸关键点（原图坐标）
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class Landmark {
+
+	public static final String LEFT_EYE = "left_eye";
+	public static final String RIGHT_EYE = "right_eye";
+
+	private final String name;
+	private final float x;
+	private final float y;
+
+	public Landmark(String name, float x, float y) {
+		this.name = name;
+		this.x = x;
+		this.y = y;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public float getX() {
+		return x;
+	}
+
+	public float getY() {
+		return y;
+	}
+
+	@Override
+	public String toString() {
+		return "Landmark[" + name + ", " + x + ", " + y + "]";
+	}
+
+}
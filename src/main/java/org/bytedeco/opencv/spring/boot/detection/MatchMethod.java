@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+/**
+ * 人脸比对方式
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum MatchMethod {
+
+	/**
+	 * 灰度直方图相关性，未配置特征模型时使用
+	 */
+	HISTOGRAM,
+	/**
+	 * FaceNet 特征相似度
+	 */
+	EMBEDDING
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.detection;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 两张人脸的比对结果
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class MatchResult {
+
+	private final MatchMethod method;
+	private final double score;
+	private final double distance;
+	private final long decodeNanos;
+	private final long featureNanos;
+	private final long compareNanos;
+
+	public MatchResult(MatchMethod method, double score, double distance, long decodeNanos, long featureNanos,
+			long compareNanos) {
+		this.method = method;
+		this.score = score;
+		this.distance = distance;
+		this.decodeNanos = decodeNanos;
+		this.featureNanos = featureNanos;
+		this.compareNanos = compareNanos;
+	}
+
+	public MatchMethod getMethod() {
+		return method;
+	}
+
+	/**
+	 * 相似度：直方图为相关系数，特征为余弦相似度，取值均为 [-1, 1]
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * 按配置的距离度量计算的特征距离，直方图比对时为 NaN
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	public long getDecodeNanos() {
+		return decodeNanos;
+	}
+
+	/**
+	 * 直方图计算或特征提取（含检测）的耗时
+	 */
+	public long getFeatureNanos() {
+		return featureNanos;
+	}
+
+	public long getCompareNanos() {
+		return compareNanos;
+	}
+
+	/**
+	 * JSON 视图：score，特征比对时另有 distance
+	 */
+	public JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		json.put("score", score);
+		if (method == MatchMethod.EMBEDDING) {
+			json.put("distance", distance);
+		}
+		json.put("method", method.name().toLowerCase());
+		JSONObject timings = new JSONObject();
+		timings.put("decode_ms", DetectionResult.nanosToMillis(decodeNanos));
+		timings.put("feature_ms", DetectionResult.nanosToMillis(featureNanos));
+		timings.put("compare_ms", DetectionResult.nanosToMillis(compareNanos));
+		json.put("timings", timings);
+		return json;
+	}
+
+	@Override
+	public String toString() {
+		return "MatchResult[" + method + ", score=" + score + ", distance=" + distance + "]";
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.dnn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.bytedeco.opencv.spring.boot.startup.ModelResources;
+import org.bytedeco.opencv.spring.boot.startup.NativeLibrary;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.springframework.util.StringUtils;
+
+/**
+ * opencv_dnn 模型加载和推理，特征提取和 DNN 人脸检测共用
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class DnnModels {
+
+	private DnnModels() {
+	}
+
+	/**
+	 * 加载 ONNX / TensorFlow / Caffe 等格式的模型，使用 OpenCV 自带的 CPU 后端
+	 * @param model 模型文件路径，classpath: 开头时直接从内存读取
+	 * @param config 模型配置文件路径（如 Caffe 的 prototxt），可为空
+	 * @return 网络实例
+	 */
+	public static Net readNet(String model, String config) {
+		NativeLibrary.load();
+		Net net;
+		if (ModelResources.isClasspath(model)) {
+			net = readNetFromMemory(model, config);
+		} else {
+			net = StringUtils.hasText(config) ? Dnn.readNet(model, config) : Dnn.readNet(model);
+		}
+		if (net.empty()) {
+			throw new IllegalStateException("Failed to load dnn model: " + model);
+		}
+		net.setPreferableBackend(Dnn.DNN_BACKEND_OPENCV);
+		net.setPreferableTarget(Dnn.DNN_TARGET_CPU);
+		return net;
+	}
+
+	/**
+	 * 推理一次并把输出复制为 float[]
+	 * <p>forward 的结果指向 Net 内部缓冲区，必须在归还 Net 之前复制出来；
+	 * 输出及其 reshape 得到的 Mat 复制后立即释放，不等 GC 回收</p>
+	 * @param net 从对象池借出的网络实例
+	 * @param blob 输入
+	 * @return 按行展开的输出
+	 */
+	public static float[] forward(Net net, Mat blob) {
+		net.setInput(blob);
+		Mat output = net.forward();
+		Mat flat = null;
+		try {
+			flat = output.reshape(1, 1);
+			float[] data = new float[(int) flat.total()];
+			flat.get(0, 0, data);
+			return data;
+		} finally {
+			if (flat != null) {
+				flat.release();
+			}
+			output.release();
+		}
+	}
+
+	/**
+	 * 从类路径读取模型到内存缓冲区后加载，不经过临时文件
+	 */
+	private static Net readNetFromMemory(String model, String config) {
+		MatOfByte modelBuffer = null;
+		MatOfByte configBuffer = null;
+		try {
+			modelBuffer = new MatOfByte(ModelResources.read(model));
+			if (!StringUtils.hasText(config)) {
+				return Dnn.readNet(ModelResources.framework(model), modelBuffer);
+			}
+			configBuffer = new MatOfByte(ModelResources.read(config));
+			return Dnn.readNet(ModelResources.framework(model), modelBuffer, configBuffer);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read dnn model: " + model, e);
+		} finally {
+			if (modelBuffer != null) {
+				modelBuffer.release();
+			}
+			if (configBuffer != null) {
+				configBuffer.release();
+			}
+		}
+	}
+
+}
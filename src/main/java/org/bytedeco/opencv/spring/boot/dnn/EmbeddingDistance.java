@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.dnn;
+
+/**
+ * 人脸特征向量距离，值越小越相似
+ */
+public enum EmbeddingDistance {
+
+	/**
+	 * 欧氏距离
+	 */
+	L2 {
+		@Override
+		public double distance(float[] a, float[] b) {
+			double sum = 0;
+			for (int i = 0; i < a.length; i++) {
+				double d = a[i] - b[i];
+				sum += d * d;
+			}
+			return Math.sqrt(sum);
+		}
+	},
+	/**
+	 * 余弦距离：1 - 余弦相似度
+	 */
+	COSINE {
+		@Override
+		public double distance(float[] a, float[] b) {
+			return 1 - cosineSimilarity(a, b);
+		}
+	};
+
+	public abstract double distance(float[] a, float[] b);
+
+	public static double cosineSimilarity(float[] a, float[] b) {
+		double dot = 0, normA = 0, normB = 0;
+		for (int i = 0; i < a.length; i++) {
+			dot += a[i] * b[i];
+			normA += a[i] * a[i];
+			normB += b[i] * b[i];
+		}
+		if (normA == 0 || normB == 0) {
+			return 0;
+		}
+		return dot / Math.sqrt(normA * normB);
+	}
+
+	/**
+	 * 原地归一化为单位向量
+	 */
+	public static float[] normalize(float[] vector) {
+		double sum = 0;
+		for (float v : vector) {
+			sum += v * v;
+		}
+		if (sum > 0) {
+			float scale = (float) (1 / Math.sqrt(sum));
+			for (int i = 0; i < vector.length; i++) {
+				vector[i] *= scale;
+			}
+		}
+		return vector;
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.dnn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionProperties;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+
+/**
+ * 基于 opencv_dnn 的 FaceNet 人脸特征提取（CPU 后端）
+ * <p>输入为已裁剪的人脸图像（BGR），输出固定长度的 float[] 特征向量，
+ * 特征可缓存后与任意数量的其他特征比对，无需重复解码和推理。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FaceEmbeddingEngine {
+
+	private final NativeObjectPool<Net> netPool;
+	private final Size inputSize;
+	private final double scale;
+	private final Scalar mean;
+	private final boolean swapRB;
+	private final boolean normalize;
+	private final EmbeddingDistance distance;
+
+	public FaceEmbeddingEngine(NativeObjectPool<Net> netPool, FacenetFaceRecognitionProperties.Embedding embedding) {
+		this.netPool = netPool;
+		this.inputSize = new Size(embedding.getInputWidth(), embedding.getInputHeight());
+		this.scale = embedding.getScale();
+		this.mean = new Scalar(embedding.getMean(), embedding.getMean(), embedding.getMean());
+		this.swapRB = embedding.isSwapRb();
+		this.normalize = embedding.isNormalize();
+		this.distance = embedding.getDistance();
+	}
+
+	/**
+	 * 加载 ONNX / TensorFlow 等格式的模型，使用 OpenCV 自带的 CPU 后端，见 {@link DnnModels#readNet(String, String)}
+	 * @param model 模型文件路径，classpath: 开头时直接从内存读取
+	 * @param config 模型配置文件路径，可为空
+	 * @return 网络实例
+	 */
+	public static Net loadNet(String model, String config) {
+		return DnnModels.readNet(model, config);
+	}
+
+	/**
+	 * 提取一张人脸图像的特征
+	 * @param face 已裁剪的人脸图像（BGR）
+	 * @return 特征向量
+	 */
+	public float[] embed(Mat face) {
+		Mat blob = Dnn.blobFromImage(face, scale, inputSize, mean, swapRB, false);
+		try {
+			float[] vector = netPool.execute(net -> DnnModels.forward(net, blob));
+			return normalize ? EmbeddingDistance.normalize(vector) : vector;
+		} finally {
+			blob.release();
+		}
+	}
+
+	/**
+	 * 批量提取人脸特征，所有人脸合并为一个 batch 做一次推理
+	 * <p>要求模型的 batch 维度可变；固定 batch 为 1 的模型请将 opencv.face.batch.size 设为 1</p>
+	 * @param faces 已裁剪的人脸图像（BGR）
+	 * @return 与输入顺序一致的特征向量
+	 */
+	public List<float[]> embed(List<Mat> faces) {
+		if (faces.isEmpty()) {
+			return Collections.emptyList();
+		}
+		if (faces.size() == 1) {
+			return Collections.singletonList(embed(faces.get(0)));
+		}
+		Mat blob = Dnn.blobFromImages(faces, scale, inputSize, mean, swapRB, false);
+		try {
+			float[] output = netPool.execute(net -> DnnModels.forward(net, blob));
+			int dimension = output.length / faces.size();
+			List<float[]> embeddings = new ArrayList<>(faces.size());
+			for (int i = 0; i < faces.size(); i++) {
+				float[] vector = Arrays.copyOfRange(output, i * dimension, (i + 1) * dimension);
+				embeddings.add(normalize ? EmbeddingDistance.normalize(vector) : vector);
+			}
+			return embeddings;
+		} finally {
+			blob.release();
+		}
+	}
+
+	/**
+	 * 按配置的距离度量计算两个特征的距离，值越小越相似
+	 */
+	public double distance(float[] embedding1, float[] embedding2) {
+		return distance.distance(embedding1, embedding2);
+	}
+
+	/**
+	 * 两个特征的余弦相似度，取值 [-1, 1]
+	 */
+	public double similarity(float[] embedding1, float[] embedding2) {
+		return EmbeddingDistance.cosineSimilarity(embedding1, embedding2);
+	}
+
+	public NativeObjectPool<Net> getNetPool() {
+		return netPool;
+	}
+
+	public EmbeddingDistance getDistance() {
+		return distance;
+	}
+
+}
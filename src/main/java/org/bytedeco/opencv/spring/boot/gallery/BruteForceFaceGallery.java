@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 精确检索的人脸库
+ * <p>所有特征按行连续存放在 {@link EmbeddingMatrix} 中，检索时顺序扫描计算点积，
+ * 用原始类型数组构成的堆保留 top-k；删除时用最后一行填补空位，保持存储紧凑。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class BruteForceFaceGallery implements FaceGallery, EmbeddingLoader {
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, Integer> slots = new HashMap<>();
+	private EmbeddingMatrix matrix;
+	private String[] ids;
+	private int count;
+
+	/**
+	 * @param initialCapacity 初始容量（人脸数），特征维度在第一次注册时确定
+	 */
+	public BruteForceFaceGallery(int initialCapacity) {
+		this(0, initialCapacity);
+	}
+
+	public BruteForceFaceGallery(int dimension, int initialCapacity) {
+		this.ids = new String[Math.max(1, initialCapacity)];
+		if (dimension > 0) {
+			this.matrix = new EmbeddingMatrix(dimension);
+			this.matrix.ensureCapacity(ids.length);
+		}
+	}
+
+	@Override
+	public void enroll(String id, float[] embedding) {
+		float[] vector = VectorMath.normalizedCopy(embedding);
+		lock.writeLock().lock();
+		try {
+			requireDimension(vector.length);
+			matrix.set(slotOf(id), vector);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void load(String id, FloatBuffer vector, int dimension) {
+		lock.writeLock().lock();
+		try {
+			requireDimension(dimension);
+			int slot = slotOf(id);
+			matrix.set(slot, vector);
+			matrix.normalize(slot);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void unload(String id) {
+		remove(id);
+	}
+
+	@Override
+	public void loaded() {
+	}
+
+	private void requireDimension(int length) {
+		if (matrix == null) {
+			matrix = new EmbeddingMatrix(length);
+			matrix.ensureCapacity(ids.length);
+		} else if (length != matrix.dimension()) {
+			throw new IllegalArgumentException("embedding dimension " + length + " != " + matrix.dimension());
+		}
+	}
+
+	/**
+	 * id 已存在时返回原有行，否则追加一行
+	 */
+	private int slotOf(String id) {
+		Integer slot = slots.get(id);
+		if (slot == null) {
+			ensureCapacity(count + 1);
+			slot = count++;
+			ids[slot] = id;
+			slots.put(id, slot);
+		}
+		return slot;
+	}
+
+	@Override
+	public boolean remove(String id) {
+		lock.writeLock().lock();
+		try {
+			Integer slot = slots.remove(id);
+			if (slot == null) {
+				return false;
+			}
+			int last = --count;
+			if (slot != last) {
+				matrix.copy(last, slot);
+				ids[slot] = ids[last];
+				slots.put(ids[slot], slot);
+			}
+			ids[last] = null;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(String id) {
+		lock.readLock().lock();
+		try {
+			return slots.containsKey(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SearchHit> search(float[] embedding, int k) {
+		if (k <= 0) {
+			return Collections.emptyList();
+		}
+		float[] query = VectorMath.normalizedCopy(embedding);
+		lock.readLock().lock();
+		try {
+			if (count == 0) {
+				return Collections.emptyList();
+			}
+			if (query.length != matrix.dimension()) {
+				throw new IllegalArgumentException("embedding dimension " + query.length + " != " + matrix.dimension());
+			}
+			ScoreHeap heap = ScoreHeap.minHeap(Math.min(k, count));
+			int dim = matrix.dimension();
+			for (int slot = 0; slot < count;) {
+				float[] chunk = matrix.chunk(slot);
+				int end = slot + Math.min(count - slot, matrix.rowsInChunk(slot));
+				for (int offset = matrix.offset(slot); slot < end; slot++, offset += dim) {
+					heap.offer(slot, VectorMath.dot(query, chunk, offset), k);
+				}
+			}
+			List<SearchHit> hits = new ArrayList<>(heap.size());
+			heap.drainDescending((slot, score) -> hits.add(new SearchHit(ids[slot], score)));
+			return hits;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int getDimension() {
+		lock.readLock().lock();
+		try {
+			return matrix == null ? 0 : matrix.dimension();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > ids.length) {
+			int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, ids.length + (ids.length >> 1)));
+			ids = Arrays.copyOf(ids, newCapacity);
+		}
+		matrix.ensureCapacity(capacity);
+	}
+
+}
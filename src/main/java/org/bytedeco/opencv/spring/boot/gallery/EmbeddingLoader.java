@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 可以从 {@link MappedEmbeddingStore} 的映射区域直接批量加载的人脸库
+ * <p>存储按文件顺序回放记录：{@link #load} 覆盖同一标识之前的特征，{@link #unload} 删除；
+ * 特征从映射区域直接复制到人脸库的特征矩阵并原地归一化，不为每条记录创建中间数组。
+ * 回放结束后调用一次 {@link #loaded()}。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface EmbeddingLoader {
+
+	/**
+	 * 注册一条记录
+	 * @param id 人脸标识
+	 * @param vector 当前位置开始的 dimension 个 float 为未归一化的特征，读取后位置随之前进
+	 * @param dimension 特征维度
+	 */
+	void load(String id, FloatBuffer vector, int dimension);
+
+	/**
+	 * 删除一条记录，标识不存在时忽略
+	 */
+	void unload(String id);
+
+	/**
+	 * 所有记录回放完成
+	 */
+	void loaded();
+
+}
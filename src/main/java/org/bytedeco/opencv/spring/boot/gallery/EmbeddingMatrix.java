@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * 按行存放的特征矩阵，行连续存放在若干个 float[] 块中
+ * <p>单个数组最多约 2^31 个元素，512 维时不到 420 万行；分块后每块最多 2^24 个 float（64MB），
+ * 行号到块号、块内偏移只需移位和掩码，块内偏移始终在 int 范围内。最后一块按需增长。</p>
+ * <p>扩容只替换块表，不修改已有块中的数据：通过 {@link #snapshot()} 取得的视图在之后的追加写入中保持可读。</p>
+ */
+final class EmbeddingMatrix {
+
+	private static final int MAX_CHUNK_FLOATS = 1 << 24;
+
+	private final int dimension;
+	private final int shift;
+	private final int mask;
+	private float[][] chunks;
+	private int capacity;
+
+	EmbeddingMatrix(int dimension) {
+		this(dimension, MAX_CHUNK_FLOATS);
+	}
+
+	/**
+	 * @param maxChunkFloats 每块最多的 float 数，按行数向下取 2 的幂
+	 */
+	EmbeddingMatrix(int dimension, int maxChunkFloats) {
+		if (dimension < 1) {
+			throw new IllegalArgumentException("dimension must be greater than 0");
+		}
+		this.dimension = dimension;
+		int rowsPerChunk = Integer.highestOneBit(Math.max(1, maxChunkFloats / dimension));
+		this.shift = Integer.numberOfTrailingZeros(rowsPerChunk);
+		this.mask = rowsPerChunk - 1;
+		this.chunks = new float[0][];
+	}
+
+	private EmbeddingMatrix(EmbeddingMatrix source) {
+		this.dimension = source.dimension;
+		this.shift = source.shift;
+		this.mask = source.mask;
+		this.chunks = source.chunks;
+		this.capacity = source.capacity;
+	}
+
+	int dimension() {
+		return dimension;
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * 保证至少可以存放 rows 行，最后一块按 1.5 倍增长，其余块为满块
+	 */
+	void ensureCapacity(int rows) {
+		if (rows <= capacity) {
+			return;
+		}
+		int rowsPerChunk = mask + 1;
+		int last = (rows - 1) >>> shift;
+		float[][] grown = Arrays.copyOf(chunks, last + 1);
+		for (int i = 0; i < last; i++) {
+			grown[i] = resize(grown[i], rowsPerChunk);
+		}
+		int current = grown[last] == null ? 0 : grown[last].length / dimension;
+		int needed = rows - (last << shift);
+		int target = Math.min(rowsPerChunk, Math.max(needed, current + (current >> 1)));
+		grown[last] = resize(grown[last], target);
+		chunks = grown;
+		capacity = (last << shift) + target;
+	}
+
+	private float[] resize(float[] chunk, int rows) {
+		if (chunk == null) {
+			return new float[rows * dimension];
+		}
+		return chunk.length < rows * dimension ? Arrays.copyOf(chunk, rows * dimension) : chunk;
+	}
+
+	/**
+	 * 共享当前块表的只读视图
+	 */
+	EmbeddingMatrix snapshot() {
+		return new EmbeddingMatrix(this);
+	}
+
+	/**
+	 * row 所在的块
+	 */
+	float[] chunk(int row) {
+		return chunks[row >>> shift];
+	}
+
+	/**
+	 * row 在所在块中的起始下标
+	 */
+	int offset(int row) {
+		return (row & mask) * dimension;
+	}
+
+	/**
+	 * 从 row 开始、与 row 在同一块中的行数，顺序扫描时按块取出数组
+	 */
+	int rowsInChunk(int row) {
+		return mask + 1 - (row & mask);
+	}
+
+	void set(int row, float[] vector) {
+		System.arraycopy(vector, 0, chunk(row), offset(row), dimension);
+	}
+
+	/**
+	 * 从 buffer 的当前位置批量读取一行，不创建中间数组
+	 */
+	void set(int row, FloatBuffer buffer) {
+		buffer.get(chunk(row), offset(row), dimension);
+	}
+
+	void copy(int from, int to) {
+		System.arraycopy(chunk(from), offset(from), chunk(to), offset(to), dimension);
+	}
+
+	float[] get(int row) {
+		return Arrays.copyOfRange(chunk(row), offset(row), offset(row) + dimension);
+	}
+
+	void copyTo(int row, float[] target) {
+		System.arraycopy(chunk(row), offset(row), target, 0, dimension);
+	}
+
+	void normalize(int row) {
+		VectorMath.normalize(chunk(row), offset(row), dimension);
+	}
+
+	/**
+	 * query 与第 row 行的点积
+	 */
+	float dot(float[] query, int row) {
+		return VectorMath.dot(query, chunk(row), offset(row));
+	}
+
+	/**
+	 * 第 a 行与第 b 行的点积
+	 */
+	float dot(int a, int b) {
+		return VectorMath.dot(chunk(a), offset(a), chunk(b), offset(b), dimension);
+	}
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.util.List;
+
+/**
+ * 人脸库：保存已注册的人脸特征，支持 1:N 检索
+ * <p>特征在注册时归一化为单位向量，相似度为余弦相似度。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface FaceGallery {
+
+	/**
+	 * 注册人脸特征，id 已存在时覆盖
+	 * @param id 人脸标识
+	 * @param embedding 人脸特征
+	 */
+	void enroll(String id, float[] embedding);
+
+	/**
+	 * 删除人脸特征
+	 * @param id 人脸标识
+	 * @return 是否存在并已删除
+	 */
+	boolean remove(String id);
+
+	/**
+	 * 是否已注册
+	 * @param id 人脸标识
+	 */
+	boolean contains(String id);
+
+	/**
+	 * 检索最相似的 k 个人脸
+	 * @param embedding 待检索的人脸特征
+	 * @param k 返回数量
+	 * @return 按相似度从高到低排列的结果
+	 */
+	List<SearchHit> search(float[] embedding, int k);
+
+	/**
+	 * 已注册的人脸数
+	 */
+	int size();
+
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+/**
+ * 人脸库检索方式
+ */
+public enum GalleryMode {
+
+	/**
+	 * 精确检索：逐条计算相似度，结果准确，耗时与库大小成正比；shards 大于 1 时按分片并行检索
+	 */
+	EXACT,
+	/**
+	 * 近似检索：HNSW 图索引，通过 m、ef-construction、ef-search 在召回率与延迟之间权衡
+	 */
+	HNSW
+
+}
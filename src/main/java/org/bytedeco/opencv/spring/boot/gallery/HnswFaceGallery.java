@@ -0,0 +1,684 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于 HNSW（Hierarchical Navigable Small World）图的近似检索人脸库
+ * <ul>
+ * <li>m：每个节点在上层的邻居数，第 0 层为 2m，越大召回越高、内存和构建耗时越大</li>
+ * <li>efConstruction：构建时的候选集大小，越大图质量越好、注册越慢</li>
+ * <li>efSearch：检索时的候选集大小，越大召回越高、检索越慢</li>
+ * </ul>
+ * <p>删除只做标记，节点仍参与图的导航，但不占用结果集的位置，也不会出现在结果中。
+ * 标记删除的节点超过一半时在后台线程上用剩余节点重建索引：重建期间检索和写入继续使用原索引，
+ * 期间的注册、删除同时记录下来，重建完成后在新索引上重放再替换，只有重放和替换时持有写锁。</p>
+ * <p>通过 {@link EmbeddingLoader} 批量加载的特征先直接写入特征矩阵，由后台线程分批建立连接；
+ * 连接完成之前检索退化为精确扫描，结果不受影响。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class HnswFaceGallery implements FaceGallery, EmbeddingLoader {
+
+	/**
+	 * 重建时每次持有读锁复制的节点数
+	 */
+	private static final int REBUILD_BATCH = 1024;
+	/**
+	 * 批量加载后每次持有写锁建立连接的节点数
+	 */
+	private static final int LINK_BATCH = 64;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ThreadLocal<VisitedMarks> visitedMarks = ThreadLocal.withInitial(VisitedMarks::new);
+	private final int m;
+	private final int maxM0;
+	private final int efConstruction;
+	private final int efSearch;
+	private final double levelMultiplier;
+
+	private Graph graph;
+	/**
+	 * 后台重建期间的注册（vector 不为 null）和删除，非重建期间为 null
+	 */
+	private List<PendingWrite> pending;
+	private Thread rebuilder;
+	private Thread linker;
+	/**
+	 * 批量加载开始时的节点数，此后加载的节点尚未建立连接；不在加载中时为 -1
+	 */
+	private int loadStart = -1;
+
+	public HnswFaceGallery(int initialCapacity, int m, int efConstruction, int efSearch) {
+		this.m = Math.max(2, m);
+		this.maxM0 = this.m * 2;
+		this.efConstruction = Math.max(this.m, efConstruction);
+		this.efSearch = Math.max(1, efSearch);
+		this.levelMultiplier = 1 / Math.log(this.m);
+		this.graph = new Graph(Math.max(1, initialCapacity));
+	}
+
+	@Override
+	public void enroll(String id, float[] embedding) {
+		float[] vector = VectorMath.normalizedCopy(embedding);
+		lock.writeLock().lock();
+		try {
+			graph.enroll(id, vector);
+			if (pending != null) {
+				pending.add(new PendingWrite(id, vector));
+			}
+			rebuildIfNeeded();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(String id) {
+		lock.writeLock().lock();
+		try {
+			if (!graph.remove(id)) {
+				return false;
+			}
+			if (pending != null) {
+				pending.add(new PendingWrite(id, null));
+			}
+			rebuildIfNeeded();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(String id) {
+		lock.readLock().lock();
+		try {
+			return graph.nodes.containsKey(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void load(String id, FloatBuffer vector, int dimension) {
+		lock.writeLock().lock();
+		try {
+			if (loadStart < 0) {
+				loadStart = graph.count;
+			}
+			int node = graph.load(id, vector, dimension, loadStart);
+			if (pending != null) {
+				pending.add(new PendingWrite(id, graph.matrix.get(node)));
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void unload(String id) {
+		remove(id);
+	}
+
+	/**
+	 * 启动后台线程为加载的节点建立连接
+	 */
+	@Override
+	public void loaded() {
+		lock.writeLock().lock();
+		try {
+			if (loadStart < 0) {
+				return;
+			}
+			Graph target = graph;
+			target.linkFrom = loadStart;
+			target.linkTo = target.count;
+			loadStart = -1;
+			if (target.linkFrom < target.linkTo && linker == null) {
+				linker = new Thread(() -> link(target), "facenet-hnsw-link");
+				linker.setDaemon(true);
+				linker.start();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public List<SearchHit> search(float[] embedding, int k) {
+		if (k <= 0) {
+			return Collections.emptyList();
+		}
+		float[] query = VectorMath.normalizedCopy(embedding);
+		lock.readLock().lock();
+		try {
+			return graph.search(query, k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return graph.nodes.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * 等待正在进行的后台连接和重建完成
+	 */
+	void awaitIndexing() throws InterruptedException {
+		while (true) {
+			Thread thread;
+			lock.readLock().lock();
+			try {
+				thread = linker != null ? linker : rebuilder;
+			} finally {
+				lock.readLock().unlock();
+			}
+			if (thread == null) {
+				return;
+			}
+			thread.join();
+		}
+	}
+
+	/**
+	 * 分批在写锁下为批量加载的节点建立连接，批次之间释放锁让检索和写入继续
+	 */
+	private void link(Graph target) {
+		float[] vector = new float[target.matrix.dimension()];
+		boolean done = false;
+		try {
+			while (!done) {
+				lock.writeLock().lock();
+				try {
+					for (int i = 0; i < LINK_BATCH && target.linkFrom < target.linkTo; i++) {
+						int node = target.linkFrom++;
+						if (!target.deleted.get(node)) {
+							target.matrix.copyTo(node, vector);
+							target.link(node, vector);
+						}
+					}
+					done = target.linkFrom >= target.linkTo;
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+		} finally {
+			lock.writeLock().lock();
+			try {
+				linker = null;
+				rebuildIfNeeded();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * 标记删除的节点超过一半且没有正在进行的连接、重建时，启动后台重建；调用方持有写锁
+	 */
+	private void rebuildIfNeeded() {
+		if (rebuilder != null || linker != null || loadStart >= 0 || !graph.needsCompaction()) {
+			return;
+		}
+		Graph source = graph;
+		int rows = source.count;
+		int live = source.nodes.size();
+		pending = new ArrayList<>();
+		rebuilder = new Thread(() -> rebuild(source, rows, live), "facenet-hnsw-rebuild");
+		rebuilder.setDaemon(true);
+		rebuilder.start();
+	}
+
+	private void rebuild(Graph source, int rows, int live) {
+		Graph target = null;
+		try {
+			target = copyLive(source, rows, live);
+		} finally {
+			lock.writeLock().lock();
+			try {
+				if (target != null) {
+					for (PendingWrite write : pending) {
+						write.applyTo(target);
+					}
+					graph = target;
+				}
+				pending = null;
+				rebuilder = null;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * 分批在读锁下复制 source 前 rows 个节点中未删除的节点，在锁外插入新图
+	 */
+	private Graph copyLive(Graph source, int rows, int live) {
+		Graph target = new Graph(Math.max(16, live + (live >> 1)));
+		String[] ids = new String[REBUILD_BATCH];
+		float[][] vectors = new float[REBUILD_BATCH][];
+		for (int first = 0; first < rows; first += REBUILD_BATCH) {
+			int size = 0;
+			lock.readLock().lock();
+			try {
+				for (int node = first, end = Math.min(rows, first + REBUILD_BATCH); node < end; node++) {
+					if (!source.deleted.get(node)) {
+						ids[size] = source.nodeIds[node];
+						vectors[size++] = source.matrix.get(node);
+					}
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+			for (int i = 0; i < size; i++) {
+				target.enroll(ids[i], vectors[i]);
+			}
+		}
+		return target;
+	}
+
+	private int maxLinks(int level) {
+		return level == 0 ? maxM0 : m;
+	}
+
+	/**
+	 * 一个完整的图索引，由外层的读写锁保护；重建时构建一个新的实例后替换
+	 */
+	private final class Graph {
+
+		private final Random random = new Random(42);
+		private final Map<String, Integer> nodes = new HashMap<>();
+		private final BitSet deleted = new BitSet();
+		private EmbeddingMatrix matrix;
+		private String[] nodeIds;
+		/**
+		 * links[node][level] 为该节点在 level 层的邻居，下标 0 存放邻居数
+		 */
+		private int[][][] links;
+		private int count;
+		private int deletedCount;
+		private int entryPoint = -1;
+		private int maxLevel = -1;
+		/**
+		 * [linkFrom, linkTo) 为批量加载后尚未建立连接的节点
+		 */
+		private int linkFrom;
+		private int linkTo;
+
+		private Graph(int capacity) {
+			this.nodeIds = new String[capacity];
+			this.links = new int[capacity][][];
+		}
+
+		/**
+		 * @param vector 已归一化的特征
+		 */
+		void enroll(String id, float[] vector) {
+			requireDimension(vector.length);
+			Integer previous = nodes.get(id);
+			if (previous != null) {
+				markDeleted(previous);
+			}
+			int node = append(id);
+			matrix.set(node, vector);
+			link(node, vector);
+			nodes.put(id, node);
+		}
+
+		/**
+		 * 写入特征矩阵但不建立连接；同一标识在本次加载中重复出现时原地覆盖
+		 */
+		int load(String id, FloatBuffer vector, int dimension, int loadStart) {
+			requireDimension(dimension);
+			Integer node = nodes.get(id);
+			if (node == null || node < loadStart) {
+				if (node != null) {
+					markDeleted(node);
+				}
+				node = append(id);
+				nodes.put(id, node);
+			}
+			matrix.set(node, vector);
+			matrix.normalize(node);
+			return node;
+		}
+
+		private void requireDimension(int dimension) {
+			if (matrix == null) {
+				matrix = new EmbeddingMatrix(dimension);
+				matrix.ensureCapacity(nodeIds.length);
+			} else if (dimension != matrix.dimension()) {
+				throw new IllegalArgumentException("embedding dimension " + dimension + " != " + matrix.dimension());
+			}
+		}
+
+		boolean remove(String id) {
+			Integer node = nodes.remove(id);
+			if (node == null) {
+				return false;
+			}
+			markDeleted(node);
+			return true;
+		}
+
+		boolean needsCompaction() {
+			return deletedCount > 0 && deletedCount * 2L >= count;
+		}
+
+		List<SearchHit> search(float[] query, int k) {
+			if (nodes.isEmpty()) {
+				return Collections.emptyList();
+			}
+			if (query.length != matrix.dimension()) {
+				throw new IllegalArgumentException("embedding dimension " + query.length + " != " + matrix.dimension());
+			}
+			ScoreHeap found;
+			if (linkFrom < linkTo) {
+				found = scan(query, k);
+			} else {
+				int current = entryPoint;
+				for (int level = maxLevel; level > 0; level--) {
+					current = greedySearch(query, current, level);
+				}
+				found = searchLayer(query, current, Math.max(efSearch, k), 0, true);
+			}
+			List<SearchHit> hits = new ArrayList<>(Math.min(k, found.size()));
+			found.drainDescending((node, score) -> {
+				if (hits.size() < k) {
+					hits.add(new SearchHit(nodeIds[node], score));
+				}
+			});
+			return hits;
+		}
+
+		/**
+		 * 对所有未删除的节点做精确扫描，批量加载的节点建立连接之前使用
+		 */
+		private ScoreHeap scan(float[] query, int k) {
+			ScoreHeap heap = ScoreHeap.minHeap(Math.min(k, nodes.size()));
+			int dim = query.length;
+			int next = deleted.nextSetBit(0);
+			for (int node = 0; node < count;) {
+				float[] chunk = matrix.chunk(node);
+				int end = node + Math.min(count - node, matrix.rowsInChunk(node));
+				for (int offset = matrix.offset(node); node < end; node++, offset += dim) {
+					if (node == next) {
+						next = deleted.nextSetBit(node + 1);
+						continue;
+					}
+					heap.offer(node, VectorMath.dot(query, chunk, offset), k);
+				}
+			}
+			return heap;
+		}
+
+		private int append(String id) {
+			ensureCapacity(count + 1);
+			int node = count++;
+			nodeIds[node] = id;
+			return node;
+		}
+
+		/**
+		 * 把已写入特征矩阵的节点连接到图中
+		 * @param vector 该节点的特征
+		 */
+		private void link(int node, float[] vector) {
+			int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+			links[node] = new int[level + 1][];
+			for (int l = 0; l <= level; l++) {
+				links[node][l] = new int[maxLinks(l) + 1];
+			}
+			if (entryPoint < 0) {
+				entryPoint = node;
+				maxLevel = level;
+				return;
+			}
+			int current = entryPoint;
+			for (int l = maxLevel; l > level; l--) {
+				current = greedySearch(vector, current, l);
+			}
+			for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+				ScoreHeap found = searchLayer(vector, current, efConstruction, l, false);
+				int[] candidates = new int[found.size()];
+				float[] scores = new float[found.size()];
+				int[] index = { 0 };
+				found.drainDescending((candidate, score) -> {
+					candidates[index[0]] = candidate;
+					scores[index[0]++] = score;
+				});
+				for (int neighbor : selectNeighbors(candidates, scores, m)) {
+					addLink(node, neighbor, l);
+					addLink(neighbor, node, l);
+				}
+				if (candidates.length > 0) {
+					current = candidates[0];
+				}
+			}
+			if (level > maxLevel) {
+				maxLevel = level;
+				entryPoint = node;
+			}
+		}
+
+		/**
+		 * 在上层图中贪心地走向与 query 最相似的节点
+		 */
+		private int greedySearch(float[] query, int start, int level) {
+			int current = start;
+			float currentScore = matrix.dot(query, current);
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				int[] neighbors = links[current][level];
+				for (int i = 1; i <= neighbors[0]; i++) {
+					int neighbor = neighbors[i];
+					float score = matrix.dot(query, neighbor);
+					if (score > currentScore) {
+						current = neighbor;
+						currentScore = score;
+						changed = true;
+					}
+				}
+			}
+			return current;
+		}
+
+		/**
+		 * 在 level 层做 best-first 搜索，返回最相似的 ef 个节点（min 堆）
+		 * @param skipDeleted 为 true 时删除的节点只用于导航，不进入结果集，结果集中始终是 ef 个有效节点
+		 */
+		private ScoreHeap searchLayer(float[] query, int start, int ef, int level, boolean skipDeleted) {
+			VisitedMarks visited = visitedMarks.get();
+			visited.reset(count);
+			ScoreHeap candidates = ScoreHeap.maxHeap(ef);
+			ScoreHeap results = ScoreHeap.minHeap(ef);
+			float startScore = matrix.dot(query, start);
+			visited.visit(start);
+			candidates.push(start, startScore);
+			if (!skipDeleted || !deleted.get(start)) {
+				results.push(start, startScore);
+			}
+			while (!candidates.isEmpty()) {
+				int current = candidates.peekId();
+				float currentScore = candidates.peekScore();
+				if (results.size() >= ef && currentScore < results.peekScore()) {
+					break;
+				}
+				candidates.pop();
+				int[] neighbors = links[current][level];
+				for (int i = 1; i <= neighbors[0]; i++) {
+					int neighbor = neighbors[i];
+					if (!visited.visit(neighbor)) {
+						continue;
+					}
+					float score = matrix.dot(query, neighbor);
+					if (results.size() < ef || score > results.peekScore()) {
+						candidates.push(neighbor, score);
+						if (!skipDeleted || !deleted.get(neighbor)) {
+							results.offer(neighbor, score, ef);
+						}
+					}
+				}
+			}
+			return results;
+		}
+
+		/**
+		 * 启发式选择邻居：按相似度从高到低，只保留与新节点比与已选邻居更相似的候选，
+		 * 使邻居分布在不同方向上；不足 max 个时再按相似度补齐
+		 * @param candidates 按相似度从高到低排列的候选节点
+		 * @param scores 候选节点与新节点的相似度
+		 */
+		private int[] selectNeighbors(int[] candidates, float[] scores, int max) {
+			int[] selected = new int[Math.min(max, candidates.length)];
+			boolean[] taken = new boolean[candidates.length];
+			int size = 0;
+			for (int i = 0; i < candidates.length && size < selected.length; i++) {
+				boolean diverse = true;
+				for (int j = 0; j < size; j++) {
+					if (matrix.dot(candidates[i], selected[j]) > scores[i]) {
+						diverse = false;
+						break;
+					}
+				}
+				if (diverse) {
+					selected[size++] = candidates[i];
+					taken[i] = true;
+				}
+			}
+			for (int i = 0; i < candidates.length && size < selected.length; i++) {
+				if (!taken[i]) {
+					selected[size++] = candidates[i];
+				}
+			}
+			return selected;
+		}
+
+		/**
+		 * 添加 from -> to 的连接；邻居已满时替换掉与 from 最不相似的邻居
+		 */
+		private void addLink(int from, int to, int level) {
+			int[] neighbors = links[from][level];
+			int size = neighbors[0];
+			if (size < neighbors.length - 1) {
+				neighbors[++size] = to;
+				neighbors[0] = size;
+				return;
+			}
+			int worst = -1;
+			float worstScore = matrix.dot(from, to);
+			for (int i = 1; i <= size; i++) {
+				float score = matrix.dot(from, neighbors[i]);
+				if (score < worstScore) {
+					worst = i;
+					worstScore = score;
+				}
+			}
+			if (worst > 0) {
+				neighbors[worst] = to;
+			}
+		}
+
+		private void markDeleted(int node) {
+			if (!deleted.get(node)) {
+				deleted.set(node);
+				deletedCount++;
+			}
+		}
+
+		private void ensureCapacity(int capacity) {
+			if (capacity > nodeIds.length) {
+				int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8,
+						Math.max(capacity, nodeIds.length + (nodeIds.length >> 1)));
+				nodeIds = Arrays.copyOf(nodeIds, newCapacity);
+				links = Arrays.copyOf(links, newCapacity);
+			}
+			matrix.ensureCapacity(capacity);
+		}
+
+	}
+
+	private static final class PendingWrite {
+
+		private final String id;
+		private final float[] vector;
+
+		private PendingWrite(String id, float[] vector) {
+			this.id = id;
+			this.vector = vector;
+		}
+
+		void applyTo(Graph graph) {
+			if (vector != null) {
+				graph.enroll(id, vector);
+			} else {
+				graph.remove(id);
+			}
+		}
+
+	}
+
+	/**
+	 * 每个线程独享的访问标记，通过递增 tag 复用数组，避免每次检索重新分配
+	 */
+	private static class VisitedMarks {
+
+		private int[] marks = new int[0];
+		private int tag;
+
+		void reset(int size) {
+			if (marks.length < size) {
+				marks = new int[Math.max(size, marks.length * 2)];
+				tag = 0;
+			}
+			if (++tag == 0) {
+				Arrays.fill(marks, 0);
+				tag = 1;
+			}
+		}
+
+		/**
+		 * @return 首次访问返回 true
+		 */
+		boolean visit(int node) {
+			if (marks[node] == tag) {
+				return false;
+			}
+			marks[node] = tag;
+			return true;
+		}
+
+	}
+
+}
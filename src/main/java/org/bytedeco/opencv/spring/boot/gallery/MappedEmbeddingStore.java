@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * 人脸特征持久化存储：只追加写入的定长记录文件，启动时通过 {@link FileChannel#map} 读取
+ * <pre>
+ * 文件头（32 字节）：magic | version | dimension | maxIdBytes | recordSize | 保留
+ * 记录（recordSize 字节）：status(1) | idLength(2) | id(maxIdBytes) | float[dimension] | crc32(4)
+ * </pre>
+ * <ul>
+ * <li>删除也是追加一条 status 为删除的记录，同一 id 以最后一条记录为准</li>
+ * <li>每条记录带 CRC 校验，进程崩溃导致的残缺尾部记录在打开时截断，校验失败的记录在读取时跳过</li>
+ * <li>{@link #compact()} 只保留有效记录写入新文件后原子替换，替换后 fsync 所在目录</li>
+ * <li>{@link #load(EmbeddingLoader)} 按文件顺序回放记录，特征从映射区域直接批量复制到人脸库</li>
+ * </ul>
+ * 文件在第一次写入时创建，特征维度取自第一条记录。
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class MappedEmbeddingStore implements Closeable {
+
+	public static final int MAGIC = 0x464E4745;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+	private static final byte LIVE = 1;
+	private static final byte DELETED = 2;
+
+	private final Path file;
+	private final int maxIdBytes;
+	private final boolean sync;
+	private FileChannel channel;
+	private int dimension;
+	private int recordSize;
+	private long records;
+
+	/**
+	 * @param file 存储文件
+	 * @param maxIdBytes 人脸标识 UTF-8 编码后的最大字节数
+	 * @param sync 每次写入后是否 fsync
+	 */
+	public MappedEmbeddingStore(Path file, int maxIdBytes, boolean sync) throws IOException {
+		this.file = file;
+		this.maxIdBytes = maxIdBytes;
+		this.sync = sync;
+		if (file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		if (Files.exists(file) && Files.size(file) >= HEADER_SIZE) {
+			open();
+		}
+	}
+
+	private void open() throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		readFully(header, 0);
+		header.flip();
+		if (header.getInt() != MAGIC) {
+			throw new IOException("Not an embedding store file: " + file);
+		}
+		int version = header.getInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported embedding store version " + version + ": " + file);
+		}
+		dimension = header.getInt();
+		int fileMaxIdBytes = header.getInt();
+		recordSize = header.getInt();
+		if (fileMaxIdBytes != maxIdBytes) {
+			throw new IOException("Embedding store max id bytes " + fileMaxIdBytes + " != " + maxIdBytes + ": " + file);
+		}
+		// 截断崩溃时未写完的尾部记录
+		long size = channel.size();
+		records = (size - HEADER_SIZE) / recordSize;
+		long validSize = HEADER_SIZE + records * recordSize;
+		if (validSize != size) {
+			channel.truncate(validSize);
+		}
+	}
+
+	private void create(int dimension) throws IOException {
+		this.dimension = dimension;
+		this.recordSize = 1 + 2 + maxIdBytes + 4 * dimension + 4;
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		writeFully(header(), 0);
+		channel.force(true);
+		syncDirectory();
+	}
+
+	private ByteBuffer header() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(maxIdBytes).putInt(recordSize);
+		header.clear();
+		return header;
+	}
+
+	public synchronized void append(String id, float[] embedding) throws IOException {
+		if (channel == null) {
+			create(embedding.length);
+		} else if (embedding.length != dimension) {
+			throw new IllegalArgumentException("embedding dimension " + embedding.length + " != " + dimension);
+		}
+		write(LIVE, id, embedding);
+	}
+
+	public synchronized void delete(String id) throws IOException {
+		if (channel == null) {
+			return;
+		}
+		write(DELETED, id, null);
+	}
+
+	private void write(byte status, String id, float[] embedding) throws IOException {
+		byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+		if (idBytes.length > maxIdBytes) {
+			throw new IllegalArgumentException("id exceeds " + maxIdBytes + " bytes: " + id);
+		}
+		ByteBuffer record = ByteBuffer.allocate(recordSize).order(ByteOrder.LITTLE_ENDIAN);
+		record.put(status).putShort((short) idBytes.length).put(idBytes);
+		record.position(3 + maxIdBytes);
+		if (embedding != null) {
+			record.asFloatBuffer().put(embedding);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 0, recordSize - 4);
+		record.putInt(recordSize - 4, (int) crc.getValue());
+		record.clear();
+		writeFully(record, HEADER_SIZE + records * recordSize);
+		if (sync) {
+			channel.force(false);
+		}
+		records++;
+	}
+
+	/**
+	 * 读取所有有效的人脸特征，同一 id 只返回最后写入的一条
+	 * @param consumer 接收 (id, embedding)
+	 * @return 有效记录数
+	 */
+	public synchronized int load(BiConsumer<String, float[]> consumer) throws IOException {
+		if (channel == null) {
+			return 0;
+		}
+		// 第一遍：确定每个 id 最后一条记录的位置
+		Map<String, Long> latest = new HashMap<>();
+		scan((index, status, id, buffer) -> {
+			if (status == LIVE) {
+				latest.put(id, index);
+			} else {
+				latest.remove(id);
+			}
+		});
+		// 第二遍：按文件顺序输出有效记录
+		scan((index, status, id, buffer) -> {
+			Long last = latest.get(id);
+			if (status == LIVE && last != null && last == index) {
+				float[] embedding = new float[dimension];
+				buffer.get(embedding);
+				consumer.accept(id, embedding);
+			}
+		});
+		return latest.size();
+	}
+
+	/**
+	 * 按文件顺序把所有记录回放到 loader：后写入的记录覆盖同一 id 之前的记录，
+	 * 特征从映射区域直接复制，除 id 字符串外不为每条记录创建对象
+	 */
+	public synchronized void load(EmbeddingLoader loader) throws IOException {
+		if (channel != null) {
+			scan((index, status, id, buffer) -> {
+				if (status == LIVE) {
+					loader.load(id, buffer, dimension);
+				} else {
+					loader.unload(id);
+				}
+			});
+		}
+		loader.loaded();
+	}
+
+	/**
+	 * 只保留有效记录，写入临时文件后原子替换原文件
+	 */
+	public synchronized void compact() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+		Path original = file;
+		int compactedDimension = dimension;
+		Files.deleteIfExists(compacted);
+		MappedEmbeddingStore target = new MappedEmbeddingStore(compacted, maxIdBytes, false);
+		try {
+			load((id, embedding) -> {
+				try {
+					target.append(id, embedding);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			if (target.channel == null) {
+				target.create(compactedDimension);
+			}
+			target.channel.force(true);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			target.close();
+		}
+		channel.close();
+		try {
+			Files.move(compacted, original, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			syncDirectory();
+		} finally {
+			// 替换失败时删除临时文件并重新打开原文件，存储仍然可用
+			Files.deleteIfExists(compacted);
+			open();
+		}
+	}
+
+	/**
+	 * fsync 所在目录，使新建和替换文件的目录项落盘；不支持打开目录的平台（Windows）上忽略
+	 */
+	private void syncDirectory() throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		if (directory == null) {
+			return;
+		}
+		try (FileChannel handle = FileChannel.open(directory, StandardOpenOption.READ)) {
+			handle.force(true);
+		} catch (AccessDeniedException e) {
+			// Windows 不允许以文件方式打开目录
+		}
+	}
+
+	/**
+	 * 按窗口映射文件并逐条回调校验通过的记录，单个映射不超过 2GB；
+	 * 回调的特征是映射区域上的 float 视图，位置指向该记录的特征
+	 */
+	private void scan(RecordVisitor visitor) throws IOException {
+		long perWindow = Math.max(1, Integer.MAX_VALUE / recordSize);
+		CRC32 crc = new CRC32();
+		byte[] idBytes = new byte[maxIdBytes];
+		byte[] checked = new byte[recordSize - 4];
+		FloatBuffer[] views = new FloatBuffer[4];
+		for (long first = 0; first < records; first += perWindow) {
+			long count = Math.min(perWindow, records - first);
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * recordSize,
+					count * recordSize);
+			window.order(ByteOrder.LITTLE_ENDIAN);
+			// 记录长度不一定是 4 的倍数，按起始字节对 4 的余数建立 4 个 float 视图，每条记录的特征都落在其中一个视图上
+			for (int r = 0; r < views.length; r++) {
+				ByteBuffer aligned = window.duplicate();
+				aligned.position(Math.min(r, aligned.limit()));
+				views[r] = aligned.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+			}
+			for (int i = 0; i < count; i++) {
+				int offset = i * recordSize;
+				window.position(offset);
+				window.get(checked);
+				crc.reset();
+				crc.update(checked, 0, checked.length);
+				if ((int) crc.getValue() != window.getInt(offset + recordSize - 4)) {
+					continue;
+				}
+				byte status = window.get(offset);
+				int idLength = window.getShort(offset + 1);
+				window.position(offset + 3);
+				window.get(idBytes, 0, idLength);
+				String id = new String(idBytes, 0, idLength, StandardCharsets.UTF_8);
+				int vectorOffset = offset + 3 + maxIdBytes;
+				FloatBuffer vector = views[vectorOffset & 3];
+				vector.position(vectorOffset >> 2);
+				visitor.visit(first + i, status, id, vector);
+			}
+		}
+	}
+
+	private void readFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new IOException("Unexpected end of embedding store: " + file);
+			}
+		}
+	}
+
+	private void writeFully(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	/**
+	 * 文件中的记录总数（含已删除和被覆盖的记录）
+	 */
+	public synchronized long getRecords() {
+		return records;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	private interface RecordVisitor {
+
+		void visit(long index, byte status, String id, FloatBuffer vector) throws IOException;
+
+	}
+
+}
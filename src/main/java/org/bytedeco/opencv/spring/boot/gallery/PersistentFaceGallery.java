@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * 持久化人脸库：注册和删除先写入 {@link MappedEmbeddingStore}，再更新内存索引；
+ * 创建时从存储文件加载已注册的人脸，重启后无需重新提取特征。内存索引实现 {@link EmbeddingLoader} 时，
+ * 特征从映射区域直接批量复制到索引中
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class PersistentFaceGallery implements FaceGallery, Closeable {
+
+	private final FaceGallery delegate;
+	private final MappedEmbeddingStore store;
+
+	public PersistentFaceGallery(FaceGallery delegate, MappedEmbeddingStore store) throws IOException {
+		this.delegate = delegate;
+		this.store = store;
+		if (delegate instanceof EmbeddingLoader) {
+			store.load((EmbeddingLoader) delegate);
+		} else {
+			store.load(delegate::enroll);
+		}
+		// 无效记录超过一半时压缩存储文件
+		if (store.getRecords() > 2L * delegate.size()) {
+			store.compact();
+		}
+	}
+
+	@Override
+	public synchronized void enroll(String id, float[] embedding) {
+		try {
+			store.append(id, embedding);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		delegate.enroll(id, embedding);
+	}
+
+	@Override
+	public synchronized boolean remove(String id) {
+		if (!delegate.contains(id)) {
+			return false;
+		}
+		// 先写删除记录，写入失败时内存中的索引保持不变，与文件一致
+		try {
+			store.delete(id);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return delegate.remove(id);
+	}
+
+	@Override
+	public boolean contains(String id) {
+		return delegate.contains(id);
+	}
+
+	@Override
+	public List<SearchHit> search(float[] embedding, int k) {
+		return delegate.search(embedding, k);
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	public synchronized void compact() throws IOException {
+		store.compact();
+	}
+
+	public FaceGallery getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			store.close();
+		} finally {
+			if (delegate instanceof Closeable) {
+				((Closeable) delegate).close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.util.Arrays;
+
+/**
+ * 基于原始类型数组的 (id, score) 二叉堆，避免检索时装箱和对象分配
+ * <p>min 堆用于保留 top-k（堆顶为当前最差的结果），max 堆用于 HNSW 的候选队列。</p>
+ */
+class ScoreHeap {
+
+	private final boolean min;
+	private int[] ids;
+	private float[] scores;
+	private int size;
+
+	ScoreHeap(int capacity, boolean min) {
+		this.min = min;
+		this.ids = new int[Math.max(1, capacity)];
+		this.scores = new float[Math.max(1, capacity)];
+	}
+
+	static ScoreHeap minHeap(int capacity) {
+		return new ScoreHeap(capacity, true);
+	}
+
+	static ScoreHeap maxHeap(int capacity) {
+		return new ScoreHeap(capacity, false);
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	int peekId() {
+		return ids[0];
+	}
+
+	float peekScore() {
+		return scores[0];
+	}
+
+	/**
+	 * 作为 top-k 使用：未满时加入，已满且优于堆顶时替换堆顶
+	 * @return 是否加入
+	 */
+	boolean offer(int id, float score, int k) {
+		if (size < k) {
+			push(id, score);
+			return true;
+		}
+		if (score > scores[0]) {
+			ids[0] = id;
+			scores[0] = score;
+			siftDown(0);
+			return true;
+		}
+		return false;
+	}
+
+	void push(int id, float score) {
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+			scores = Arrays.copyOf(scores, size * 2);
+		}
+		ids[size] = id;
+		scores[size] = score;
+		siftUp(size++);
+	}
+
+	/**
+	 * 移除堆顶，调用前先通过 peekId/peekScore 读取
+	 */
+	void pop() {
+		size--;
+		if (size > 0) {
+			ids[0] = ids[size];
+			scores[0] = scores[size];
+			siftDown(0);
+		}
+	}
+
+	private boolean before(float a, float b) {
+		return min ? a < b : a > b;
+	}
+
+	private void siftUp(int i) {
+		int id = ids[i];
+		float score = scores[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (!before(score, scores[parent])) {
+				break;
+			}
+			ids[i] = ids[parent];
+			scores[i] = scores[parent];
+			i = parent;
+		}
+		ids[i] = id;
+		scores[i] = score;
+	}
+
+	private void siftDown(int i) {
+		int id = ids[i];
+		float score = scores[i];
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if (right < size && before(scores[right], scores[child])) {
+				child = right;
+			}
+			if (!before(scores[child], score)) {
+				break;
+			}
+			ids[i] = ids[child];
+			scores[i] = scores[child];
+			i = child;
+		}
+		ids[i] = id;
+		scores[i] = score;
+	}
+
+	/**
+	 * 以相似度从高到低的顺序取出全部元素（仅限 min 堆），取出后堆为空
+	 * @param sink 接收 (id, score)
+	 */
+	void drainDescending(Sink sink) {
+		int n = size;
+		int[] sortedIds = new int[n];
+		float[] sortedScores = new float[n];
+		for (int i = n - 1; i >= 0; i--) {
+			sortedIds[i] = ids[0];
+			sortedScores[i] = scores[0];
+			pop();
+		}
+		for (int i = 0; i < n; i++) {
+			sink.accept(sortedIds[i], sortedScores[i]);
+		}
+	}
+
+	interface Sink {
+
+		void accept(int id, float score);
+
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+/**
+ * 人脸库检索结果
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class SearchHit {
+
+	private final String id;
+	private final float score;
+
+	public SearchHit(String id, float score) {
+		this.id = id;
+		this.score = score;
+	}
+
+	/**
+	 * 注册时使用的人脸标识
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * 余弦相似度，越大越相似
+	 */
+	public float getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchHit(" + id + ", " + score + ")";
+	}
+
+}
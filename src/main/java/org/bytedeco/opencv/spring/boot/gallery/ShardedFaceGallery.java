@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import java.io.Closeable;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 分片的精确检索人脸库
+ * <p>人脸按标识的哈希分到 N 个分片，检索时通过 ForkJoinPool 并行扫描各分片，再合并各分片的 top-k。
+ * 每个分片的数据以不可变快照发布：注册只在快照末尾之后追加并发布新快照，覆盖和删除只在行上记下递增的删除序号，
+ * 快照只把序号不大于发布时序号的行视为已删除，已发布的行不会被修改，因此检索不加锁，也不会被写入阻塞，
+ * 每次发布也只分配一个快照对象，不复制删除标记；写入按分片串行，不同分片之间互不影响。
+ * 删除的行多于有效行数时重建分片，回收空间。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class ShardedFaceGallery implements FaceGallery, EmbeddingLoader, Closeable {
+
+	/**
+	 * 人脸数少于该值时在调用线程上依次扫描各分片，并行的调度开销大于收益
+	 */
+	private static final int PARALLEL_THRESHOLD = 4096;
+
+	private final Shard[] shards;
+	private final ForkJoinPool pool;
+	private final boolean sharedPool;
+	private volatile int dimension;
+
+	/**
+	 * 使用 {@link ForkJoinPool#commonPool()} 并行检索
+	 * @param shardCount 分片数
+	 * @param initialCapacity 初始容量（人脸数），平均分配到各分片
+	 */
+	public ShardedFaceGallery(int shardCount, int initialCapacity) {
+		this(shardCount, initialCapacity, 0);
+	}
+
+	/**
+	 * @param shardCount 分片数
+	 * @param initialCapacity 初始容量（人脸数），平均分配到各分片
+	 * @param parallelism 检索线程数，0 使用 {@link ForkJoinPool#commonPool()}
+	 */
+	public ShardedFaceGallery(int shardCount, int initialCapacity, int parallelism) {
+		if (shardCount < 1) {
+			throw new IllegalArgumentException("shardCount must be greater than 0");
+		}
+		this.shards = new Shard[shardCount];
+		int shardCapacity = Math.max(16, initialCapacity / shardCount);
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard(shardCapacity);
+		}
+		this.sharedPool = parallelism <= 0;
+		this.pool = sharedPool ? ForkJoinPool.commonPool()
+				: new ForkJoinPool(parallelism, ShardedFaceGallery::newWorkerThread, null, false);
+	}
+
+	private static ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("facenet-gallery-" + thread.getPoolIndex());
+		return thread;
+	}
+
+	@Override
+	public void enroll(String id, float[] embedding) {
+		float[] vector = VectorMath.normalizedCopy(embedding);
+		requireDimension(vector.length);
+		shardOf(id).enroll(id, vector);
+	}
+
+	@Override
+	public boolean remove(String id) {
+		return shardOf(id).remove(id);
+	}
+
+	@Override
+	public boolean contains(String id) {
+		return shardOf(id).contains(id);
+	}
+
+	/**
+	 * 加载期间只更新各分片的写入状态，{@link #loaded()} 时统一发布快照
+	 */
+	@Override
+	public void load(String id, FloatBuffer vector, int dimension) {
+		requireDimension(dimension);
+		shardOf(id).load(id, vector, dimension);
+	}
+
+	@Override
+	public void unload(String id) {
+		shardOf(id).unload(id);
+	}
+
+	@Override
+	public void loaded() {
+		for (Shard shard : shards) {
+			shard.loaded();
+		}
+	}
+
+	@Override
+	public List<SearchHit> search(float[] embedding, int k) {
+		if (k <= 0 || dimension == 0) {
+			return Collections.emptyList();
+		}
+		float[] query = VectorMath.normalizedCopy(embedding);
+		if (query.length != dimension) {
+			throw new IllegalArgumentException("embedding dimension " + query.length + " != " + dimension);
+		}
+		if (shards.length == 1 || size() < PARALLEL_THRESHOLD) {
+			List<SearchHit> hits = Collections.emptyList();
+			for (Shard shard : shards) {
+				hits = merge(hits, shard.search(query, k), k);
+			}
+			return hits;
+		}
+		return pool.invoke(new SearchTask(query, k, 0, shards.length));
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Shard shard : shards) {
+			size += shard.snapshot.live;
+		}
+		return size;
+	}
+
+	public int getDimension() {
+		return dimension;
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * 停止检索线程池，使用 commonPool 时不做处理
+	 */
+	@Override
+	public void close() {
+		if (!sharedPool) {
+			pool.shutdown();
+		}
+	}
+
+	private Shard shardOf(String id) {
+		int h = id.hashCode();
+		h ^= h >>> 16;
+		return shards[(h & Integer.MAX_VALUE) % shards.length];
+	}
+
+	private void requireDimension(int length) {
+		if (dimension == 0) {
+			synchronized (this) {
+				if (dimension == 0) {
+					dimension = length;
+				}
+			}
+		}
+		if (length != dimension) {
+			throw new IllegalArgumentException("embedding dimension " + length + " != " + dimension);
+		}
+	}
+
+	/**
+	 * 合并两个按相似度从高到低排列的结果，保留前 k 个
+	 */
+	private static List<SearchHit> merge(List<SearchHit> a, List<SearchHit> b, int k) {
+		if (b.isEmpty()) {
+			return a;
+		}
+		if (a.isEmpty()) {
+			return b;
+		}
+		List<SearchHit> hits = new ArrayList<>(Math.min(k, a.size() + b.size()));
+		int i = 0, j = 0;
+		while (hits.size() < k && (i < a.size() || j < b.size())) {
+			if (j == b.size() || (i < a.size() && a.get(i).getScore() >= b.get(j).getScore())) {
+				hits.add(a.get(i++));
+			} else {
+				hits.add(b.get(j++));
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * 二分分片区间并行检索，叶子为单个分片
+	 */
+	private final class SearchTask extends RecursiveTask<List<SearchHit>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final float[] query;
+		private final int k;
+		private final int from;
+		private final int to;
+
+		private SearchTask(float[] query, int k, int from, int to) {
+			this.query = query;
+			this.k = k;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<SearchHit> compute() {
+			if (to - from == 1) {
+				return shards[from].search(query, k);
+			}
+			int mid = (from + to) >>> 1;
+			SearchTask left = new SearchTask(query, k, from, mid);
+			left.fork();
+			List<SearchHit> right = new SearchTask(query, k, mid, to).compute();
+			return merge(left.join(), right, k);
+		}
+
+	}
+
+	/**
+	 * 分片的不可变视图：[0, count) 行在发布后不再修改，之后的行只由持有锁的写入方追加。
+	 * 删除序号在发布后仍可能被写入，但写入的值总是大于 sequence，对该快照而言这些行仍然有效
+	 */
+	private static final class Snapshot {
+
+		private static final Snapshot EMPTY = new Snapshot(new String[0], null, 0, new int[0], 0, 0);
+
+		private final String[] ids;
+		private final EmbeddingMatrix matrix;
+		private final int count;
+		private final int[] deletedAt;
+		private final int sequence;
+		private final int live;
+
+		private Snapshot(String[] ids, EmbeddingMatrix matrix, int count, int[] deletedAt, int sequence, int live) {
+			this.ids = ids;
+			this.matrix = matrix;
+			this.count = count;
+			this.deletedAt = deletedAt;
+			this.sequence = sequence;
+			this.live = live;
+		}
+
+		/**
+		 * 行在发布该快照之前已被删除
+		 */
+		boolean isDeleted(int slot) {
+			int at = deletedAt[slot];
+			return at != 0 && at <= sequence;
+		}
+
+	}
+
+	/**
+	 * 写入方的状态只在持有分片锁时访问，修改后通过 {@link #publish()} 发布新的快照
+	 */
+	private static final class Shard {
+
+		/**
+		 * 标识到行号
+		 */
+		private final Map<String, Integer> slots = new HashMap<>();
+		private EmbeddingMatrix matrix;
+		private String[] ids;
+		/**
+		 * 行的删除序号，0 表示有效；序号从 1 递增，重建分片时归零
+		 */
+		private int[] deletedAt;
+		private int sequence;
+		private int count;
+		private int live;
+		private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+		private Shard(int initialCapacity) {
+			this.ids = new String[initialCapacity];
+			this.deletedAt = new int[initialCapacity];
+		}
+
+		synchronized void enroll(String id, float[] vector) {
+			EmbeddingMatrix rows = matrix(vector.length);
+			rows.set(append(id), vector);
+			publish();
+		}
+
+		synchronized boolean remove(String id) {
+			if (!delete(id)) {
+				return false;
+			}
+			publish();
+			return true;
+		}
+
+		synchronized boolean contains(String id) {
+			return slots.containsKey(id);
+		}
+
+		synchronized void load(String id, FloatBuffer vector, int dimension) {
+			EmbeddingMatrix rows = matrix(dimension);
+			int slot = append(id);
+			rows.set(slot, vector);
+			rows.normalize(slot);
+		}
+
+		synchronized void unload(String id) {
+			delete(id);
+		}
+
+		synchronized void loaded() {
+			publish();
+		}
+
+		private EmbeddingMatrix matrix(int dimension) {
+			if (matrix == null) {
+				matrix = new EmbeddingMatrix(dimension);
+				matrix.ensureCapacity(ids.length);
+			}
+			return matrix;
+		}
+
+		/**
+		 * 追加一行；覆盖时标记旧行删除后追加新行，正在检索旧快照的线程不会读到写了一半的向量
+		 */
+		private int append(String id) {
+			Integer previous = slots.get(id);
+			if (previous != null) {
+				deletedAt[previous] = ++sequence;
+			} else {
+				live++;
+			}
+			if (count == ids.length) {
+				// 旧快照继续引用原数组，之后的删除序号只写入新数组，对旧快照本来也不可见
+				int capacity = (int) Math.min(Integer.MAX_VALUE - 8, count + (count >> 1) + 1L);
+				ids = Arrays.copyOf(ids, capacity);
+				deletedAt = Arrays.copyOf(deletedAt, capacity);
+			}
+			matrix.ensureCapacity(count + 1);
+			int slot = count++;
+			ids[slot] = id;
+			slots.put(id, slot);
+			return slot;
+		}
+
+		private boolean delete(String id) {
+			Integer slot = slots.remove(id);
+			if (slot == null) {
+				return false;
+			}
+			deletedAt[slot] = ++sequence;
+			live--;
+			return true;
+		}
+
+		/**
+		 * 删除的行多于有效行时，先将有效行复制到新的矩阵，再发布快照；
+		 * 快照与写入方共享数组，发布的开销与行数无关
+		 */
+		private void publish() {
+			int tombstones = count - live;
+			if (tombstones >= 64 && tombstones > live) {
+				compact();
+			}
+			snapshot = new Snapshot(ids, matrix == null ? null : matrix.snapshot(), count, deletedAt, sequence, live);
+		}
+
+		private void compact() {
+			int capacity = Math.max(16, live + (live >> 1));
+			String[] compactedIds = new String[capacity];
+			int[] compactedDeletedAt = new int[capacity];
+			EmbeddingMatrix compacted = new EmbeddingMatrix(matrix.dimension());
+			compacted.ensureCapacity(capacity);
+			int size = 0;
+			float[] row = new float[matrix.dimension()];
+			for (int slot = 0; slot < count; slot++) {
+				if (deletedAt[slot] == 0) {
+					System.arraycopy(matrix.chunk(slot), matrix.offset(slot), row, 0, row.length);
+					compacted.set(size, row);
+					compactedIds[size] = ids[slot];
+					slots.put(ids[slot], size);
+					size++;
+				}
+			}
+			ids = compactedIds;
+			deletedAt = compactedDeletedAt;
+			matrix = compacted;
+			count = size;
+			sequence = 0;
+		}
+
+		List<SearchHit> search(float[] query, int k) {
+			Snapshot current = snapshot;
+			if (current.live == 0) {
+				return Collections.emptyList();
+			}
+			ScoreHeap heap = ScoreHeap.minHeap(Math.min(k, current.live));
+			EmbeddingMatrix rows = current.matrix;
+			int dim = query.length;
+			for (int slot = 0; slot < current.count;) {
+				float[] chunk = rows.chunk(slot);
+				int end = slot + Math.min(current.count - slot, rows.rowsInChunk(slot));
+				for (int offset = rows.offset(slot); slot < end; slot++, offset += dim) {
+					if (current.isDeleted(slot)) {
+						continue;
+					}
+					heap.offer(slot, VectorMath.dot(query, chunk, offset), k);
+				}
+			}
+			String[] ids = current.ids;
+			List<SearchHit> hits = new ArrayList<>(heap.size());
+			heap.drainDescending((slot, score) -> hits.add(new SearchHit(ids[slot], score)));
+			return hits;
+		}
+
+	}
+
+}
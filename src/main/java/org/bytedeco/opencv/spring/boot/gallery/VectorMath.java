@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+/**
+ * 特征向量运算
+ * <p>点积按 4 路独立累加展开：C2 不会对浮点归约做自动向量化，多路累加可以打破加法依赖链，
+ * 让 CPU 流水线并行执行乘加。</p>
+ */
+final class VectorMath {
+
+	private VectorMath() {
+	}
+
+	/**
+	 * a 与 matrix 中从 offset 开始的向量的点积
+	 */
+	static float dot(float[] a, float[] matrix, int offset) {
+		int length = a.length;
+		float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = 0;
+		for (int bound = length & ~3; i < bound; i += 4) {
+			s0 += a[i] * matrix[offset + i];
+			s1 += a[i + 1] * matrix[offset + i + 1];
+			s2 += a[i + 2] * matrix[offset + i + 2];
+			s3 += a[i + 3] * matrix[offset + i + 3];
+		}
+		for (; i < length; i++) {
+			s0 += a[i] * matrix[offset + i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * a 中从 aOffset 开始与 b 中从 bOffset 开始的两个 length 维向量的点积
+	 */
+	static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+		float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+		int i = 0;
+		for (int bound = length & ~3; i < bound; i += 4) {
+			s0 += a[aOffset + i] * b[bOffset + i];
+			s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+			s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+			s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+		}
+		for (; i < length; i++) {
+			s0 += a[aOffset + i] * b[bOffset + i];
+		}
+		return (s0 + s1) + (s2 + s3);
+	}
+
+	/**
+	 * 将 matrix 中从 offset 开始的 length 维向量原地归一化
+	 */
+	static void normalize(float[] matrix, int offset, int length) {
+		double sum = 0;
+		for (int i = 0; i < length; i++) {
+			float v = matrix[offset + i];
+			sum += v * v;
+		}
+		if (sum == 0) {
+			return;
+		}
+		float scale = (float) (1 / Math.sqrt(sum));
+		for (int i = 0; i < length; i++) {
+			matrix[offset + i] *= scale;
+		}
+	}
+
+	/**
+	 * 返回归一化后的副本，不修改入参
+	 */
+	static float[] normalizedCopy(float[] vector) {
+		double sum = 0;
+		for (float v : vector) {
+			sum += v * v;
+		}
+		float[] copy = new float[vector.length];
+		if (sum == 0) {
+			return copy;
+		}
+		float scale = (float) (1 / Math.sqrt(sum));
+		for (int i = 0; i < vector.length; i++) {
+			copy[i] = vector[i] * scale;
+		}
+		return copy;
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.health;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+import org.bytedeco.opencv.spring.boot.startup.FaceRecognitionWarmUp;
+import org.bytedeco.opencv.spring.boot.startup.InitializationMode;
+import org.bytedeco.opencv.spring.boot.startup.NativeLibrary;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+
+/**
+ * 人脸识别就绪状态
+ * <ul>
+ * <li>预热完成：UP</li>
+ * <li>预热中，或 EAGER、BACKGROUND 模式下尚未开始预热：OUT_OF_SERVICE</li>
+ * <li>LAZY 模式下尚未使用：UP，首次使用时再加载</li>
+ * <li>预热失败：DOWN</li>
+ * </ul>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FaceRecognitionHealthIndicator extends AbstractHealthIndicator {
+
+	private final FaceRecognitionWarmUp warmUp;
+	private final NativeObjectPool<?> detectorPool;
+
+	public FaceRecognitionHealthIndicator(FaceRecognitionWarmUp warmUp, NativeObjectPool<?> detectorPool) {
+		super("Face recognition health check failed");
+		this.warmUp = warmUp;
+		this.detectorPool = detectorPool;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		FaceRecognitionWarmUp.State state = warmUp.getState();
+		switch (state) {
+		case READY:
+			builder.up().withDetail("warmUpMillis", TimeUnit.NANOSECONDS.toMillis(warmUp.getDurationNanos()));
+			break;
+		case FAILED:
+			builder.down(warmUp.getError());
+			break;
+		default:
+			if (warmUp.getMode() == InitializationMode.LAZY && state == FaceRecognitionWarmUp.State.PENDING) {
+				builder.up();
+			} else {
+				builder.outOfService();
+			}
+			break;
+		}
+		builder.withDetail("mode", warmUp.getMode()).withDetail("state", state)
+				.withDetail("nativeLoaded", NativeLibrary.isLoaded())
+				.withDetail("detectors", detectorPool.getCreated());
+	}
+
+}
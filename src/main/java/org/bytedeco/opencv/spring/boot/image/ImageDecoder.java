@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.IOUtils;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ * 内存图片解码：直接对字节数据调用 {@link Imgcodecs#imdecode(Mat, int)}，不经过临时文件
+ * <p>解码失败时返回空的 {@link Mat}（{@link Mat#empty()} 为 true），由调用方判断处理</p>
+ */
+public class ImageDecoder {
+
+    private ImageDecoder() {
+    }
+
+    public static Mat decode(File file, int flags) {
+        return Imgcodecs.imread(file.getPath(), flags);
+    }
+
+    /**
+     * 按 1/factor 的分辨率读取文件，见 {@link #decode(byte[], int, int)}
+     */
+    public static Mat decode(File file, int flags, int factor) {
+        return Imgcodecs.imread(file.getPath(), reducedFlags(flags, factor));
+    }
+
+    public static Mat decode(byte[] bytes, int flags) {
+        return decode(bytes, 0, bytes.length, flags);
+    }
+
+    public static Mat decode(byte[] bytes, int offset, int length, int flags) {
+        MatOfByte buf = new MatOfByte(offset, length, bytes);
+        try {
+            return Imgcodecs.imdecode(buf, flags);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * 解码 {@link ByteBuffer} 中 position 到 limit 之间的数据，不改变其 position。
+     * 堆外（direct）缓冲区直接包装为 {@link Mat}，不发生拷贝
+     */
+    public static Mat decode(ByteBuffer buffer, int flags) {
+        if (buffer.hasArray()) {
+            return decode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), flags);
+        }
+        if (buffer.isDirect()) {
+            Mat buf = new Mat(1, buffer.remaining(), CvType.CV_8UC1, buffer.slice());
+            try {
+                return Imgcodecs.imdecode(buf, flags);
+            } finally {
+                buf.release();
+            }
+        }
+        // 只读堆缓冲区无法访问底层数组，只能复制一份
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return decode(bytes, flags);
+    }
+
+    public static Mat decode(InputStream input, int flags) throws IOException {
+        return decode(IOUtils.toByteArray(input), flags);
+    }
+
+    /**
+     * 按 1/factor 的分辨率解码：JPEG 在 DCT 阶段直接缩小，解码耗时和内存都随之减少，其他格式解码后再缩小
+     *
+     * @param flags IMREAD_COLOR 或 IMREAD_GRAYSCALE
+     * @param factor 1、2、4 或 8，见 {@link ImageFactory#subsampling(int, int, int)}
+     */
+    public static Mat decode(byte[] bytes, int flags, int factor) {
+        return decode(bytes, reducedFlags(flags, factor));
+    }
+
+    /**
+     * 将 IMREAD_COLOR、IMREAD_GRAYSCALE 转换为对应的 IMREAD_REDUCED_* 标志，factor 为 1 时不变
+     */
+    public static int reducedFlags(int flags, int factor) {
+        if (factor == 1) {
+            return flags;
+        }
+        boolean gray = flags == Imgcodecs.IMREAD_GRAYSCALE;
+        if (!gray && flags != Imgcodecs.IMREAD_COLOR) {
+            throw new IllegalArgumentException("reduced decode supports IMREAD_COLOR and IMREAD_GRAYSCALE only");
+        }
+        switch (factor) {
+        case 2:
+            return gray ? Imgcodecs.IMREAD_REDUCED_GRAYSCALE_2 : Imgcodecs.IMREAD_REDUCED_COLOR_2;
+        case 4:
+            return gray ? Imgcodecs.IMREAD_REDUCED_GRAYSCALE_4 : Imgcodecs.IMREAD_REDUCED_COLOR_4;
+        case 8:
+            return gray ? Imgcodecs.IMREAD_REDUCED_GRAYSCALE_8 : Imgcodecs.IMREAD_REDUCED_COLOR_8;
+        default:
+            throw new IllegalArgumentException("factor must be 1, 2, 4 or 8: " + factor);
+        }
+    }
+
+}
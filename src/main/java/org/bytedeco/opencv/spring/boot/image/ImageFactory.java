@@ -16,14 +16,26 @@
 package org.bytedeco.opencv.spring.boot.image;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.FileImageInputStream;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorConvertOp;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
 
 public class ImageFactory {
 
@@ -118,7 +130,156 @@ public class ImageFactory {
     }
 
 
+    /**
+     * 按 subsampling 隔行隔列读取后转换为 BGR24 数据，解码时只保留采样后的像素
+     *
+     * @param subsampling 采样间隔，1 为原图，2 为宽高各缩小一半，见 {@link #subsampling(int, int, int)}
+     * @return 图像信息，无法解码时返回 null
+     */
+    public static ImageInfo getRGBData(File file, int subsampling) {
+        if (file == null)
+            return null;
+        try (ImageInputStream input = new FileImageInputStream(file)) {
+            BufferedImage image = read(input, subsampling);
+            return image == null ? null : bufferedImage2ImageInfo(image);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static ImageInfo getGrayData(File file, int subsampling) {
+        if (file == null)
+            return null;
+        try (ImageInputStream input = new FileImageInputStream(file)) {
+            BufferedImage image = read(input, subsampling);
+            return image == null ? null : bufferedImage2GrayImageInfo(image);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static ImageInfo getRGBData(byte[] bytes, int subsampling) {
+        if (bytes == null)
+            return null;
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes))) {
+            BufferedImage image = read(input, subsampling);
+            return image == null ? null : bufferedImage2ImageInfo(image);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static ImageInfo getGrayData(byte[] bytes, int subsampling) {
+        if (bytes == null)
+            return null;
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes))) {
+            BufferedImage image = read(input, subsampling);
+            return image == null ? null : bufferedImage2GrayImageInfo(image);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 只读取文件头中的宽、高和格式名称，不解码像素
+     *
+     * @return 图像信息，imageData 为 null；ImageIO 不支持的格式返回 null
+     */
+    public static ImageInfo getImageInfo(File file) {
+        if (file == null)
+            return null;
+        try (ImageInputStream input = new FileImageInputStream(file)) {
+            return readImageInfo(input);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static ImageInfo getImageInfo(byte[] bytes) {
+        if (bytes == null)
+            return null;
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes))) {
+            return readImageInfo(input);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static ImageInfo getImageInfo(InputStream input) {
+        if (input == null)
+            return null;
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(input)) {
+            return readImageInfo(stream);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 长边不小于 targetSize 的最大采样间隔（2 的幂，最大为 8）
+     *
+     * @param targetSize 需要的长边像素数，0 表示不缩小
+     */
+    public static int subsampling(int width, int height, int targetSize) {
+        int longSide = Math.max(width, height);
+        int subsampling = 1;
+        while (targetSize > 0 && subsampling < 8 && longSide / (subsampling * 2) >= targetSize) {
+            subsampling *= 2;
+        }
+        return subsampling;
+    }
+
+    private static ImageInfo readImageInfo(ImageInputStream input) throws IOException {
+        ImageReader reader = reader(input);
+        if (reader == null) {
+            return null;
+        }
+        try {
+            reader.setInput(input, true, true);
+            ImageInfo imageInfo = new ImageInfo();
+            imageInfo.setWidth(reader.getWidth(0));
+            imageInfo.setHeight(reader.getHeight(0));
+            imageInfo.setFormatName(reader.getFormatName().toLowerCase());
+            return imageInfo;
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static BufferedImage read(ImageInputStream input, int subsampling) throws IOException {
+        ImageReader reader = reader(input);
+        if (reader == null) {
+            return null;
+        }
+        try {
+            reader.setInput(input, true, true);
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (subsampling > 1) {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static ImageReader reader(ImageInputStream input) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
     public static ImageInfo bufferedImage2ImageInfo(BufferedImage image) {
+        return bufferedImage2ImageInfo(image, null);
+    }
+
+    /**
+     * 转换为 BGR24 数据
+     *
+     * @param image 原图
+     * @param reuse 复用的目标数组，长度不足或为 null 时重新分配
+     * @return 图像信息
+     */
+    public static ImageInfo bufferedImage2ImageInfo(BufferedImage image, byte[] reuse) {
         ImageInfo imageInfo = new ImageInfo();
         int width = image.getWidth();
         int height = image.getHeight();
@@ -127,28 +288,24 @@ public class ImageFactory {
         height = height & (~3);
         imageInfo.setWidth(width);
         imageInfo.setHeight(height);
-        //根据原图片信息新建一个图片缓冲区
-        BufferedImage resultImage = new BufferedImage(width, height, image.getType());
-        //得到原图的rgb像素矩阵
-        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
-        //将像素矩阵 绘制到新的图片缓冲区中
-        resultImage.setRGB(0, 0, width, height, rgb, 0, width);
-        //进行数据格式化为可用数据
-        BufferedImage dstImage = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-        if (resultImage.getType() != BufferedImage.TYPE_3BYTE_BGR) {
-            ColorSpace cs = ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB);
-            ColorConvertOp colorConvertOp = new ColorConvertOp(cs, dstImage.createGraphics().getRenderingHints());
-            colorConvertOp.filter(resultImage, dstImage);
-        } else {
-            dstImage = resultImage;
-        }
         //获取rgb数据
         imageInfo.setImageFormat(ImageFormat.CP_PAF_BGR24);
-        imageInfo.setImageData(((DataBufferByte) (dstImage.getRaster().getDataBuffer())).getData());
+        imageInfo.setImageData(toBgr(image, width, height, reuse));
         return imageInfo;
     }
 
     public static ImageInfo bufferedImage2GrayImageInfo(BufferedImage image) {
+        return bufferedImage2GrayImageInfo(image, null);
+    }
+
+    /**
+     * 转换为灰度数据
+     *
+     * @param image 原图
+     * @param reuse 复用的目标数组，长度不足或为 null 时重新分配
+     * @return 图像信息
+     */
+    public static ImageInfo bufferedImage2GrayImageInfo(BufferedImage image, byte[] reuse) {
         ImageInfo imageInfo = new ImageInfo();
         int width = image.getWidth();
         int height = image.getHeight();
@@ -157,33 +314,262 @@ public class ImageFactory {
         height = height & (~3);
         imageInfo.setWidth(width);
         imageInfo.setHeight(height);
-
-        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
-        byte[] bytes = rgbToGray(rgb, width, height);
         imageInfo.setImageFormat(ImageFormat.CP_PAF_GRAY);
-        imageInfo.setImageData(bytes);
+        imageInfo.setImageData(toGray(image, width, height, reuse));
         return imageInfo;
     }
 
+    /**
+     * 将图像左上角 width x height 区域转换为 BGR24 数据
+     * <p>TYPE_3BYTE_BGR、TYPE_4BYTE_ABGR、TYPE_INT_RGB、TYPE_INT_ARGB、TYPE_INT_BGR、TYPE_BYTE_GRAY
+     * 直接读取 Raster 的 DataBuffer，其他类型逐行调用 getRGB。灰度图直接复制到三个通道。</p>
+     *
+     * @param dst 目标数组，长度不足 width * height * 3 或为 null 时重新分配
+     * @return 写入数据的数组
+     */
+    public static byte[] toBgr(BufferedImage image, int width, int height, byte[] dst) {
+        int length = width * height * 3;
+        if (dst == null || dst.length < length) {
+            dst = new byte[length];
+        }
+        writeBgr(image, width, height, dst, 0);
+        return dst;
+    }
+
+    /**
+     * 将图像转换为 BGR24 数据写入 dst 的 position 处，写入后 position 后移
+     */
+    public static void toBgr(BufferedImage image, int width, int height, ByteBuffer dst) {
+        int length = width * height * 3;
+        if (dst.hasArray()) {
+            writeBgr(image, width, height, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + length);
+        } else {
+            byte[] scratch = scratch(length);
+            writeBgr(image, width, height, scratch, 0);
+            dst.put(scratch, 0, length);
+        }
+    }
+
+    /**
+     * 将图像左上角 width x height 区域转换为灰度数据，Y = (66R + 129G + 25B + 128 &gt;&gt; 8) + 16
+     * <p>TYPE_BYTE_GRAY 直接复制灰度值；其余类型的处理同 {@link #toBgr(BufferedImage, int, int, byte[])}。</p>
+     *
+     * @param dst 目标数组，长度不足 width * height 或为 null 时重新分配
+     * @return 写入数据的数组
+     */
+    public static byte[] toGray(BufferedImage image, int width, int height, byte[] dst) {
+        int length = width * height;
+        if (dst == null || dst.length < length) {
+            dst = new byte[length];
+        }
+        writeGray(image, width, height, dst, 0);
+        return dst;
+    }
+
+    /**
+     * 将图像转换为灰度数据写入 dst 的 position 处，写入后 position 后移
+     */
+    public static void toGray(BufferedImage image, int width, int height, ByteBuffer dst) {
+        int length = width * height;
+        if (dst.hasArray()) {
+            writeGray(image, width, height, dst.array(), dst.arrayOffset() + dst.position());
+            dst.position(dst.position() + length);
+        } else {
+            byte[] scratch = scratch(length);
+            writeGray(image, width, height, scratch, 0);
+            dst.put(scratch, 0, length);
+        }
+    }
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[0]);
 
-    private static byte[] rgbToGray(int[] argb, int width, int height) {
+    private static byte[] scratch(int length) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new byte[length];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
 
-        int yIndex = 0;
-        int index = 0;
-        byte[] gray = new byte[width * height];
-        for (int j = 0; j < height; ++j) {
-            for (int i = 0; i < width; ++i) {
-                int R = (argb[index] & 0xFF0000) >> 16;
-                int G = (argb[index] & 0x00FF00) >> 8;
-                int B = argb[index] & 0x0000FF;
-                int Y = (66 * R + 129 * G + 25 * B + 128 >> 8) + 16;
-//                int U = (-38 * R - 74 * G + 112 * B + 128 >> 8) + 128;
-//                int V = (112 * R - 94 * G - 18 * B + 128 >> 8) + 128;
-                gray[yIndex++] = (byte) (Y < 0 ? 0 : (Y > 255 ? 255 : Y));
-                ++index;
+    private static void writeBgr(BufferedImage image, int width, int height, byte[] dst, int offset) {
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        int colorSpace = image.getColorModel().getColorSpace().getType();
+        boolean srgb = image.getColorModel().getColorSpace().isCS_sRGB();
+        if (buffer instanceof DataBufferByte && buffer.getNumBanks() == 1 && sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel model = (ComponentSampleModel) sampleModel;
+            byte[] data = ((DataBufferByte) buffer).getData();
+            int stride = model.getScanlineStride();
+            int pixelStride = model.getPixelStride();
+            int[] bandOffsets = model.getBandOffsets();
+            int base = buffer.getOffset() - ty * stride - tx * pixelStride;
+            if (srgb && model.getNumBands() >= 3) {
+                // BGR、ABGR 等交织存储：按波段偏移读取 R、G、B
+                int r = bandOffsets[0], g = bandOffsets[1], b = bandOffsets[2];
+                if (pixelStride == 3 && b == 0 && g == 1 && r == 2) {
+                    int rowBytes = width * 3;
+                    for (int y = 0; y < height; y++) {
+                        System.arraycopy(data, base + y * stride, dst, offset + y * rowBytes, rowBytes);
+                    }
+                    return;
+                }
+                int d = offset;
+                for (int y = 0; y < height; y++) {
+                    int p = base + y * stride;
+                    for (int x = 0; x < width; x++, p += pixelStride) {
+                        dst[d++] = data[p + b];
+                        dst[d++] = data[p + g];
+                        dst[d++] = data[p + r];
+                    }
+                }
+                return;
+            }
+            if (colorSpace == ColorSpace.TYPE_GRAY && model.getNumBands() == 1) {
+                int d = offset;
+                for (int y = 0; y < height; y++) {
+                    int p = base + y * stride + bandOffsets[0];
+                    for (int x = 0; x < width; x++, p += pixelStride) {
+                        byte v = data[p];
+                        dst[d++] = v;
+                        dst[d++] = v;
+                        dst[d++] = v;
+                    }
+                }
+                return;
             }
         }
-        return gray;
+        if (srgb && buffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel
+                && isPacked8Bit((SinglePixelPackedSampleModel) sampleModel)) {
+            SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) sampleModel;
+            int[] data = ((DataBufferInt) buffer).getData();
+            int stride = model.getScanlineStride();
+            int[] bitOffsets = model.getBitOffsets();
+            int rShift = bitOffsets[0], gShift = bitOffsets[1], bShift = bitOffsets[2];
+            int base = buffer.getOffset() - ty * stride - tx;
+            int d = offset;
+            for (int y = 0; y < height; y++) {
+                int p = base + y * stride;
+                for (int x = 0; x < width; x++) {
+                    int pixel = data[p + x];
+                    dst[d++] = (byte) (pixel >>> bShift);
+                    dst[d++] = (byte) (pixel >>> gShift);
+                    dst[d++] = (byte) (pixel >>> rShift);
+                }
+            }
+            return;
+        }
+        // 其他类型：逐行 getRGB，行缓冲区复用
+        int[] row = new int[width];
+        int d = offset;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                dst[d++] = (byte) pixel;
+                dst[d++] = (byte) (pixel >>> 8);
+                dst[d++] = (byte) (pixel >>> 16);
+            }
+        }
+    }
+
+    private static void writeGray(BufferedImage image, int width, int height, byte[] dst, int offset) {
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        SampleModel sampleModel = raster.getSampleModel();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        int colorSpace = image.getColorModel().getColorSpace().getType();
+        boolean srgb = image.getColorModel().getColorSpace().isCS_sRGB();
+        if (buffer instanceof DataBufferByte && buffer.getNumBanks() == 1 && sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel model = (ComponentSampleModel) sampleModel;
+            byte[] data = ((DataBufferByte) buffer).getData();
+            int stride = model.getScanlineStride();
+            int pixelStride = model.getPixelStride();
+            int[] bandOffsets = model.getBandOffsets();
+            int base = buffer.getOffset() - ty * stride - tx * pixelStride;
+            if (colorSpace == ColorSpace.TYPE_GRAY && model.getNumBands() == 1) {
+                if (pixelStride == 1) {
+                    for (int y = 0; y < height; y++) {
+                        System.arraycopy(data, base + y * stride + bandOffsets[0], dst, offset + y * width, width);
+                    }
+                    return;
+                }
+                int d = offset;
+                for (int y = 0; y < height; y++) {
+                    int p = base + y * stride + bandOffsets[0];
+                    for (int x = 0; x < width; x++, p += pixelStride) {
+                        dst[d++] = data[p];
+                    }
+                }
+                return;
+            }
+            if (srgb && model.getNumBands() >= 3) {
+                int r = bandOffsets[0], g = bandOffsets[1], b = bandOffsets[2];
+                int d = offset;
+                for (int y = 0; y < height; y++) {
+                    int p = base + y * stride;
+                    for (int x = 0; x < width; x++, p += pixelStride) {
+                        dst[d++] = luma(data[p + r] & 0xFF, data[p + g] & 0xFF, data[p + b] & 0xFF);
+                    }
+                }
+                return;
+            }
+        }
+        if (srgb && buffer instanceof DataBufferInt && sampleModel instanceof SinglePixelPackedSampleModel
+                && isPacked8Bit((SinglePixelPackedSampleModel) sampleModel)) {
+            SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) sampleModel;
+            int[] data = ((DataBufferInt) buffer).getData();
+            int stride = model.getScanlineStride();
+            int[] bitOffsets = model.getBitOffsets();
+            int rShift = bitOffsets[0], gShift = bitOffsets[1], bShift = bitOffsets[2];
+            int base = buffer.getOffset() - ty * stride - tx;
+            int d = offset;
+            for (int y = 0; y < height; y++) {
+                int p = base + y * stride;
+                for (int x = 0; x < width; x++) {
+                    int pixel = data[p + x];
+                    dst[d++] = luma((pixel >>> rShift) & 0xFF, (pixel >>> gShift) & 0xFF, (pixel >>> bShift) & 0xFF);
+                }
+            }
+            return;
+        }
+        // 其他类型：逐行 getRGB，行缓冲区复用
+        int[] row = new int[width];
+        int d = offset;
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                dst[d++] = luma((pixel >>> 16) & 0xFF, (pixel >>> 8) & 0xFF, pixel & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * R、G、B 均为 8 位的打包格式（INT_RGB、INT_ARGB、INT_BGR）
+     */
+    private static boolean isPacked8Bit(SinglePixelPackedSampleModel model) {
+        int[] masks = model.getBitMasks();
+        int[] offsets = model.getBitOffsets();
+        if (masks.length < 3) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            if ((masks[i] >>> offsets[i]) != 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte luma(int r, int g, int b) {
+        int y = (66 * r + 129 * g + 25 * b + 128 >> 8) + 16;
+        return (byte) (y < 0 ? 0 : (y > 255 ? 255 : y));
     }
 
 
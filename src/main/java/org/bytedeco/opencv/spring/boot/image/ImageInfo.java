@@ -27,5 +27,9 @@ public class ImageInfo {
     private Integer width;
     private Integer height;
     private ImageFormat imageFormat;
+    /**
+     * 文件格式名称，如 jpeg、png，只读取文件头时填充
+     */
+    private String formatName;
 
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.image;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opencv.core.Mat;
+
+/**
+ * native {@link Mat} 的作用域，配合 try-with-resources 使用，close 时按登记的逆序统一释放
+ * <p>OpenCV 的 Java 对象只持有 native 内存的引用，不及时 release 时要等到 GC 回收 Java 对象才会释放，
+ * 堆很小时 native 内存可能在 GC 之前就已耗尽</p>
+ */
+public class MatScope implements AutoCloseable {
+
+    private final List<Mat> mats = new ArrayList<>(4);
+
+    /**
+     * 登记一个需要在作用域结束时释放的 Mat
+     * @return 传入的 Mat，便于链式使用
+     */
+    public <T extends Mat> T track(T mat) {
+        if (mat != null) {
+            mats.add(mat);
+        }
+        return mat;
+    }
+
+    @Override
+    public void close() {
+        for (int i = mats.size() - 1; i >= 0; i--) {
+            mats.get(i).release();
+        }
+        mats.clear();
+    }
+
+}
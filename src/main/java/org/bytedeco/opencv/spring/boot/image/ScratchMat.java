@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.image;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+import org.opencv.core.Mat;
+
+/**
+ * 线程内复用的临时 {@link Mat}
+ * <p>{@link Mat#create(int, int, int)} 及各 OpenCV 函数的输出参数在尺寸、类型不变时复用已有缓冲区，
+ * 同一线程处理常见尺寸的图片时不再重复申请 native 内存。超过 maxBytes 的缓冲区用完即释放，
+ * 避免偶发的大图长期占用线程内存。</p>
+ * <p>同一实例在一个线程内同时只能有一处使用</p>
+ * <p>每个线程为每个实例最多保留 maxBytes 字节的缓冲区。本模块创建的线程池通过 {@link #releasing(ThreadFactory)}
+ * 在线程结束时释放；其他线程（如 Servlet 容器的请求线程）上的缓冲区保留到线程结束后由 GC 回收，
+ * 需要提前归还时调用 {@link #releaseCurrentThread()}。</p>
+ */
+public class ScratchMat {
+
+    /**
+     * 当前线程上用过的实例，线程结束时逐个释放
+     */
+    private static final ThreadLocal<List<ScratchMat>> USED = ThreadLocal.withInitial(ArrayList::new);
+
+    private final ThreadLocal<Mat> local = ThreadLocal.withInitial(() -> {
+        USED.get().add(this);
+        return new Mat();
+    });
+    private final long maxBytes;
+
+    /**
+     * @param maxBytes 用完后保留的最大缓冲区字节数
+     */
+    public ScratchMat(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return 当前线程的临时 Mat，内容未定义，作为 OpenCV 函数的输出参数使用
+     */
+    public Mat get() {
+        return local.get();
+    }
+
+    /**
+     * 使用完毕，缓冲区超过 maxBytes 时释放
+     */
+    public void recycle(Mat mat) {
+        if (mat.total() * mat.elemSize() > maxBytes) {
+            mat.release();
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 释放当前线程上所有实例的缓冲区，之后再调用 {@link #get()} 会重新创建
+     */
+    public static void releaseCurrentThread() {
+        for (ScratchMat scratch : USED.get()) {
+            scratch.local.get().release();
+            scratch.local.remove();
+        }
+        USED.remove();
+    }
+
+    /**
+     * 包装线程工厂，线程结束（如线程池关闭或空闲回收）时调用 {@link #releaseCurrentThread()}
+     */
+    public static ThreadFactory releasing(ThreadFactory threadFactory) {
+        return task -> threadFactory.newThread(() -> {
+            try {
+                task.run();
+            } finally {
+                releaseCurrentThread();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.metrics;
+
+import java.util.List;
+
+import org.bytedeco.javacpp.Pointer;
+import org.bytedeco.opencv.spring.boot.cache.FeatureCache;
+import org.bytedeco.opencv.spring.boot.pool.NativeObjectPool;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 注册 native 对象池、特征缓存和 native 内存的状态指标
+ * <p>对象池指标以 facenet.pool 为前缀，标签 pool 为池名称；特征缓存沿用 Micrometer
+ * 缓存指标的命名（cache.gets、cache.evictions、cache.size），标签 cache=facenet.features；
+ * native 内存指标以 facenet.native 为前缀，持续负载下应保持平稳。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FaceRecognitionMeterBinder implements MeterBinder {
+
+	private static final String CACHE_NAME = "facenet.features";
+
+	private final List<NativeObjectPool<?>> pools;
+	private final FeatureCache featureCache;
+
+	/**
+	 * @param pools 对象池
+	 * @param featureCache 特征缓存，可为 null
+	 */
+	public FaceRecognitionMeterBinder(List<NativeObjectPool<?>> pools, FeatureCache featureCache) {
+		this.pools = pools;
+		this.featureCache = featureCache;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (NativeObjectPool<?> pool : pools) {
+			bindPool(registry, pool);
+		}
+		if (featureCache != null) {
+			bindCache(registry, featureCache);
+		}
+		bindNativeMemory(registry);
+	}
+
+	private static void bindNativeMemory(MeterRegistry registry) {
+		// 进程的物理内存占用（RSS），包含 OpenCV 直接申请的 Mat 内存；
+		// org.opencv 的 Mat 不经过 JavaCPP 的 Pointer 分配，Pointer.totalBytes 统计不到，不单独注册
+		Gauge.builder("facenet.native.physical", Pointer::physicalBytes)
+				.description("Physical memory used by the process").baseUnit("bytes").register(registry);
+		Gauge.builder("facenet.native.max", Pointer::maxPhysicalBytes)
+				.description("Physical memory limit before JavaCPP triggers a GC").baseUnit("bytes").register(registry);
+	}
+
+	private static void bindPool(MeterRegistry registry, NativeObjectPool<?> pool) {
+		Tags tags = Tags.of("pool", pool.getName());
+		Gauge.builder("facenet.pool.active", pool, NativeObjectPool::getActive)
+				.description("Instances currently borrowed").tags(tags).register(registry);
+		Gauge.builder("facenet.pool.idle", pool, NativeObjectPool::getIdle)
+				.description("Instances idle in the pool").tags(tags).register(registry);
+		Gauge.builder("facenet.pool.waiting", pool, NativeObjectPool::getWaiting)
+				.description("Threads waiting for an instance").tags(tags).register(registry);
+		Gauge.builder("facenet.pool.created", pool, NativeObjectPool::getCreated)
+				.description("Instances created").tags(tags).register(registry);
+		Gauge.builder("facenet.pool.max", pool, NativeObjectPool::getMaxSize)
+				.description("Maximum number of instances").tags(tags).register(registry);
+		FunctionCounter.builder("facenet.pool.borrows", pool, NativeObjectPool::getBorrowCount)
+				.description("Instances borrowed").tags(tags).register(registry);
+		FunctionCounter.builder("facenet.pool.exhausted", pool, NativeObjectPool::getExhaustedCount)
+				.description("Borrows rejected because the pool was exhausted").tags(tags).register(registry);
+		FunctionCounter.builder("facenet.pool.wait", pool, p -> p.getWaitNanos() / 1e9)
+				.description("Total time spent waiting for an instance").baseUnit("seconds").tags(tags)
+				.register(registry);
+	}
+
+	private static void bindCache(MeterRegistry registry, FeatureCache cache) {
+		Tags tags = Tags.of("cache", CACHE_NAME);
+		FunctionCounter.builder("cache.gets", cache, FeatureCache::getHitCount)
+				.description("The number of times cache lookup methods have returned a cached value.")
+				.tags(tags).tag("result", "hit").register(registry);
+		FunctionCounter.builder("cache.gets", cache, FeatureCache::getMissCount)
+				.description("The number of times cache lookup methods have returned an uncached (newly loaded) value, or null")
+				.tags(tags).tag("result", "miss").register(registry);
+		FunctionCounter.builder("cache.evictions", cache, FeatureCache::getEvictionCount)
+				.description("cache evictions").tags(tags).register(registry);
+		Gauge.builder("cache.size", cache, FeatureCache::size)
+				.description("The number of entries in this cache.").tags(tags).register(registry);
+		Gauge.builder("facenet.cache.bytes", cache, FeatureCache::getBytes)
+				.description("Estimated memory held by cached features").baseUnit("bytes").tags(tags)
+				.register(registry);
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.metrics;
+
+/**
+ * 人脸识别流程的指标记录
+ * <p>调用方式：{@code long start = metrics.start(); ... metrics.stop(Stage.DETECT, start);}，
+ * 未启用指标时使用 {@link #NOOP}，不读取时钟也不产生分配。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public interface FaceRecognitionMetrics {
+
+	FaceRecognitionMetrics NOOP = new FaceRecognitionMetrics() {
+
+		@Override
+		public long start() {
+			return 0L;
+		}
+
+		@Override
+		public void stop(Stage stage, long start) {
+		}
+
+		@Override
+		public void faces(int count) {
+		}
+
+		@Override
+		public void error(String operation) {
+		}
+
+	};
+
+	/**
+	 * @return 计时起点，传给 {@link #stop(Stage, long)}
+	 */
+	long start();
+
+	/**
+	 * 记录阶段耗时
+	 * @param stage 阶段
+	 * @param start {@link #start()} 的返回值
+	 */
+	void stop(Stage stage, long start);
+
+	/**
+	 * 记录一次检测找到的人脸数
+	 */
+	void faces(int count);
+
+	/**
+	 * 记录一次失败
+	 * @param operation 失败的操作，如 detect、match
+	 */
+	void error(String operation);
+
+}
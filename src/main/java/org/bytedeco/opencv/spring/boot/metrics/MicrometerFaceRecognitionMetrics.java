@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * 基于 Micrometer 的指标记录
+ * <ul>
+ * <li>facenet.stage：各阶段耗时，标签 stage</li>
+ * <li>facenet.faces：检测到的人脸数</li>
+ * <li>facenet.errors：失败次数，标签 operation</li>
+ * </ul>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class MicrometerFaceRecognitionMetrics implements FaceRecognitionMetrics {
+
+	private final MeterRegistry registry;
+	private final Timer[] timers;
+	private final Counter faces;
+	private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+
+	public MicrometerFaceRecognitionMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		Stage[] stages = Stage.values();
+		this.timers = new Timer[stages.length];
+		for (Stage stage : stages) {
+			timers[stage.ordinal()] = Timer.builder("facenet.stage")
+					.description("Time spent in each face recognition stage")
+					.tag("stage", stage.getTag())
+					.register(registry);
+		}
+		this.faces = Counter.builder("facenet.faces")
+				.description("Number of faces detected")
+				.register(registry);
+	}
+
+	@Override
+	public long start() {
+		return System.nanoTime();
+	}
+
+	@Override
+	public void stop(Stage stage, long start) {
+		timers[stage.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void faces(int count) {
+		faces.increment(count);
+	}
+
+	@Override
+	public void error(String operation) {
+		errors.computeIfAbsent(operation, key -> Counter.builder("facenet.errors")
+				.description("Number of failed face recognition operations")
+				.tag("operation", key)
+				.register(registry)).increment();
+	}
+
+}
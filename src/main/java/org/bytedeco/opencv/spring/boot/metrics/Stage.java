@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.metrics;
+
+/**
+ * 人脸识别流程中单独计时的阶段
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum Stage {
+
+	/**
+	 * 图片解码
+	 */
+	DECODE("decode"),
+	/**
+	 * 人脸检测（detectMultiScale）
+	 */
+	DETECT("detect"),
+	/**
+	 * 灰度直方图计算
+	 */
+	HISTOGRAM("histogram"),
+	/**
+	 * FaceNet 特征提取
+	 */
+	EMBED("embed"),
+	/**
+	 * 直方图或特征比较
+	 */
+	COMPARE("compare");
+
+	private final String tag;
+
+	Stage(String tag) {
+		this.tag = tag;
+	}
+
+	/**
+	 * 指标中 stage 标签的取值
+	 */
+	public String getTag() {
+		return tag;
+	}
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.pool;
+
+/**
+ * native 调用（解码、检测、特征提取等）的执行线程
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum ExecutionMode {
+
+	/**
+	 * 在调用方线程上执行
+	 */
+	CALLER,
+	/**
+	 * 交给专用的平台线程池执行，调用方同步等待结果；调用方为虚拟线程时，JNI 调用不会占住载体线程
+	 */
+	OFFLOAD
+
+}
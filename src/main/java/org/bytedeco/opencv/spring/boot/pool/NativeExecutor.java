@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.pool;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.bytedeco.opencv.spring.boot.image.ScratchMat;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * 执行 native 调用的平台线程池
+ * <p>调用方提交任务后同步等待结果：虚拟线程等待时只是挂起，不占用载体线程，
+ * 阻塞的 JNI 调用全部在固定数量的平台线程上执行，并发度与 native 对象池的容量一致。
+ * 已在池内线程上的嵌套调用直接执行，不再提交，避免线程池耗尽时互相等待。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class NativeExecutor {
+
+	private static final ThreadLocal<Boolean> WORKER = new ThreadLocal<>();
+
+	private final ExecutorService executor;
+	private final int threads;
+
+	/**
+	 * @param threads 平台线程数，一般与检测器对象池的 maxSize 相同
+	 */
+	public NativeExecutor(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be greater than 0");
+		}
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("facenet-native-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(threads, ScratchMat.releasing(threadFactory));
+		this.threads = threads;
+	}
+
+	/**
+	 * 在池内线程上执行并等待结果，任务的异常原样抛出
+	 */
+	public <T> T call(Supplier<T> task) {
+		if (WORKER.get() != null) {
+			return task.get();
+		}
+		CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+			WORKER.set(Boolean.TRUE);
+			try {
+				return task.get();
+			} finally {
+				WORKER.remove();
+			}
+		}, executor);
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+}
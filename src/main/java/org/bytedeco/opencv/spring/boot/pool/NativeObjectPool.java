@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.pool;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 有界的 native 对象池
+ * <p>OpenCV 的 CascadeClassifier、dnn.Net 等对象不能被多个线程同时使用，
+ * 池中每个实例同一时刻只借给一个线程；实例按需创建，最多 maxSize 个。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class NativeObjectPool<T> {
+
+	private final String name;
+	private final Supplier<T> factory;
+	private final int maxSize;
+	private final PoolExhaustedAction exhaustedAction;
+	private final long maxWaitNanos;
+	private final BlockingQueue<T> idle;
+	private final AtomicInteger created = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	private final AtomicInteger waiting = new AtomicInteger();
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong exhaustedCount = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	public NativeObjectPool(String name, Supplier<T> factory, int maxSize, PoolExhaustedAction exhaustedAction,
+			Duration maxWait) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be greater than 0");
+		}
+		this.name = name;
+		this.factory = factory;
+		this.maxSize = maxSize;
+		this.exhaustedAction = exhaustedAction;
+		this.maxWaitNanos = maxWait == null ? 0 : maxWait.toNanos();
+		this.idle = new ArrayBlockingQueue<>(maxSize);
+	}
+
+	/**
+	 * 包装一个已有实例，所有调用在该实例上串行执行
+	 */
+	public static <T> NativeObjectPool<T> of(String name, T instance) {
+		NativeObjectPool<T> pool = new NativeObjectPool<>(name, () -> {
+			throw new IllegalStateException("pool [" + name + "] does not create instances");
+		}, 1, PoolExhaustedAction.WAIT, null);
+		pool.created.set(1);
+		pool.idle.offer(instance);
+		return pool;
+	}
+
+	/**
+	 * 借出一个实例在当前线程执行，执行完毕后归还
+	 */
+	public <R> R execute(Function<T, R> action) {
+		T object = borrow();
+		try {
+			return action.apply(object);
+		} finally {
+			release(object);
+		}
+	}
+
+	public T borrow() {
+		T object = idle.poll();
+		if (object == null) {
+			object = tryCreate();
+		}
+		if (object == null) {
+			object = await();
+		}
+		active.incrementAndGet();
+		borrowCount.incrementAndGet();
+		return object;
+	}
+
+	public void release(T object) {
+		active.decrementAndGet();
+		idle.offer(object);
+	}
+
+	private T tryCreate() {
+		int current;
+		while ((current = created.get()) < maxSize) {
+			if (created.compareAndSet(current, current + 1)) {
+				try {
+					return factory.get();
+				} catch (RuntimeException e) {
+					created.decrementAndGet();
+					throw e;
+				}
+			}
+		}
+		return null;
+	}
+
+	private T await() {
+		if (exhaustedAction == PoolExhaustedAction.FAIL) {
+			exhaustedCount.incrementAndGet();
+			throw new PoolExhaustedException("pool [" + name + "] exhausted, maxSize = " + maxSize);
+		}
+		long start = System.nanoTime();
+		waiting.incrementAndGet();
+		try {
+			T object;
+			if (exhaustedAction == PoolExhaustedAction.TIMEOUT) {
+				object = idle.poll(maxWaitNanos, TimeUnit.NANOSECONDS);
+			} else {
+				object = idle.take();
+			}
+			if (object == null) {
+				exhaustedCount.incrementAndGet();
+				throw new PoolExhaustedException("pool [" + name + "] exhausted, waited "
+						+ TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+			}
+			return object;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PoolExhaustedException("interrupted while waiting for pool [" + name + "]");
+		} finally {
+			waiting.decrementAndGet();
+			waitNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * 已创建的实例数
+	 */
+	public int getCreated() {
+		return created.get();
+	}
+
+	/**
+	 * 借出中的实例数
+	 */
+	public int getActive() {
+		return active.get();
+	}
+
+	/**
+	 * 空闲的实例数
+	 */
+	public int getIdle() {
+		return idle.size();
+	}
+
+	/**
+	 * 正在等待实例的线程数
+	 */
+	public int getWaiting() {
+		return waiting.get();
+	}
+
+	/**
+	 * 借出实例占池容量的比例
+	 */
+	public double getUtilization() {
+		return (double) active.get() / maxSize;
+	}
+
+	public long getBorrowCount() {
+		return borrowCount.get();
+	}
+
+	/**
+	 * 因池耗尽（超时或快速失败）而未能借出的次数
+	 */
+	public long getExhaustedCount() {
+		return exhaustedCount.get();
+	}
+
+	/**
+	 * 所有借用累计的等待时间（纳秒）
+	 */
+	public long getWaitNanos() {
+		return waitNanos.get();
+	}
+
+	@Override
+	public String toString() {
+		return "NativeObjectPool[" + name + ", active=" + getActive() + ", idle=" + getIdle() + ", waiting="
+				+ getWaiting() + ", maxSize=" + maxSize + "]";
+	}
+
+}
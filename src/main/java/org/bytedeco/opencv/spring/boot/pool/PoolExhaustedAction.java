@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.pool;
+
+/**
+ * 对象池耗尽时的等待策略
+ */
+public enum PoolExhaustedAction {
+
+	/**
+	 * 一直等待，直到有对象归还
+	 */
+	WAIT,
+	/**
+	 * 最多等待 max-wait，超时抛出 {@link PoolExhaustedException}
+	 */
+	TIMEOUT,
+	/**
+	 * 不等待，立即抛出 {@link PoolExhaustedException}
+	 */
+	FAIL
+
+}
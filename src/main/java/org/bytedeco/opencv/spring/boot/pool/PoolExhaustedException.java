@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.pool;
+
+/**
+ * 对象池耗尽且按策略不再等待时抛出
+ */
+@SuppressWarnings("serial")
+public class PoolExhaustedException extends RuntimeException {
+
+	public PoolExhaustedException(String message) {
+		super(message);
+	}
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.quality;
+
+/**
+ * 图片未通过质量检查，在检测之前抛出
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+@SuppressWarnings("serial")
+public class ImageQualityException extends IllegalArgumentException {
+
+	private final QualityReport report;
+
+	public ImageQualityException(QualityReport report) {
+		super("image rejected by quality gate: " + report.getRejection().name().toLowerCase());
+		this.report = report;
+	}
+
+	public QualityReport getReport() {
+		return report;
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.quality;
+
+import java.io.File;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionProperties;
+import org.bytedeco.opencv.spring.boot.image.ImageFactory;
+import org.bytedeco.opencv.spring.boot.image.ImageInfo;
+import org.bytedeco.opencv.spring.boot.image.MatScope;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * 检测前的图片质量检查，在进入检测之前拒绝过小、模糊、过暗过亮或对比度过低的图片
+ * <p>{@link #checkHeader(byte[])} 只读取文件头中的尺寸，不解码像素；{@link #check(Mat)} 在缩小到
+ * thumbnail-size 的灰度缩略图上计算亮度、对比度和拉普拉斯方差，耗时远小于一次级联检测。
+ * 清晰度与缩略图尺寸相关，修改 thumbnail-size 后需要重新调整 min-sharpness。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class ImageQualityGate {
+
+	private final FacenetFaceRecognitionProperties.Quality quality;
+
+	public ImageQualityGate(FacenetFaceRecognitionProperties.Quality quality) {
+		this.quality = quality;
+	}
+
+	/**
+	 * 通过 ImageIO 读取文件头中的尺寸并检查，ImageIO 不支持的格式（如 WebP）直接通过
+	 */
+	public QualityReport checkHeader(byte[] imageBytes) {
+		return checkHeader(ImageFactory.getImageInfo(imageBytes));
+	}
+
+	public QualityReport checkHeader(File imageFile) {
+		return checkHeader(ImageFactory.getImageInfo(imageFile));
+	}
+
+	/**
+	 * 检查 {@link ImageFactory#getImageInfo(byte[])} 读取到的尺寸，为 null 时直接通过
+	 */
+	public QualityReport checkHeader(ImageInfo imageInfo) {
+		if (imageInfo == null) {
+			return new QualityReport(null, -1, -1, Double.NaN, Double.NaN, Double.NaN);
+		}
+		int width = imageInfo.getWidth();
+		int height = imageInfo.getHeight();
+		return new QualityReport(checkSize(width, height), width, height, Double.NaN, Double.NaN, Double.NaN);
+	}
+
+	/**
+	 * 检查已解码的图像：先检查尺寸，再在灰度缩略图上检查亮度、对比度和清晰度
+	 * @param image 8 位灰度、BGR 或 BGRA 图像
+	 */
+	public QualityReport check(Mat image) {
+		return check(image, 1);
+	}
+
+	/**
+	 * 检查按 1/factor 缩小解码的图像，尺寸按原图（乘以 factor）检查和报告
+	 * @param image 8 位灰度、BGR 或 BGRA 图像
+	 * @param factor 缩小解码的倍数，原图解码时为 1
+	 */
+	public QualityReport check(Mat image, int factor) {
+		int width = image.cols() * factor;
+		int height = image.rows() * factor;
+		QualityRejection rejection = checkSize(width, height);
+		if (rejection != null) {
+			return new QualityReport(rejection, width, height, Double.NaN, Double.NaN, Double.NaN);
+		}
+		try (MatScope scope = new MatScope()) {
+			// 先缩小再转灰度，两步都只处理缩略图大小的数据
+			Mat thumbnail = image;
+			int longSide = Math.max(image.cols(), image.rows());
+			if (quality.getThumbnailSize() > 0 && longSide > quality.getThumbnailSize()) {
+				double scale = (double) quality.getThumbnailSize() / longSide;
+				thumbnail = scope.track(new Mat());
+				Imgproc.resize(image, thumbnail, new Size(), scale, scale, Imgproc.INTER_AREA);
+			}
+			Mat gray = thumbnail;
+			if (thumbnail.channels() > 1) {
+				gray = scope.track(new Mat());
+				Imgproc.cvtColor(thumbnail, gray,
+						thumbnail.channels() == 4 ? Imgproc.COLOR_BGRA2GRAY : Imgproc.COLOR_BGR2GRAY);
+			}
+			MatOfDouble mean = scope.track(new MatOfDouble());
+			MatOfDouble stddev = scope.track(new MatOfDouble());
+			Core.meanStdDev(gray, mean, stddev);
+			double brightness = mean.get(0, 0)[0];
+			double contrast = stddev.get(0, 0)[0];
+			Mat laplacian = scope.track(new Mat());
+			Imgproc.Laplacian(gray, laplacian, CvType.CV_64F);
+			Core.meanStdDev(laplacian, mean, stddev);
+			double sharpness = stddev.get(0, 0)[0] * stddev.get(0, 0)[0];
+			if (brightness < quality.getMinBrightness()) {
+				rejection = QualityRejection.TOO_DARK;
+			} else if (brightness > quality.getMaxBrightness()) {
+				rejection = QualityRejection.TOO_BRIGHT;
+			} else if (contrast < quality.getMinContrast()) {
+				rejection = QualityRejection.LOW_CONTRAST;
+			} else if (sharpness < quality.getMinSharpness()) {
+				rejection = QualityRejection.BLURRY;
+			}
+			return new QualityReport(rejection, width, height, sharpness, brightness, contrast);
+		}
+	}
+
+	private QualityRejection checkSize(int width, int height) {
+		if (width < quality.getMinWidth() || height < quality.getMinHeight()) {
+			return QualityRejection.TOO_SMALL;
+		}
+		if (quality.getMaxAspectRatio() > 0
+				&& (double) Math.max(width, height) / Math.max(1, Math.min(width, height)) > quality.getMaxAspectRatio()) {
+			return QualityRejection.BAD_ASPECT_RATIO;
+		}
+		return null;
+	}
+
+	public FacenetFaceRecognitionProperties.Quality getQuality() {
+		return quality;
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.quality;
+
+/**
+ * 图片未通过质量检查的原因
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum QualityRejection {
+
+	/**
+	 * 宽或高小于 min-width、min-height
+	 */
+	TOO_SMALL,
+	/**
+	 * 长边与短边之比大于 max-aspect-ratio
+	 */
+	BAD_ASPECT_RATIO,
+	/**
+	 * 拉普拉斯方差小于 min-sharpness，图片模糊
+	 */
+	BLURRY,
+	/**
+	 * 平均亮度小于 min-brightness
+	 */
+	TOO_DARK,
+	/**
+	 * 平均亮度大于 max-brightness
+	 */
+	TOO_BRIGHT,
+	/**
+	 * 亮度标准差小于 min-contrast
+	 */
+	LOW_CONTRAST
+
+}
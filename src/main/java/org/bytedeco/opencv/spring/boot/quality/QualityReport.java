@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.quality;
+
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * 图片质量检查结果；未测量的指标为 NaN，未读取到的尺寸为 -1
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class QualityReport {
+
+	private final QualityRejection rejection;
+	private final int width;
+	private final int height;
+	private final double sharpness;
+	private final double brightness;
+	private final double contrast;
+
+	public QualityReport(QualityRejection rejection, int width, int height, double sharpness, double brightness,
+			double contrast) {
+		this.rejection = rejection;
+		this.width = width;
+		this.height = height;
+		this.sharpness = sharpness;
+		this.brightness = brightness;
+		this.contrast = contrast;
+	}
+
+	public boolean isPassed() {
+		return rejection == null;
+	}
+
+	/**
+	 * 未通过的原因，通过时为 null
+	 */
+	public QualityRejection getRejection() {
+		return rejection;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * 缩略图的拉普拉斯方差，越大越清晰
+	 */
+	public double getSharpness() {
+		return sharpness;
+	}
+
+	/**
+	 * 缩略图的平均灰度，取值 [0, 255]
+	 */
+	public double getBrightness() {
+		return brightness;
+	}
+
+	/**
+	 * 缩略图灰度的标准差
+	 */
+	public double getContrast() {
+		return contrast;
+	}
+
+	public JSONObject toJSON() {
+		JSONObject json = new JSONObject();
+		json.put("passed", isPassed());
+		if (rejection != null) {
+			json.put("reason", rejection.name().toLowerCase());
+		}
+		json.put("width", width);
+		json.put("height", height);
+		putIfMeasured(json, "sharpness", sharpness);
+		putIfMeasured(json, "brightness", brightness);
+		putIfMeasured(json, "contrast", contrast);
+		return json;
+	}
+
+	private static void putIfMeasured(JSONObject json, String key, double value) {
+		if (!Double.isNaN(value)) {
+			json.put(key, value);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "QualityReport[" + (rejection == null ? "PASSED" : rejection) + ", " + width + "x" + height
+				+ ", sharpness=" + sharpness + ", brightness=" + brightness + ", contrast=" + contrast + "]";
+	}
+
+}
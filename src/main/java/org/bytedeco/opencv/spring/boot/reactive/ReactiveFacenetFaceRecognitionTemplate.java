@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.reactive;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionTemplate;
+import org.bytedeco.opencv.spring.boot.batch.BatchResult;
+import org.bytedeco.opencv.spring.boot.detection.DetectionResult;
+import org.bytedeco.opencv.spring.boot.detection.MatchResult;
+import org.bytedeco.opencv.spring.boot.gallery.SearchHit;
+import org.bytedeco.opencv.spring.boot.image.ScratchMat;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.alibaba.fastjson.JSONObject;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link FacenetFaceRecognitionTemplate} 的响应式封装，供 WebFlux 等非阻塞服务使用
+ * <p>所有 native 调用都在专用的有界调度器上执行，线程数与 native 对象池大小一致，
+ * 不会占用事件循环线程；调度器的等待队列满时，新请求立即以
+ * {@link java.util.concurrent.RejectedExecutionException} 失败。
+ * 返回 {@link Flux} 的批量方法最多同时处理 concurrency 个元素，按需向上游请求数据。</p>
+ * <p>同步接口返回 null 的场景（如 detect 未检测到唯一人脸），对应的 {@link Mono} 为空。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class ReactiveFacenetFaceRecognitionTemplate implements DisposableBean {
+
+	private final FacenetFaceRecognitionTemplate template;
+	private final Scheduler scheduler;
+	private final int concurrency;
+	private final boolean sharedScheduler;
+
+	/**
+	 * 创建专用调度器：threads 个线程，每个线程最多排队 queueCapacity 个任务
+	 */
+	public ReactiveFacenetFaceRecognitionTemplate(FacenetFaceRecognitionTemplate template, int threads,
+			int queueCapacity) {
+		this(template, newScheduler(threads, queueCapacity), threads, false);
+	}
+
+	/**
+	 * 使用外部调度器，由调用方负责释放
+	 * @param concurrency 批量方法同时处理的元素数
+	 */
+	public ReactiveFacenetFaceRecognitionTemplate(FacenetFaceRecognitionTemplate template, Scheduler scheduler,
+			int concurrency) {
+		this(template, scheduler, concurrency, true);
+	}
+
+	private ReactiveFacenetFaceRecognitionTemplate(FacenetFaceRecognitionTemplate template, Scheduler scheduler,
+			int concurrency, boolean sharedScheduler) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("concurrency must be greater than 0");
+		}
+		this.template = template;
+		this.scheduler = scheduler;
+		this.concurrency = concurrency;
+		this.sharedScheduler = sharedScheduler;
+	}
+
+	/**
+	 * 空闲 60 秒的线程被回收，回收时释放线程内的临时 Mat
+	 */
+	private static Scheduler newScheduler(int threads, int queueCapacity) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("facenet-reactive-");
+		threadFactory.setDaemon(true);
+		return Schedulers.newBoundedElastic(threads, queueCapacity, ScratchMat.releasing(threadFactory), 60);
+	}
+
+	public Mono<JSONObject> detect(byte[] imageBytes) {
+		return Mono.fromCallable(() -> template.detect(imageBytes)).subscribeOn(scheduler);
+	}
+
+	/**
+	 * 人脸检测，上传内容直接合并为一个 {@link DataBuffer} 解码，不复制为 byte[]
+	 * @param content 图片数据，如 WebFlux 的 {@code FilePart.content()}
+	 */
+	public Mono<JSONObject> detect(Publisher<DataBuffer> content) {
+		return DataBufferUtils.join(content).flatMap(buffer -> withBuffer(buffer, template::detect));
+	}
+
+	public Mono<DetectionResult> findFaces(byte[] imageBytes) {
+		return Mono.fromCallable(() -> template.findFaces(imageBytes)).subscribeOn(scheduler);
+	}
+
+	public Mono<MatchResult> matchFaces(byte[] imageBytes1, byte[] imageBytes2) {
+		return Mono.fromCallable(() -> template.matchFaces(imageBytes1, imageBytes2)).subscribeOn(scheduler);
+	}
+
+	public Mono<JSONObject> match(byte[] imageBytes1, byte[] imageBytes2) {
+		return Mono.fromCallable(() -> template.match(imageBytes1, imageBytes2)).subscribeOn(scheduler);
+	}
+
+	public Mono<JSONObject> match(Publisher<DataBuffer> content1, Publisher<DataBuffer> content2) {
+		return Mono.zip(DataBufferUtils.join(content1), DataBufferUtils.join(content2))
+				.doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+				.flatMap(buffers -> withBuffers(buffers.getT1(), buffers.getT2(), template::match));
+	}
+
+	public Mono<float[]> embed(byte[] imageBytes) {
+		return Mono.fromCallable(() -> template.embed(imageBytes)).subscribeOn(scheduler);
+	}
+
+	public Mono<Boolean> enroll(String id, byte[] imageBytes) {
+		return Mono.fromCallable(() -> template.enroll(id, imageBytes)).subscribeOn(scheduler);
+	}
+
+	public Mono<List<SearchHit>> search(byte[] imageBytes, int k) {
+		return Mono.fromCallable(() -> template.search(imageBytes, k)).subscribeOn(scheduler);
+	}
+
+	/**
+	 * 逐张检测，结果顺序与输入一致；单张图片的异常记录在对应的 {@link BatchResult} 中，不中断整个流
+	 */
+	public Flux<BatchResult<JSONObject>> detectAll(Flux<byte[]> images) {
+		return eachIndexed(images, template::detect);
+	}
+
+	/**
+	 * 逐张检测所有人脸，结果顺序与输入一致
+	 */
+	public Flux<BatchResult<DetectionResult>> findFacesAll(Flux<byte[]> images) {
+		return eachIndexed(images, template::findFaces);
+	}
+
+	/**
+	 * 逐张提取特征，结果顺序与输入一致；未检测到人脸的图片结果为 null
+	 */
+	public Flux<BatchResult<float[]>> embedAll(Flux<byte[]> images) {
+		return eachIndexed(images, template::embed);
+	}
+
+	private <T> Flux<BatchResult<T>> eachIndexed(Flux<byte[]> images, Function<byte[], T> action) {
+		return images.index().flatMapSequential(indexed -> {
+			int index = indexed.getT1().intValue();
+			return Mono.fromCallable(() -> BatchResult.success(index, action.apply(indexed.getT2())))
+					.subscribeOn(scheduler)
+					.onErrorResume(e -> Mono.just(BatchResult.failure(index, e)));
+		}, concurrency, 1);
+	}
+
+	/**
+	 * 在调度器上处理缓冲区并释放；任务被取消或被拒绝而未执行时同样释放
+	 */
+	private <T> Mono<T> withBuffer(DataBuffer buffer, Function<ByteBuffer, T> action) {
+		AtomicBoolean claimed = new AtomicBoolean();
+		return Mono.fromCallable(() -> {
+			if (!claimed.compareAndSet(false, true)) {
+				return null;
+			}
+			try {
+				return action.apply(buffer.asByteBuffer());
+			} finally {
+				DataBufferUtils.release(buffer);
+			}
+		}).subscribeOn(scheduler).doFinally(signal -> {
+			if (claimed.compareAndSet(false, true)) {
+				DataBufferUtils.release(buffer);
+			}
+		});
+	}
+
+	private <T> Mono<T> withBuffers(DataBuffer buffer1, DataBuffer buffer2,
+			BiFunction<ByteBuffer, ByteBuffer, T> action) {
+		AtomicBoolean claimed = new AtomicBoolean();
+		return Mono.fromCallable(() -> {
+			if (!claimed.compareAndSet(false, true)) {
+				return null;
+			}
+			try {
+				return action.apply(buffer1.asByteBuffer(), buffer2.asByteBuffer());
+			} finally {
+				DataBufferUtils.release(buffer1);
+				DataBufferUtils.release(buffer2);
+			}
+		}).subscribeOn(scheduler).doFinally(signal -> {
+			if (claimed.compareAndSet(false, true)) {
+				DataBufferUtils.release(buffer1);
+				DataBufferUtils.release(buffer2);
+			}
+		});
+	}
+
+	public FacenetFaceRecognitionTemplate getTemplate() {
+		return template;
+	}
+
+	public Scheduler getScheduler() {
+		return scheduler;
+	}
+
+	@Override
+	public void destroy() {
+		if (!sharedScheduler) {
+			scheduler.dispose();
+		}
+	}
+
+}
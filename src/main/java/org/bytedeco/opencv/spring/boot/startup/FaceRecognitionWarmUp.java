@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.startup;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionTemplate;
+import org.bytedeco.opencv.spring.boot.dnn.FaceEmbeddingEngine;
+import org.bytedeco.opencv.spring.boot.image.ScratchMat;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+/**
+ * native 库加载与预热
+ * <p>预热时加载 native 库，创建检测器、特征模型各一个实例，并用一张空白图各执行一次，
+ * 使首个请求不再承担模型加载和首次推理的内存分配。执行时机见 {@link InitializationMode}。</p>
+ * <p>EAGER 模式下预热失败时中止应用启动；LAZY 模式不预热，首次成功借出检测器（native 库和检测器已初始化）后标记为就绪。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FaceRecognitionWarmUp implements SmartInitializingSingleton {
+
+	private static final Logger logger = LoggerFactory.getLogger(FaceRecognitionWarmUp.class);
+	/**
+	 * 预热使用的空白图尺寸
+	 */
+	private static final int WARM_UP_SIZE = 160;
+
+	public enum State {
+		/**
+		 * 尚未预热
+		 */
+		PENDING,
+		/**
+		 * 正在预热
+		 */
+		WARMING,
+		/**
+		 * 预热完成
+		 */
+		READY,
+		/**
+		 * 预热失败
+		 */
+		FAILED
+	}
+
+	private final FacenetFaceRecognitionTemplate template;
+	private final InitializationMode mode;
+	private volatile State state = State.PENDING;
+	private volatile Throwable error;
+	private volatile long durationNanos;
+
+	public FaceRecognitionWarmUp(FacenetFaceRecognitionTemplate template, InitializationMode mode) {
+		this.template = template;
+		this.mode = mode;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (mode == InitializationMode.EAGER) {
+			warmUp();
+			if (state == State.FAILED) {
+				throw new IllegalStateException("Face recognition warm-up failed", error);
+			}
+		} else if (mode == InitializationMode.BACKGROUND) {
+			Thread thread = new Thread(this::warmUp, "facenet-warmup");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * 同步预热，已完成时直接返回
+	 */
+	public synchronized void warmUp() {
+		if (state == State.READY) {
+			return;
+		}
+		state = State.WARMING;
+		long start = System.nanoTime();
+		try {
+			NativeLibrary.load();
+			Mat blank = Mat.zeros(WARM_UP_SIZE, WARM_UP_SIZE, CvType.CV_8UC3);
+			try {
+				template.getFaceDetector().detectFaces(blank, template.detectionOptions());
+				FaceEmbeddingEngine embeddingEngine = template.getEmbeddingEngine();
+				if (embeddingEngine != null) {
+					embeddingEngine.embed(blank);
+				}
+			} finally {
+				blank.release();
+				// 预热线程（启动线程或 facenet-warmup）不再处理请求，临时缓冲区不必保留
+				ScratchMat.releaseCurrentThread();
+			}
+			durationNanos = System.nanoTime() - start;
+			state = State.READY;
+			logger.info("Face recognition warmed up in {} ms", TimeUnit.NANOSECONDS.toMillis(durationNanos));
+		} catch (RuntimeException | LinkageError e) {
+			error = e;
+			state = State.FAILED;
+			logger.error("Face recognition warm-up failed", e);
+		}
+	}
+
+	public InitializationMode getMode() {
+		return mode;
+	}
+
+	public State getState() {
+		if (state == State.PENDING && mode == InitializationMode.LAZY && isInitialized()) {
+			markReady();
+		}
+		return state;
+	}
+
+	private synchronized void markReady() {
+		if (state == State.PENDING) {
+			state = State.READY;
+			logger.info("Face recognition initialized on first use");
+		}
+	}
+
+	/**
+	 * 检测器已成功借出过，即 native 库和至少一个检测器实例已初始化成功
+	 */
+	private boolean isInitialized() {
+		return NativeLibrary.isLoaded() && template.getFaceDetectorPool().getBorrowCount() > 0;
+	}
+
+	/**
+	 * 预热失败的原因
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * 预热耗时（纳秒），未完成时为 0
+	 */
+	public long getDurationNanos() {
+		return durationNanos;
+	}
+
+}
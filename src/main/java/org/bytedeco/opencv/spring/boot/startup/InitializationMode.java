@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.startup;
+
+/**
+ * native 库和模型的初始化时机
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum InitializationMode {
+
+	/**
+	 * 启动时同步加载 native 库、模型并预热，完成后应用才启动完毕；预热失败时启动失败
+	 */
+	EAGER,
+	/**
+	 * 启动时不加载，首次使用时再加载；启动最快，但首个请求要承担加载耗时，首次使用成功后状态变为就绪
+	 */
+	LAZY,
+	/**
+	 * 启动后在后台线程加载并预热，预热完成前健康检查为 OUT_OF_SERVICE
+	 */
+	BACKGROUND
+
+}
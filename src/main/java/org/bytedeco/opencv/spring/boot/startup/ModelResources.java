@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.startup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * 模型文件读取
+ * <p>dnn 模型和新格式的级联 XML 都直接从内存加载；只有旧格式的级联文件需要由 CascadeClassifier.load 转换，
+ * 这时才把 jar 内的 XML 解压到临时目录，已存在且大小一致时直接复用，不在每次启动时重复写入。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class ModelResources {
+
+	private static final ResourceLoader RESOURCE_LOADER = new DefaultResourceLoader(ModelResources.class.getClassLoader());
+
+	private ModelResources() {
+	}
+
+	/**
+	 * @param location 模型位置
+	 * @return 是否为 classpath: 开头的类路径资源
+	 */
+	public static boolean isClasspath(String location) {
+		return location != null && location.startsWith(ResourceUtils.CLASSPATH_URL_PREFIX);
+	}
+
+	/**
+	 * 读取模型的全部内容
+	 * @param location 模型位置，支持 classpath:、file:、URL 等 Spring 资源路径
+	 */
+	public static byte[] read(String location) throws IOException {
+		try (InputStream input = RESOURCE_LOADER.getResource(location).getInputStream()) {
+			return IOUtils.toByteArray(input);
+		}
+	}
+
+	/**
+	 * 根据模型文件扩展名推断 dnn 框架名称，见 {@code cv::dnn::readNet}
+	 * @return 框架名称，无法识别时返回空字符串，由 OpenCV 自行判断
+	 */
+	public static String framework(String location) {
+		String extension = StringUtils.getFilenameExtension(location);
+		if (extension == null) {
+			return "";
+		}
+		switch (extension.toLowerCase()) {
+		case "onnx":
+			return "onnx";
+		case "pb":
+			return "tensorflow";
+		case "caffemodel":
+			return "caffe";
+		case "t7":
+		case "net":
+			return "torch";
+		case "weights":
+			return "darknet";
+		case "bin":
+			return "dldt";
+		default:
+			return "";
+		}
+	}
+
+	/**
+	 * 将资源解压到目录中，目标文件已存在且大小一致时直接复用
+	 * @return 解压后的文件路径
+	 */
+	public static String extract(Resource resource, File directory) throws IOException {
+		if (resource.isFile()) {
+			return resource.getFile().getPath();
+		}
+		File target = new File(directory, resource.getFilename());
+		if (target.isFile() && target.length() == resource.contentLength()) {
+			return target.getPath();
+		}
+		Files.createDirectories(directory.toPath());
+		// 先写入临时文件再原子替换，并发启动的实例不会读到写了一半的文件
+		File temp = File.createTempFile(resource.getFilename(), ".tmp", directory);
+		try (InputStream input = resource.getInputStream()) {
+			Files.copy(input, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp.toPath());
+		}
+		return target.getPath();
+	}
+
+}
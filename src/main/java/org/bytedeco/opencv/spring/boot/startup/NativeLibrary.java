@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.startup;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+
+/**
+ * 按需加载 opencv_java native 库
+ * <p>加载只发生一次，之后的调用只读取一个 volatile 标记</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public final class NativeLibrary {
+
+	private static volatile boolean loaded;
+
+	private NativeLibrary() {
+	}
+
+	public static void load() {
+		if (!loaded) {
+			synchronized (NativeLibrary.class) {
+				if (!loaded) {
+					Loader.load(opencv_java.class);
+					loaded = true;
+				}
+			}
+		}
+	}
+
+	public static boolean isLoaded() {
+		return loaded;
+	}
+
+}
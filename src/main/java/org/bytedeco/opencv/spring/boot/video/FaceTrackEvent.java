@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.video;
+
+import org.opencv.core.Rect;
+
+/**
+ * 人脸跟踪事件
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FaceTrackEvent {
+
+	private final FaceTrackEventType type;
+	private final long trackId;
+	private final long frameIndex;
+	private final Rect rect;
+	private final double score;
+	private final boolean detected;
+
+	public FaceTrackEvent(FaceTrackEventType type, long trackId, long frameIndex, Rect rect, double score,
+			boolean detected) {
+		this.type = type;
+		this.trackId = trackId;
+		this.frameIndex = frameIndex;
+		this.rect = rect;
+		this.score = score;
+		this.detected = detected;
+	}
+
+	public FaceTrackEventType getType() {
+		return type;
+	}
+
+	/**
+	 * 跟踪编号，同一人脸在离开画面前保持不变
+	 */
+	public long getTrackId() {
+		return trackId;
+	}
+
+	public long getFrameIndex() {
+		return frameIndex;
+	}
+
+	/**
+	 * 人脸区域；LEFT 事件为最后一次出现的位置
+	 */
+	public Rect getRect() {
+		return rect;
+	}
+
+	/**
+	 * 跟踪帧为模板匹配的相关系数，检测帧为 1
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * 是否由完整检测得到，false 表示由跟踪得到
+	 */
+	public boolean isDetected() {
+		return detected;
+	}
+
+	@Override
+	public String toString() {
+		return "FaceTrackEvent[" + type + ", track=" + trackId + ", frame=" + frameIndex + ", rect=" + rect
+				+ ", score=" + score + "]";
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.video;
+
+/**
+ * 人脸跟踪事件类型
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public enum FaceTrackEventType {
+
+	/**
+	 * 检测到新的人脸，开始跟踪
+	 */
+	ENTERED,
+	/**
+	 * 人脸位置更新（检测帧或跟踪帧）
+	 */
+	UPDATED,
+	/**
+	 * 人脸丢失，停止跟踪
+	 */
+	LEFT
+
+}
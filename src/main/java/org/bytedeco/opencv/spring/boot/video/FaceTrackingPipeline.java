@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.video;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionProperties;
+import org.bytedeco.opencv.spring.boot.FacenetFaceRecognitionTemplate;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.videoio.VideoCapture;
+
+/**
+ * 视频流人脸跟踪：每 detectInterval 帧做一次完整检测，其余帧在上一位置附近做模板匹配跟踪
+ * <p>灰度图、人脸模板、匹配结果等 {@link Mat} 在帧之间复用，尺寸不变时不重新分配。
+ * 每路视频流使用一个实例，实例不是线程安全的；不同实例共享模板的检测器对象池。</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FaceTrackingPipeline implements AutoCloseable {
+
+	private final FacenetFaceRecognitionTemplate template;
+	private final FaceTrackListener listener;
+	private final int detectInterval;
+	private final double searchMargin;
+	private final double minTrackScore;
+	private final double iouThreshold;
+	private final Mat gray = new Mat();
+	private final List<Track> tracks = new ArrayList<>();
+	private long frameIndex;
+	private long nextTrackId = 1;
+
+	public FaceTrackingPipeline(FacenetFaceRecognitionTemplate template, FacenetFaceRecognitionProperties.Video video,
+			FaceTrackListener listener) {
+		if (video.getDetectInterval() < 1) {
+			throw new IllegalArgumentException("detectInterval must be greater than 0");
+		}
+		this.template = template;
+		this.listener = listener;
+		this.detectInterval = video.getDetectInterval();
+		this.searchMargin = video.getSearchMargin();
+		this.minTrackScore = video.getMinTrackScore();
+		this.iouThreshold = video.getIouThreshold();
+	}
+
+	/**
+	 * 读取视频直到结束，帧数据读入同一个 {@link Mat}
+	 * @param capture 已打开的视频文件或摄像头
+	 * @return 处理的帧数
+	 */
+	public long run(VideoCapture capture) {
+		Mat frame = new Mat();
+		long count = 0;
+		try {
+			while (capture.read(frame)) {
+				process(frame);
+				count++;
+			}
+		} finally {
+			frame.release();
+		}
+		return count;
+	}
+
+	/**
+	 * 处理一帧
+	 * @param frame BGR、BGRA 或灰度图，调用返回后即可复用
+	 */
+	public void process(Mat frame) {
+		Mat source = toGray(frame);
+		if (frameIndex % detectInterval == 0) {
+			detect(source);
+		} else {
+			track(source);
+		}
+		frameIndex++;
+	}
+
+	private Mat toGray(Mat frame) {
+		switch (frame.channels()) {
+		case 1:
+			return frame;
+		case 4:
+			Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGRA2GRAY);
+			return gray;
+		default:
+			Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+			return gray;
+		}
+	}
+
+	/**
+	 * 完整检测，按 IoU 与已有跟踪关联
+	 */
+	private void detect(Mat source) {
+		Rect[] faces = template.detectFaces(source);
+		boolean[] matched = new boolean[faces.length];
+		Iterator<Track> iterator = tracks.iterator();
+		while (iterator.hasNext()) {
+			Track track = iterator.next();
+			int best = -1;
+			double bestIou = iouThreshold;
+			for (int i = 0; i < faces.length; i++) {
+				if (!matched[i]) {
+					double iou = iou(track.rect, faces[i]);
+					if (iou >= bestIou) {
+						best = i;
+						bestIou = iou;
+					}
+				}
+			}
+			if (best < 0) {
+				iterator.remove();
+				emit(FaceTrackEventType.LEFT, track, 0, true);
+				track.release();
+				continue;
+			}
+			matched[best] = true;
+			track.reset(source, faces[best]);
+			emit(FaceTrackEventType.UPDATED, track, 1, true);
+		}
+		for (int i = 0; i < faces.length; i++) {
+			if (!matched[i]) {
+				Track track = new Track(nextTrackId++);
+				track.reset(source, faces[i]);
+				tracks.add(track);
+				emit(FaceTrackEventType.ENTERED, track, 1, true);
+			}
+		}
+	}
+
+	/**
+	 * 在上一位置周围 searchMargin 倍人脸尺寸的范围内做模板匹配
+	 */
+	private void track(Mat source) {
+		Iterator<Track> iterator = tracks.iterator();
+		while (iterator.hasNext()) {
+			Track track = iterator.next();
+			double score = track.update(source, searchMargin);
+			if (score < minTrackScore) {
+				iterator.remove();
+				emit(FaceTrackEventType.LEFT, track, score, false);
+				track.release();
+			} else {
+				emit(FaceTrackEventType.UPDATED, track, score, false);
+			}
+		}
+	}
+
+	private void emit(FaceTrackEventType type, Track track, double score, boolean detected) {
+		listener.onEvent(new FaceTrackEvent(type, track.id, frameIndex, track.rect.clone(), score, detected));
+	}
+
+	private static double iou(Rect a, Rect b) {
+		int x1 = Math.max(a.x, b.x);
+		int y1 = Math.max(a.y, b.y);
+		int x2 = Math.min(a.x + a.width, b.x + b.width);
+		int y2 = Math.min(a.y + a.height, b.y + b.height);
+		if (x2 <= x1 || y2 <= y1) {
+			return 0;
+		}
+		double intersection = (double) (x2 - x1) * (y2 - y1);
+		return intersection / (a.area() + b.area() - intersection);
+	}
+
+	/**
+	 * 当前跟踪中的人脸数
+	 */
+	public int getTrackCount() {
+		return tracks.size();
+	}
+
+	/**
+	 * 已处理的帧数
+	 */
+	public long getFrameIndex() {
+		return frameIndex;
+	}
+
+	/**
+	 * 结束所有跟踪（发出 LEFT 事件）并释放缓冲区
+	 */
+	@Override
+	public void close() {
+		for (Track track : tracks) {
+			emit(FaceTrackEventType.LEFT, track, 0, false);
+			track.release();
+		}
+		tracks.clear();
+		gray.release();
+	}
+
+	private static final class Track {
+
+		private final long id;
+		private final Mat patch = new Mat();
+		private final Mat result = new Mat();
+		private Rect rect;
+
+		private Track(long id) {
+			this.id = id;
+		}
+
+		private void reset(Mat source, Rect face) {
+			rect = face;
+			copyPatch(source);
+		}
+
+		private double update(Mat source, double margin) {
+			int mx = (int) (rect.width * margin);
+			int my = (int) (rect.height * margin);
+			int x1 = Math.max(0, rect.x - mx);
+			int y1 = Math.max(0, rect.y - my);
+			int x2 = Math.min(source.cols(), rect.x + rect.width + mx);
+			int y2 = Math.min(source.rows(), rect.y + rect.height + my);
+			if (x2 - x1 < patch.cols() || y2 - y1 < patch.rows()) {
+				// 人脸已移出画面
+				return 0;
+			}
+			Mat window = source.submat(y1, y2, x1, x2);
+			try {
+				Imgproc.matchTemplate(window, patch, result, Imgproc.TM_CCOEFF_NORMED);
+			} finally {
+				window.release();
+			}
+			Core.MinMaxLocResult location = Core.minMaxLoc(result);
+			rect = new Rect(x1 + (int) location.maxLoc.x, y1 + (int) location.maxLoc.y, rect.width, rect.height);
+			copyPatch(source);
+			return location.maxVal;
+		}
+
+		private void copyPatch(Mat source) {
+			Mat region = source.submat(rect);
+			try {
+				region.copyTo(patch);
+			} finally {
+				region.release();
+			}
+		}
+
+		private void release() {
+			patch.release();
+			result.release();
+		}
+
+	}
+
+}
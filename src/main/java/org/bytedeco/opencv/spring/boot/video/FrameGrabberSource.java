@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.video;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.opencv.core.Mat;
+
+/**
+ * 以 JavaCV {@link FrameGrabber}（FFmpeg、摄像头等）作为帧来源，需要引入 org.bytedeco:javacv
+ * <p>帧数据直接包装为 {@link Mat}，不复制像素</p>
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FrameGrabberSource {
+
+	private FrameGrabberSource() {
+	}
+
+	/**
+	 * 读取视频帧直到结束，由调用方负责 start/stop grabber
+	 * @param grabber 已启动的 grabber
+	 * @param pipeline 跟踪流水线
+	 * @return 处理的帧数
+	 */
+	public static long run(FrameGrabber grabber, FaceTrackingPipeline pipeline) throws FrameGrabber.Exception {
+		OpenCVFrameConverter.ToOrgOpenCvCoreMat converter = new OpenCVFrameConverter.ToOrgOpenCvCoreMat();
+		long count = 0;
+		Frame frame;
+		while ((frame = grabber.grab()) != null) {
+			// 跳过音频等非图像帧
+			if (frame.image == null) {
+				continue;
+			}
+			Mat image = converter.convert(frame);
+			if (image != null) {
+				pipeline.process(image);
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class RequestCoalescerTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+	@AfterEach
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void requestsWithinWindowShareOneBatch() throws Exception {
+		try (RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>("test", doubling(),
+				executor, 1, Duration.ofMillis(500), 8, 64)) {
+			List<CompletableFuture<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				futures.add(coalescer.submit(i));
+			}
+			for (int i = 0; i < 5; i++) {
+				assertEquals(i * 2, futures.get(i).get(5, TimeUnit.SECONDS).intValue());
+			}
+			assertEquals(1, coalescer.getBatchCount());
+			assertEquals(5, batchSizes.get(0).intValue());
+		}
+	}
+
+	@Test
+	public void fullBatchIsDispatchedBeforeWindowEnds() throws Exception {
+		try (RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>("test", doubling(),
+				executor, 1, Duration.ofSeconds(30), 4, 64)) {
+			List<CompletableFuture<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(coalescer.submit(i));
+			}
+			for (CompletableFuture<Integer> future : futures) {
+				future.get(5, TimeUnit.SECONDS);
+			}
+			assertEquals(4, batchSizes.get(0).intValue());
+		}
+	}
+
+	@Test
+	public void splitBatchesKeepUncoalescedThroughput() throws Exception {
+		int threads = 4;
+		int requests = 32;
+		long itemMillis = 20;
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			long start = System.nanoTime();
+			List<CompletableFuture<Integer>> direct = new ArrayList<>();
+			for (int i = 0; i < requests; i++) {
+				int input = i;
+				direct.add(CompletableFuture.supplyAsync(() -> {
+					sleep(itemMillis);
+					return input * 2;
+				}, pool));
+			}
+			CompletableFuture.allOf(direct.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+			long directNanos = System.nanoTime() - start;
+
+			Function<List<Integer>, List<BatchResult<Integer>>> slow = inputs -> {
+				sleep(itemMillis * inputs.size());
+				return doubling().apply(inputs);
+			};
+			try (RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>("test", slow, pool, threads,
+					Duration.ofMillis(2), requests, 1024)) {
+				start = System.nanoTime();
+				List<CompletableFuture<Integer>> coalesced = new ArrayList<>();
+				for (int i = 0; i < requests; i++) {
+					coalesced.add(coalescer.submit(i));
+				}
+				CompletableFuture.allOf(coalesced.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+				long coalescedNanos = System.nanoTime() - start;
+				// 整批在一个线程上串行需要 requests * itemMillis，拆分后与不合并的耗时相当
+				assertTrue(coalescedNanos <= directNanos * 3 / 2 + TimeUnit.MILLISECONDS.toNanos(50),
+						"coalesced " + coalescedNanos / 1000000 + " ms, direct " + directNanos / 1000000 + " ms");
+				for (int size : batchSizes) {
+					assertTrue(size <= (requests + threads - 1) / threads);
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void nextBatchDoesNotWaitForRunningBatch() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Function<List<Integer>, List<BatchResult<Integer>>> handler = inputs -> {
+			if (inputs.contains(-1)) {
+				await(release);
+			}
+			return doubling().apply(inputs);
+		};
+		try (RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>("test", handler, executor,
+				1, Duration.ZERO, 1, 64)) {
+			CompletableFuture<Integer> blocked = coalescer.submit(-1);
+			assertEquals(2, coalescer.submit(1).get(5, TimeUnit.SECONDS).intValue());
+			assertFalse(blocked.isDone());
+			release.countDown();
+			assertEquals(-2, blocked.get(5, TimeUnit.SECONDS).intValue());
+		}
+	}
+
+	@Test
+	public void fullQueueRejectsNewRequests() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		// 调度线程交出第一批时阻塞，之后的请求留在队列中
+		Executor blocking = task -> {
+			entered.countDown();
+			await(release);
+			executor.execute(task);
+		};
+		try (RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>("test", doubling(), blocking,
+				1, Duration.ZERO, 1, 2)) {
+			CompletableFuture<Integer> first = coalescer.submit(0);
+			assertTrue(entered.await(5, TimeUnit.SECONDS));
+			CompletableFuture<Integer> second = coalescer.submit(1);
+			CompletableFuture<Integer> third = coalescer.submit(2);
+			CompletableFuture<Integer> rejected = coalescer.submit(3);
+			assertRejected(rejected);
+			assertEquals(2, coalescer.getPending());
+			release.countDown();
+			assertEquals(0, first.get(5, TimeUnit.SECONDS).intValue());
+			assertEquals(2, second.get(5, TimeUnit.SECONDS).intValue());
+			assertEquals(4, third.get(5, TimeUnit.SECONDS).intValue());
+		}
+	}
+
+	@Test
+	public void closeRejectsQueuedAndNewRequests() throws Exception {
+		CountDownLatch entered = new CountDownLatch(1);
+		Executor blocking = task -> {
+			entered.countDown();
+			try {
+				new CountDownLatch(1).await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("interrupted");
+			}
+		};
+		RequestCoalescer<Integer, Integer> coalescer = new RequestCoalescer<>("test", doubling(), blocking,
+				1, Duration.ZERO, 1, 4);
+		CompletableFuture<Integer> dispatched = coalescer.submit(0);
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		CompletableFuture<Integer> queued = coalescer.submit(1);
+		coalescer.close();
+		assertRejected(dispatched);
+		assertRejected(queued);
+		assertRejected(coalescer.submit(2));
+	}
+
+	private Function<List<Integer>, List<BatchResult<Integer>>> doubling() {
+		return inputs -> {
+			batchSizes.add(inputs.size());
+			List<BatchResult<Integer>> results = new ArrayList<>(inputs.size());
+			for (int i = 0; i < inputs.size(); i++) {
+				results.add(BatchResult.success(i, inputs.get(i) * 2));
+			}
+			return results;
+		};
+	}
+
+	private static void assertRejected(CompletableFuture<?> future) {
+		ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof RejectedExecutionException, e.getCause().toString());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class FeatureCacheTest {
+
+	@Test
+	public void evictsLeastRecentlyUsedWhenEntriesExceeded() {
+		FeatureCache cache = new FeatureCache(3, Long.MAX_VALUE);
+		for (int i = 0; i < 3; i++) {
+			cache.put(key(i), new float[] { i });
+		}
+		// 访问 0 之后，最久未使用的是 1
+		assertNotNull(cache.getIfPresent(key(0)));
+		cache.put(key(3), new float[] { 3 });
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.getIfPresent(key(1)));
+		assertNotNull(cache.getIfPresent(key(0)));
+		assertNotNull(cache.getIfPresent(key(2)));
+		assertNotNull(cache.getIfPresent(key(3)));
+	}
+
+	@Test
+	public void evictsUntilBytesFit() {
+		// 每个条目 96 字节开销 + 128 * 4 字节特征
+		long entryBytes = 96 + 128 * 4;
+		FeatureCache cache = new FeatureCache(Long.MAX_VALUE, entryBytes * 2);
+		for (int i = 0; i < 5; i++) {
+			cache.put(key(i), new float[128]);
+		}
+		assertEquals(2, cache.size());
+		assertEquals(entryBytes * 2, cache.getBytes());
+		assertEquals(3, cache.getEvictionCount());
+		assertNotNull(cache.getIfPresent(key(3)));
+		assertNotNull(cache.getIfPresent(key(4)));
+		// 替换同一个键时按新值重新计算占用
+		cache.put(key(4), new float[0]);
+		assertEquals(entryBytes + 96, cache.getBytes());
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getBytes());
+	}
+
+	@Test
+	public void returnsCopiesOfCachedFeatures() {
+		FeatureCache cache = new FeatureCache(10, Long.MAX_VALUE);
+		float[] feature = { 1, 2, 3 };
+		cache.put(key(0), feature);
+		feature[0] = 100;
+		float[] cached = cache.getIfPresent(key(0));
+		assertArrayEquals(new float[] { 1, 2, 3 }, cached);
+		cached[1] = 100;
+		assertArrayEquals(new float[] { 1, 2, 3 }, cache.get(key(0), k -> null));
+	}
+
+	@Test
+	public void cachesAbsentFaces() {
+		FeatureCache cache = new FeatureCache(10, Long.MAX_VALUE);
+		AtomicInteger loads = new AtomicInteger();
+		assertNull(cache.get(key(0), k -> {
+			loads.incrementAndGet();
+			return null;
+		}));
+		assertNull(cache.get(key(0), k -> {
+			loads.incrementAndGet();
+			return null;
+		}));
+		assertEquals(1, loads.get());
+		assertEquals(0, cache.getIfPresent(key(0)).length);
+		assertEquals(1, cache.getMissCount());
+		assertEquals(2, cache.getHitCount());
+	}
+
+	@Test
+	public void loaderFailureIsNotCached() {
+		FeatureCache cache = new FeatureCache(10, Long.MAX_VALUE);
+		assertThrows(IllegalArgumentException.class, () -> cache.get(key(0), k -> {
+			throw new IllegalArgumentException("image decode failed");
+		}));
+		assertNull(cache.getIfPresent(key(0)));
+		assertEquals(0, cache.size());
+		assertArrayEquals(new float[] { 1 }, cache.get(key(0), k -> new float[] { 1 }));
+	}
+
+	private static ContentKey key(int i) {
+		return ContentKey.of(new byte[] { (byte) i, (byte) (i >> 8) });
+	}
+
+}
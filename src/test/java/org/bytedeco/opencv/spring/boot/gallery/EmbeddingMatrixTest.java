@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class EmbeddingMatrixTest {
+
+	@Test
+	public void rowsSpanMultipleChunks() {
+		// 每块 4 行
+		EmbeddingMatrix matrix = new EmbeddingMatrix(3, 12);
+		matrix.ensureCapacity(10);
+		assertTrue(matrix.capacity() >= 10);
+		for (int row = 0; row < 10; row++) {
+			matrix.set(row, new float[] { row, row + 1, row + 2 });
+		}
+		for (int row = 0; row < 10; row++) {
+			assertArrayEquals(new float[] { row, row + 1, row + 2 }, matrix.get(row));
+		}
+		assertSame(matrix.chunk(4), matrix.chunk(7));
+		assertNotSame(matrix.chunk(3), matrix.chunk(4));
+		assertEquals(0, matrix.offset(4));
+		assertEquals(3, matrix.rowsInChunk(5));
+		assertEquals(1 * 4 + 2 * 5 + 3 * 6, matrix.dot(new float[] { 1, 2, 3 }, 4), 1e-6);
+		assertEquals(1 * 8 + 2 * 9 + 3 * 10, matrix.dot(1, 8), 1e-6);
+		matrix.copy(9, 0);
+		assertArrayEquals(new float[] { 9, 10, 11 }, matrix.get(0));
+	}
+
+	@Test
+	public void snapshotKeepsRowsAfterGrowth() {
+		EmbeddingMatrix matrix = new EmbeddingMatrix(2, 8);
+		matrix.ensureCapacity(1);
+		matrix.set(0, new float[] { 1, 2 });
+		EmbeddingMatrix snapshot = matrix.snapshot();
+		matrix.ensureCapacity(20);
+		matrix.set(0, new float[] { 1, 2 });
+		matrix.set(19, new float[] { 5, 6 });
+		assertArrayEquals(new float[] { 1, 2 }, snapshot.get(0));
+		assertEquals(1, snapshot.capacity());
+		assertArrayEquals(new float[] { 5, 6 }, matrix.get(19));
+	}
+
+	@Test
+	public void normalizeInPlace() {
+		EmbeddingMatrix matrix = new EmbeddingMatrix(2);
+		matrix.ensureCapacity(2);
+		matrix.set(1, new float[] { 3, 4 });
+		matrix.normalize(1);
+		assertArrayEquals(new float[] { 0.6f, 0.8f }, matrix.get(1), 1e-6f);
+		matrix.normalize(0);
+		assertArrayEquals(new float[] { 0, 0 }, matrix.get(0));
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class HnswFaceGalleryTest {
+
+	private static final int DIMENSION = 32;
+
+	@Test
+	public void recallAgainstBruteForce() {
+		Random random = new Random(1);
+		HnswFaceGallery hnsw = new HnswFaceGallery(16, 16, 200, 100);
+		BruteForceFaceGallery exact = new BruteForceFaceGallery(16);
+		for (int i = 0; i < 3000; i++) {
+			float[] embedding = embedding(random);
+			hnsw.enroll("face-" + i, embedding);
+			exact.enroll("face-" + i, embedding);
+		}
+		assertTrue(recall(hnsw, exact, random, 10) >= 0.9);
+	}
+
+	@Test
+	public void deletedNodesDoNotTakeResultSlots() {
+		Random random = new Random(2);
+		// efSearch 与 k 相同，删除的节点若占用候选集位置，结果会少于 k 个
+		HnswFaceGallery hnsw = new HnswFaceGallery(16, 8, 100, 10);
+		for (int i = 0; i < 1000; i++) {
+			hnsw.enroll("face-" + i, embedding(random));
+		}
+		Set<String> removed = new HashSet<>();
+		for (int i = 0; i < 1000; i += 5) {
+			assertTrue(hnsw.remove("face-" + i));
+			removed.add("face-" + i);
+		}
+		assertFalse(hnsw.remove("face-0"));
+		assertEquals(800, hnsw.size());
+		for (int q = 0; q < 50; q++) {
+			List<SearchHit> hits = hnsw.search(embedding(random), 10);
+			assertEquals(10, hits.size());
+			for (SearchHit hit : hits) {
+				assertFalse(removed.contains(hit.getId()));
+			}
+		}
+	}
+
+	@Test
+	public void rebuildKeepsWritesMadeDuringCompaction() throws InterruptedException {
+		Random random = new Random(3);
+		HnswFaceGallery hnsw = new HnswFaceGallery(16, 8, 100, 50);
+		float[][] embeddings = new float[2000][];
+		for (int i = 0; i < embeddings.length; i++) {
+			embeddings[i] = embedding(random);
+			hnsw.enroll("face-" + i, embeddings[i]);
+		}
+		// 删除过半后触发后台重建，重建期间继续写入
+		for (int i = 0; i < 1100; i++) {
+			hnsw.remove("face-" + i);
+		}
+		hnsw.enroll("face-1999", embeddings[0]);
+		hnsw.remove("face-1500");
+		hnsw.enroll("late", embeddings[1]);
+		hnsw.awaitIndexing();
+		assertEquals(900, hnsw.size());
+		assertEquals("face-1999", hnsw.search(embeddings[0], 1).get(0).getId());
+		assertEquals("late", hnsw.search(embeddings[1], 1).get(0).getId());
+		assertEquals("face-1600", hnsw.search(embeddings[1600], 1).get(0).getId());
+		for (SearchHit hit : hnsw.search(embeddings[1500], 20)) {
+			assertFalse(hit.getId().equals("face-1500"));
+		}
+	}
+
+	private static double recall(FaceGallery approximate, FaceGallery exact, Random random, int k) {
+		int found = 0;
+		int queries = 100;
+		for (int q = 0; q < queries; q++) {
+			float[] query = embedding(random);
+			Set<String> expected = new HashSet<>();
+			for (SearchHit hit : exact.search(query, k)) {
+				expected.add(hit.getId());
+			}
+			for (SearchHit hit : approximate.search(query, k)) {
+				if (expected.contains(hit.getId())) {
+					found++;
+				}
+			}
+		}
+		return (double) found / (queries * k);
+	}
+
+	static float[] embedding(Random random) {
+		float[] embedding = new float[DIMENSION];
+		for (int i = 0; i < DIMENSION; i++) {
+			embedding[i] = (float) random.nextGaussian();
+		}
+		return embedding;
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class MappedEmbeddingStoreTest {
+
+	/**
+	 * 记录长度 3 + 40 + 4 * 32 + 4 = 175，不是 4 的倍数，特征在各条记录中的对齐方式不同
+	 */
+	private static final int MAX_ID_BYTES = 40;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void truncatedTailIsDroppedOnOpen() throws IOException {
+		Path file = directory.resolve("faces.bin");
+		Random random = new Random(1);
+		float[][] embeddings = new float[3][];
+		try (MappedEmbeddingStore store = new MappedEmbeddingStore(file, MAX_ID_BYTES, false)) {
+			for (int i = 0; i < embeddings.length; i++) {
+				embeddings[i] = HnswFaceGalleryTest.embedding(random);
+				store.append("face-" + i, embeddings[i]);
+			}
+		}
+		// 模拟最后一条记录写到一半时进程崩溃
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 10);
+		}
+		try (MappedEmbeddingStore store = new MappedEmbeddingStore(file, MAX_ID_BYTES, false)) {
+			assertEquals(2, store.getRecords());
+			Map<String, float[]> loaded = load(store);
+			assertEquals(2, loaded.size());
+			assertArrayEquals(embeddings[0], loaded.get("face-0"));
+			assertArrayEquals(embeddings[1], loaded.get("face-1"));
+			// 截断后继续追加，新记录紧接在最后一条完整记录之后
+			store.append("face-2", embeddings[2]);
+		}
+		try (MappedEmbeddingStore store = new MappedEmbeddingStore(file, MAX_ID_BYTES, false)) {
+			assertEquals(3, store.getRecords());
+			assertArrayEquals(embeddings[2], load(store).get("face-2"));
+		}
+	}
+
+	@Test
+	public void corruptedRecordIsSkipped() throws IOException {
+		Path file = directory.resolve("faces.bin");
+		Random random = new Random(2);
+		int recordSize;
+		try (MappedEmbeddingStore store = new MappedEmbeddingStore(file, MAX_ID_BYTES, false)) {
+			for (int i = 0; i < 3; i++) {
+				store.append("face-" + i, HnswFaceGalleryTest.embedding(random));
+			}
+			recordSize = (int) ((Files.size(file) - MappedEmbeddingStore.HEADER_SIZE) / 3);
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			long position = MappedEmbeddingStore.HEADER_SIZE + recordSize + recordSize / 2;
+			ByteBuffer b = ByteBuffer.allocate(1);
+			channel.read(b, position);
+			b.put(0, (byte) ~b.get(0));
+			b.clear();
+			channel.write(b, position);
+		}
+		try (MappedEmbeddingStore store = new MappedEmbeddingStore(file, MAX_ID_BYTES, false)) {
+			Map<String, float[]> loaded = load(store);
+			assertEquals(2, loaded.size());
+			assertFalse(loaded.containsKey("face-1"));
+		}
+	}
+
+	@Test
+	public void compactKeepsLatestLiveRecords() throws IOException {
+		Path file = directory.resolve("faces.bin");
+		Random random = new Random(3);
+		Map<String, float[]> expected = new LinkedHashMap<>();
+		try (MappedEmbeddingStore store = new MappedEmbeddingStore(file, MAX_ID_BYTES, false)) {
+			for (int round = 0; round < 3; round++) {
+				for (int i = 0; i < 50; i++) {
+					float[] embedding = HnswFaceGalleryTest.embedding(random);
+					store.append("face-" + i, embedding);
+					expected.put("face-" + i, embedding);
+				}
+			}
+			for (int i = 0; i < 50; i += 4) {
+				store.delete("face-" + i);
+				expected.remove("face-" + i);
+			}
+			store.compact();
+			assertEquals(expected.size(), store.getRecords());
+			assertFalse(Files.exists(file.resolveSibling("faces.bin.compact")));
+			assertLoaded(expected, load(store));
+			// 压缩后仍可继续写入
+			float[] embedding = HnswFaceGalleryTest.embedding(random);
+			store.append("face-0", embedding);
+			expected.put("face-0", embedding);
+		}
+		try (MappedEmbeddingStore store = new MappedEmbeddingStore(file, MAX_ID_BYTES, false)) {
+			assertEquals(expected.size(), store.getRecords());
+			assertLoaded(expected, load(store));
+		}
+	}
+
+	@Test
+	public void bulkLoadMatchesEnrolledGallery() throws IOException, InterruptedException {
+		Path file = directory.resolve("faces.bin");
+		Random random = new Random(4);
+		BruteForceFaceGallery expected = new BruteForceFaceGallery(16);
+		try (PersistentFaceGallery gallery = new PersistentFaceGallery(new BruteForceFaceGallery(16),
+				new MappedEmbeddingStore(file, MAX_ID_BYTES, false))) {
+			for (int i = 0; i < 500; i++) {
+				float[] embedding = HnswFaceGalleryTest.embedding(random);
+				gallery.enroll("face-" + (i % 300), embedding);
+				expected.enroll("face-" + (i % 300), embedding);
+			}
+			for (int i = 0; i < 300; i += 5) {
+				assertTrue(gallery.remove("face-" + i));
+				expected.remove("face-" + i);
+			}
+			assertFalse(gallery.remove("face-0"));
+		}
+		FaceGallery[] delegates = { new BruteForceFaceGallery(16), new ShardedFaceGallery(4, 16),
+				new HnswFaceGallery(16, 16, 200, 200) };
+		for (FaceGallery delegate : delegates) {
+			try (PersistentFaceGallery gallery = new PersistentFaceGallery(delegate,
+					new MappedEmbeddingStore(file, MAX_ID_BYTES, false))) {
+				assertEquals(expected.size(), gallery.size());
+				assertFalse(gallery.contains("face-0"));
+				assertTrue(gallery.contains("face-1"));
+				// HNSW 在后台建立连接之前走精确扫描，结果与暴力检索一致
+				assertSameHits(expected, gallery, random);
+				if (delegate instanceof HnswFaceGallery) {
+					((HnswFaceGallery) delegate).awaitIndexing();
+					for (int q = 0; q < 20; q++) {
+						float[] query = HnswFaceGalleryTest.embedding(random);
+						assertEquals(expected.search(query, 1).get(0).getId(), gallery.search(query, 1).get(0).getId());
+					}
+				}
+			}
+		}
+	}
+
+	private static void assertSameHits(FaceGallery expected, FaceGallery actual, Random random) {
+		for (int q = 0; q < 20; q++) {
+			float[] query = HnswFaceGalleryTest.embedding(random);
+			List<SearchHit> want = expected.search(query, 5);
+			List<SearchHit> got = actual.search(query, 5);
+			assertEquals(want.size(), got.size());
+			for (int i = 0; i < want.size(); i++) {
+				assertEquals(want.get(i).getId(), got.get(i).getId());
+				assertEquals(want.get(i).getScore(), got.get(i).getScore(), 1e-5f);
+			}
+		}
+	}
+
+	private static void assertLoaded(Map<String, float[]> expected, Map<String, float[]> loaded) {
+		assertEquals(expected.keySet(), loaded.keySet());
+		for (Map.Entry<String, float[]> entry : expected.entrySet()) {
+			assertArrayEquals(entry.getValue(), loaded.get(entry.getKey()));
+		}
+	}
+
+	private static Map<String, float[]> load(MappedEmbeddingStore store) throws IOException {
+		Map<String, float[]> loaded = new LinkedHashMap<>();
+		store.load(loaded::put);
+		return loaded;
+	}
+
+}
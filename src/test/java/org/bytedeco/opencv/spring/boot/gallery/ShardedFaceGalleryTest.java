@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.gallery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class ShardedFaceGalleryTest {
+
+	@Test
+	public void mergedTopKMatchesBruteForce() {
+		Random random = new Random(1);
+		// 超过并行阈值，走 ForkJoinPool 分发
+		try (ShardedFaceGallery sharded = new ShardedFaceGallery(8, 16, 4)) {
+			BruteForceFaceGallery exact = new BruteForceFaceGallery(16);
+			float[][] embeddings = new float[6000][];
+			for (int i = 0; i < embeddings.length; i++) {
+				embeddings[i] = HnswFaceGalleryTest.embedding(random);
+				sharded.enroll("face-" + i, embeddings[i]);
+				exact.enroll("face-" + i, embeddings[i]);
+			}
+			for (int i = 0; i < embeddings.length; i += 3) {
+				assertTrue(sharded.remove("face-" + i));
+				exact.remove("face-" + i);
+			}
+			for (int i = 1; i < embeddings.length; i += 7) {
+				sharded.enroll("face-" + i, embeddings[(i * 31) % embeddings.length]);
+				exact.enroll("face-" + i, embeddings[(i * 31) % embeddings.length]);
+			}
+			assertEquals(exact.size(), sharded.size());
+			for (int q = 0; q < 100; q++) {
+				float[] query = HnswFaceGalleryTest.embedding(random);
+				assertSameHits(exact.search(query, 10), sharded.search(query, 10));
+			}
+		}
+	}
+
+	@Test
+	public void smallGallerySearchesOnCallerThread() {
+		Random random = new Random(2);
+		try (ShardedFaceGallery sharded = new ShardedFaceGallery(4, 16)) {
+			BruteForceFaceGallery exact = new BruteForceFaceGallery(16);
+			for (int i = 0; i < 100; i++) {
+				float[] embedding = HnswFaceGalleryTest.embedding(random);
+				sharded.enroll("face-" + i, embedding);
+				exact.enroll("face-" + i, embedding);
+			}
+			float[] query = HnswFaceGalleryTest.embedding(random);
+			assertSameHits(exact.search(query, 5), sharded.search(query, 5));
+			assertEquals(100, sharded.search(query, 1000).size());
+			assertFalse(sharded.remove("missing"));
+		}
+	}
+
+	@Test
+	public void removalsAcrossCompaction() {
+		Random random = new Random(6);
+		try (ShardedFaceGallery sharded = new ShardedFaceGallery(2, 16)) {
+			BruteForceFaceGallery exact = new BruteForceFaceGallery(16);
+			for (int round = 0; round < 3; round++) {
+				for (int i = 0; i < 1000; i++) {
+					float[] embedding = HnswFaceGalleryTest.embedding(random);
+					sharded.enroll("face-" + round + "-" + i, embedding);
+					exact.enroll("face-" + round + "-" + i, embedding);
+				}
+				// 删除多于保留，分片会重建并重新编号删除序号
+				for (int i = 0; i < 1000; i++) {
+					if (i % 5 != 0) {
+						assertTrue(sharded.remove("face-" + round + "-" + i));
+						exact.remove("face-" + round + "-" + i);
+					}
+				}
+				assertEquals(exact.size(), sharded.size());
+				float[] query = HnswFaceGalleryTest.embedding(random);
+				assertSameHits(exact.search(query, 10), sharded.search(query, 10));
+				assertEquals(exact.size(), sharded.search(query, Integer.MAX_VALUE).size());
+			}
+		}
+	}
+
+	@Test
+	public void writesDuringSearches() throws Exception {
+		Random random = new Random(3);
+		float[][] embeddings = new float[2000][];
+		try (ShardedFaceGallery sharded = new ShardedFaceGallery(4, 16, 2)) {
+			for (int i = 0; i < embeddings.length; i++) {
+				embeddings[i] = HnswFaceGalleryTest.embedding(random);
+				sharded.enroll("face-" + i, embeddings[i]);
+			}
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			AtomicBoolean stop = new AtomicBoolean();
+			try {
+				Future<?> reader = executor.submit(() -> {
+					Random local = new Random(4);
+					while (!stop.get()) {
+						List<SearchHit> hits = sharded.search(HnswFaceGalleryTest.embedding(local), 5);
+						assertEquals(5, hits.size());
+						for (int i = 1; i < hits.size(); i++) {
+							assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore());
+						}
+					}
+				});
+				Future<?> writer = executor.submit(() -> {
+					Random local = new Random(5);
+					for (int i = 0; i < 20000; i++) {
+						String id = "churn-" + local.nextInt(500);
+						if (local.nextBoolean()) {
+							sharded.enroll(id, embeddings[local.nextInt(embeddings.length)]);
+						} else {
+							sharded.remove(id);
+						}
+					}
+				});
+				writer.get(1, TimeUnit.MINUTES);
+				stop.set(true);
+				reader.get(1, TimeUnit.MINUTES);
+			} finally {
+				executor.shutdownNow();
+			}
+			List<SearchHit> all = sharded.search(embeddings[0], Integer.MAX_VALUE);
+			Set<String> ids = new HashSet<>();
+			for (SearchHit hit : all) {
+				assertTrue(ids.add(hit.getId()));
+			}
+			assertEquals(sharded.size(), all.size());
+		}
+	}
+
+	private static void assertSameHits(List<SearchHit> expected, List<SearchHit> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-6f);
+		}
+	}
+
+}
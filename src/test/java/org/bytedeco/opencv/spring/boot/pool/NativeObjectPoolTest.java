@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2018, hiwepy (https://github.com/hiwepy).
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.bytedeco.opencv.spring.boot.pool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author ： <a href="https://github.com/hiwepy">wandl</a>
+ */
+public class NativeObjectPoolTest {
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final AtomicInteger sequence = new AtomicInteger();
+
+	@AfterEach
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void createsOnDemandUpToMaxSizeAndReuses() {
+		NativeObjectPool<Integer> pool = pool(2, PoolExhaustedAction.FAIL, null);
+		Integer first = pool.borrow();
+		Integer second = pool.borrow();
+		assertNotSame(first, second);
+		assertEquals(2, pool.getCreated());
+		assertEquals(2, pool.getActive());
+		pool.release(first);
+		assertSame(first, pool.borrow());
+		assertEquals(2, sequence.get());
+	}
+
+	@Test
+	public void failThrowsImmediatelyWhenExhausted() {
+		NativeObjectPool<Integer> pool = pool(1, PoolExhaustedAction.FAIL, null);
+		Integer object = pool.borrow();
+		assertThrows(PoolExhaustedException.class, pool::borrow);
+		assertEquals(1, pool.getExhaustedCount());
+		assertEquals(0, pool.getWaiting());
+		pool.release(object);
+		assertSame(object, pool.execute(o -> o));
+	}
+
+	@Test
+	public void timeoutThrowsAfterMaxWait() {
+		NativeObjectPool<Integer> pool = pool(1, PoolExhaustedAction.TIMEOUT, Duration.ofMillis(50));
+		pool.borrow();
+		long start = System.nanoTime();
+		assertThrows(PoolExhaustedException.class, pool::borrow);
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+		assertEquals(1, pool.getExhaustedCount());
+		assertEquals(0, pool.getWaiting());
+	}
+
+	@Test
+	public void timeoutReceivesInstanceReleasedWhileWaiting() throws Exception {
+		NativeObjectPool<Integer> pool = pool(1, PoolExhaustedAction.TIMEOUT, Duration.ofSeconds(5));
+		Integer object = pool.borrow();
+		Future<Integer> waiter = executor.submit(pool::borrow);
+		awaitWaiting(pool);
+		pool.release(object);
+		assertSame(object, waiter.get(5, TimeUnit.SECONDS));
+		assertEquals(0, pool.getExhaustedCount());
+	}
+
+	@Test
+	public void waitBlocksUntilReleased() throws Exception {
+		NativeObjectPool<Integer> pool = pool(1, PoolExhaustedAction.WAIT, null);
+		Integer object = pool.borrow();
+		Future<Integer> waiter = executor.submit(pool::borrow);
+		awaitWaiting(pool);
+		// 超过 TIMEOUT 策略常用的等待时间仍在等待
+		Thread.sleep(100);
+		assertEquals(1, pool.getWaiting());
+		pool.release(object);
+		assertSame(object, waiter.get(5, TimeUnit.SECONDS));
+		assertEquals(1, pool.getCreated());
+		assertEquals(2, pool.getBorrowCount());
+	}
+
+	@Test
+	public void failedCreationDoesNotTakeCapacity() {
+		AtomicInteger attempts = new AtomicInteger();
+		NativeObjectPool<Integer> pool = new NativeObjectPool<>("test", () -> {
+			if (attempts.incrementAndGet() == 1) {
+				throw new IllegalStateException("model not found");
+			}
+			return attempts.get();
+		}, 1, PoolExhaustedAction.FAIL, null);
+		assertThrows(IllegalStateException.class, pool::borrow);
+		assertEquals(0, pool.getCreated());
+		assertEquals(2, pool.borrow().intValue());
+	}
+
+	@Test
+	public void wrappedInstanceIsSerialized() throws Exception {
+		NativeObjectPool<Integer> pool = NativeObjectPool.of("test", 42);
+		Integer object = pool.borrow();
+		CompletableFuture<Integer> waiter = CompletableFuture.supplyAsync(pool::borrow, executor);
+		awaitWaiting(pool);
+		pool.release(object);
+		assertEquals(42, waiter.get(5, TimeUnit.SECONDS).intValue());
+	}
+
+	private NativeObjectPool<Integer> pool(int maxSize, PoolExhaustedAction action, Duration maxWait) {
+		return new NativeObjectPool<>("test", () -> Integer.valueOf(sequence.incrementAndGet() + 1000), maxSize, action,
+				maxWait);
+	}
+
+	private static void awaitWaiting(NativeObjectPool<?> pool) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (pool.getWaiting() == 0 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(1, pool.getWaiting());
+	}
+
+}